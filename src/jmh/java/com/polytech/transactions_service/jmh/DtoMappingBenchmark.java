@@ -0,0 +1,75 @@
+package com.polytech.transactions_service.jmh;
+
+import com.polytech.transactions_service.dto.CheckoutResult;
+import com.polytech.transactions_service.dto.TransactionSummaryDto;
+import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.enums.PaymentStatus;
+import com.polytech.transactions_service.model.enums.TransactionStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passage entité -> DTO : projection de l'historique (même constructeur que la requête JPQL,
+ * pour une page de 50 lignes) et réponse de checkout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    private List<Transaction> page;
+    private Transaction transaction;
+
+    @Setup
+    public void setUp() {
+        page = new ArrayList<>(PAGE_SIZE);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.add(Transaction.builder()
+                    .id(UUID.randomUUID())
+                    .buyerId(UUID.randomUUID())
+                    .ticketId(UUID.randomUUID())
+                    .vendorId(UUID.randomUUID())
+                    .totalAmountCents(1000 + i)
+                    .platformFeeCents(50)
+                    .vendorAmountCents(950 + i)
+                    .paymentStatus(PaymentStatus.PAID)
+                    .status(TransactionStatus.COMPLETED)
+                    .transactionDate(now.minusDays(i))
+                    .validationDate(now.minusDays(i).plusMinutes(2))
+                    .build());
+        }
+        transaction = page.get(0);
+    }
+
+    @Benchmark
+    public List<TransactionSummaryDto> summaryPage() {
+        List<TransactionSummaryDto> dtos = new ArrayList<>(page.size());
+        for (Transaction t : page) {
+            dtos.add(new TransactionSummaryDto(t.getId(), t.getTicketId(), t.getBuyerId(), t.getVendorId(),
+                    t.getTotalAmountCents(), t.getPlatformFeeCents(), t.getVendorAmountCents(),
+                    t.getPaymentStatus(), t.getStatus(), t.getTransactionDate(), t.getValidationDate()));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public CheckoutResult checkoutResult() {
+        return CheckoutResult.builder()
+                .transaction(transaction)
+                .transactionId(transaction.getId())
+                .clientSecret("pi_3Pbench_secret_abc")
+                .expiresAt(transaction.getTransactionDate().plusMinutes(15))
+                .build();
+    }
+}
@@ -0,0 +1,76 @@
+package com.polytech.transactions_service.jmh;
+
+import com.polytech.transactions_service.model.FeeRule;
+import com.polytech.transactions_service.model.Money;
+import com.polytech.transactions_service.repository.FeeRuleRepository;
+import com.polytech.transactions_service.service.FeeScheduleService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Calcul des montants de createTransaction : conversion du prix du ticket en centimes puis
+ * commission via le barème en mémoire (règle événement, vendeur ou taux par défaut).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeeComputationBenchmark {
+
+    private FeeScheduleService feeScheduleService;
+    private UUID ruledEventId;
+    private UUID ruledVendorId;
+    private UUID otherId;
+    private Double salePrice;
+
+    @Setup
+    public void setUp() {
+        // Barème réaliste : quelques centaines de règles chargées dans le snapshot
+        List<FeeRule> rules = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            FeeRule eventRule = new FeeRule();
+            eventRule.setEventId(UUID.randomUUID());
+            eventRule.setRateBps(300 + i);
+            rules.add(eventRule);
+            FeeRule vendorRule = new FeeRule();
+            vendorRule.setVendorId(UUID.randomUUID());
+            vendorRule.setRateBps(400);
+            vendorRule.setFixedCents(50);
+            rules.add(vendorRule);
+        }
+        FeeRuleRepository repository = mock(FeeRuleRepository.class, withSettings().stubOnly());
+        when(repository.findAll()).thenReturn(rules);
+        feeScheduleService = new FeeScheduleService(repository, 500, 0);
+        feeScheduleService.refresh();
+
+        ruledEventId = rules.get(0).getEventId();
+        ruledVendorId = rules.get(1).getVendorId();
+        otherId = UUID.randomUUID();
+        salePrice = 42.90;
+    }
+
+    @Benchmark
+    public long eventRule() {
+        return feeScheduleService.platformFee(otherId, ruledEventId, Money.ofDecimal(salePrice));
+    }
+
+    @Benchmark
+    public long vendorRule() {
+        return feeScheduleService.platformFee(ruledVendorId, otherId, Money.ofDecimal(salePrice));
+    }
+
+    @Benchmark
+    public long defaultRate() {
+        return feeScheduleService.platformFee(otherId, otherId, Money.ofDecimal(salePrice));
+    }
+}
@@ -0,0 +1,50 @@
+package com.polytech.transactions_service.jmh;
+
+import com.polytech.transactions_service.config.SecurityConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion d'un JWT Keycloak en authentification Spring, exécutée à chaque requête authentifiée :
+ * scopes, rôles du realm (realm_access.roles) et rôle applicatif (app_role).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthoritiesBenchmark {
+
+    private JwtAuthenticationConverter converter;
+    private Jwt jwt;
+
+    @Setup
+    public void setUp() {
+        converter = new SecurityConfig().jwtAuthenticationConverter();
+        Instant now = Instant.now();
+        jwt = Jwt.withTokenValue("bench-token")
+                .header("alg", "RS256")
+                .subject(UUID.randomUUID().toString())
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(300))
+                .claim("scope", "openid profile email")
+                .claim("realm_access", Map.of("roles",
+                        List.of("default-roles-eventy-realm", "offline_access", "uma_authorization", "user")))
+                .claim("app_role", "vendor")
+                .build();
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken convert() {
+        return converter.convert(jwt);
+    }
+}
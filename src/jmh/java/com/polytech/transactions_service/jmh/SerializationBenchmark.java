@@ -0,0 +1,105 @@
+package com.polytech.transactions_service.jmh;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polytech.transactions_service.event.EventCodec;
+import com.polytech.transactions_service.event.PaymentValidatedEvent;
+import com.polytech.transactions_service.event.TicketSoldEvent;
+import com.polytech.transactions_service.event.TransactionRefundedEvent;
+import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.enums.PaymentMethod;
+import com.polytech.transactions_service.model.enums.PaymentStatus;
+import com.polytech.transactions_service.model.enums.TransactionStatus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sérialisation Jackson des réponses Transaction et des trois événements Kafka, avec le même
+ * ObjectMapper que Spring Boot (modules JSR-310, dates ISO). Les événements passent par
+ * EventCodec en JSON, comme en production par défaut ; paymentValidatedBinary mesure le format
+ * compact pour comparaison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private EventCodec eventCodec;
+    private EventCodec binaryCodec;
+    private Transaction transaction;
+    private TicketSoldEvent ticketSold;
+    private PaymentValidatedEvent paymentValidated;
+    private TransactionRefundedEvent transactionRefunded;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        eventCodec = new EventCodec(objectMapper, "");
+        binaryCodec = new EventCodec(objectMapper, "bench");
+        LocalDateTime now = LocalDateTime.now();
+        transaction = Transaction.builder()
+                .id(UUID.randomUUID())
+                .buyerId(UUID.randomUUID())
+                .ticketId(UUID.randomUUID())
+                .vendorId(UUID.randomUUID())
+                .eventId(UUID.randomUUID())
+                .ticketPriceCents(4290L)
+                .totalAmountCents(4290)
+                .platformFeeCents(215)
+                .vendorAmountCents(4075)
+                .paymentMethod(PaymentMethod.CREDIT_CARD)
+                .paymentStatus(PaymentStatus.PAID)
+                .paymentToken("pi_3PbenchmarkToken")
+                .transactionDate(now.minusMinutes(3))
+                .validationDate(now)
+                .status(TransactionStatus.COMPLETED)
+                .build();
+        ticketSold = new TicketSoldEvent(transaction.getTicketId(), transaction.getId(), transaction.getBuyerId());
+        paymentValidated = PaymentValidatedEvent.builder()
+                .transactionId(transaction.getId())
+                .buyerId(transaction.getBuyerId())
+                .vendorId(transaction.getVendorId())
+                .amountCents(transaction.getTotalAmountCents())
+                .vendorAmountCents(transaction.getVendorAmountCents())
+                .build();
+        transactionRefunded = TransactionRefundedEvent.builder()
+                .transactionId(transaction.getId())
+                .ticketId(transaction.getTicketId())
+                .vendorId(transaction.getVendorId())
+                .vendorAmountCents(transaction.getVendorAmountCents())
+                .build();
+    }
+
+    @Benchmark
+    public byte[] transactionJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(transaction);
+    }
+
+    @Benchmark
+    public byte[] ticketSoldJson() {
+        return eventCodec.encode("bench", ticketSold).payload();
+    }
+
+    @Benchmark
+    public byte[] paymentValidatedJson() {
+        return eventCodec.encode("bench", paymentValidated).payload();
+    }
+
+    @Benchmark
+    public byte[] transactionRefundedJson() {
+        return eventCodec.encode("bench", transactionRefunded).payload();
+    }
+
+    @Benchmark
+    public byte[] paymentValidatedBinary() {
+        return binaryCodec.encode("bench", paymentValidated).payload();
+    }
+}
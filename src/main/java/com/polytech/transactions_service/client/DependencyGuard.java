@@ -0,0 +1,117 @@
+package com.polytech.transactions_service.client;
+
+import com.polytech.transactions_service.exception.DependencyUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Protection des appels sortants, par dépendance (tickets-service, users-service, Stripe) :
+ * bulkhead (appels simultanés bornés), circuit breaker et, pour les appels idempotents seulement,
+ * un retry borné. Ordre : Retry(CircuitBreaker(Bulkhead(appel))).
+ * Un appel refusé (breaker ouvert, bulkhead plein) échoue immédiatement en DependencyUnavailableException
+ * et incrémente "dependency.calls.rejected" ; l'état des breakers et des bulkheads est publié
+ * par resilience4j-micrometer (resilience4j.circuitbreaker.state, resilience4j.bulkhead.*).
+ * Instances configurées sous resilience4j.* dans application.yaml.
+ */
+@Component
+@Slf4j
+public class DependencyGuard {
+
+    public static final String TICKETS = "tickets-service";
+    public static final String USERS = "users-service";
+    public static final String STRIPE = "stripe";
+
+    @FunctionalInterface
+    public interface RemoteCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    public interface RemoteAction<E extends Exception> {
+        void run() throws E;
+    }
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final RetryRegistry retryRegistry;
+    private final MeterRegistry meterRegistry;
+
+    public DependencyGuard(CircuitBreakerRegistry circuitBreakerRegistry,
+                           BulkheadRegistry bulkheadRegistry,
+                           RetryRegistry retryRegistry,
+                           MeterRegistry meterRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.retryRegistry = retryRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T, E extends Exception> T call(String dependency, RemoteCall<T, E> call) throws E {
+        return execute(dependency, false, call);
+    }
+
+    /**
+     * Réservé aux appels sans effet en cas de répétition (lecture, libération) : ils sont réessayés
+     * selon resilience4j.retry.instances.&lt;dependency&gt;.
+     */
+    public <T, E extends Exception> T callIdempotent(String dependency, RemoteCall<T, E> call) throws E {
+        return execute(dependency, true, call);
+    }
+
+    public <E extends Exception> void run(String dependency, RemoteAction<E> action) throws E {
+        execute(dependency, false, asCall(action));
+    }
+
+    public <E extends Exception> void runIdempotent(String dependency, RemoteAction<E> action) throws E {
+        execute(dependency, true, asCall(action));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T, E extends Exception> T execute(String dependency, boolean idempotent, RemoteCall<T, E> call) throws E {
+        Callable<T> guarded = Bulkhead.decorateCallable(bulkheadRegistry.bulkhead(dependency), call::call);
+        guarded = CircuitBreaker.decorateCallable(circuitBreakerRegistry.circuitBreaker(dependency), guarded);
+        if (idempotent) {
+            guarded = Retry.decorateCallable(retryRegistry.retry(dependency), guarded);
+        }
+        try {
+            return guarded.call();
+        } catch (CallNotPermittedException e) {
+            throw rejected(dependency, "circuit-open", e);
+        } catch (BulkheadFullException e) {
+            throw rejected(dependency, "bulkhead-full", e);
+        } catch (Exception e) {
+            // Seules les exceptions de l'appel lui-même (E ou non vérifiées) arrivent ici
+            throw (E) e;
+        }
+    }
+
+    private DependencyUnavailableException rejected(String dependency, String reason, Exception cause) {
+        Counter.builder("dependency.calls.rejected")
+                .description("Appels sortants refusés sans être tentés (breaker ouvert, bulkhead plein)")
+                .tag("dependency", dependency)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        log.debug("Appel à {} refusé : {}", dependency, reason);
+        return new DependencyUnavailableException(dependency, reason, cause);
+    }
+
+    private static <E extends Exception> RemoteCall<Void, E> asCall(RemoteAction<E> action) {
+        return () -> {
+            action.run();
+            return null;
+        };
+    }
+}
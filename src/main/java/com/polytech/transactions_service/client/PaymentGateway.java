@@ -0,0 +1,33 @@
+package com.polytech.transactions_service.client;
+
+import com.stripe.exception.StripeException;
+
+import java.util.Map;
+
+/**
+ * Passerelle de paiement utilisée par les services (checkout, annulation, remboursement).
+ * Implémentation : StripePaymentGateway ; les tests et benchmarks utilisent une fausse passerelle
+ * en mémoire. Les erreurs restent des StripeException : leurs sous-classes distinguent
+ * refus métier et panne (voir resilience4j.circuitbreaker.instances.stripe).
+ */
+public interface PaymentGateway {
+
+    /**
+     * Paiement côté prestataire (PaymentIntent chez Stripe).
+     * failureMessage : dernière erreur de paiement (carte refusée...), null sinon.
+     */
+    record Payment(String id, String clientSecret, String status, String failureMessage) {
+    }
+
+    Payment createPayment(long amountCents, Map<String, String> metadata) throws StripeException;
+
+    Payment retrievePayment(String paymentId) throws StripeException;
+
+    void cancelPayment(String paymentId) throws StripeException;
+
+    /**
+     * Rembourse le paiement, en totalité si amountCents est null. Renvoie le statut du remboursement.
+     * idempotencyKey : même clé à chaque nouvelle tentative d'un même remboursement, rejouée par Stripe sans doublon.
+     */
+    String refund(String paymentId, Long amountCents, String idempotencyKey) throws StripeException;
+}
@@ -0,0 +1,110 @@
+package com.polytech.transactions_service.client;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpContent;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Transport HTTP du SDK Stripe sur Apache HttpClient 5 : pool de connexions keep-alive vers l'API
+ * au lieu d'une HttpURLConnection par appel (poignée de main TLS évitée sur les appels suivants).
+ * Les retries réseau restent ceux du SDK (requestWithRetries, avec clé d'idempotence) :
+ * ceux de HttpClient sont désactivés.
+ */
+public class PooledStripeHttpClient extends HttpClient implements AutoCloseable {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+
+    public PooledStripeHttpClient(int maxConnections, Duration connectTimeout, Duration timeToLive) {
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections) // Une seule route : l'API Stripe
+                .setConnPoolPolicy(PoolReusePolicy.LIFO)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setTimeToLive(TimeValue.of(timeToLive))
+                        .build())
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .disableAutomaticRetries()
+                .disableRedirectHandling()
+                .disableCookieManagement()
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+    }
+
+    public PoolingHttpClientConnectionManager connectionManager() {
+        return connectionManager;
+    }
+
+    @Override
+    public StripeResponse request(StripeRequest request) throws ApiConnectionException {
+        HttpUriRequestBase http;
+        try {
+            http = new HttpUriRequestBase(request.method().name(), request.url().toURI());
+        } catch (URISyntaxException e) {
+            throw new ApiConnectionException("URL Stripe invalide : " + request.url(), e);
+        }
+        request.headers().map().forEach((name, values) -> values.forEach(value -> http.addHeader(name, value)));
+        http.setHeader("User-Agent", buildUserAgentString());
+        http.setHeader("X-Stripe-Client-User-Agent", buildXStripeClientUserAgentString());
+        HttpContent content = request.content();
+        if (content != null) {
+            http.setEntity(new ByteArrayEntity(content.byteArrayContent(), ContentType.parse(content.contentType())));
+        }
+        // Timeout de lecture résolu par le SDK (configuration du client ou RequestOptions de l'appel)
+        Integer readTimeout = request.options().getReadTimeout();
+        if (readTimeout != null) {
+            http.setConfig(RequestConfig.custom().setResponseTimeout(Timeout.ofMilliseconds(readTimeout)).build());
+        }
+
+        try {
+            return httpClient.execute(http, response -> new StripeResponse(
+                    response.getCode(), headers(response), EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new ApiConnectionException("Erreur réseau lors de l'appel Stripe " + request.url()
+                    + " : " + e.getMessage(), e);
+        }
+    }
+
+    private static HttpHeaders headers(ClassicHttpResponse response) {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Header header : response.getHeaders()) {
+            headers.computeIfAbsent(header.getName(), k -> new ArrayList<>()).add(header.getValue());
+        }
+        return HttpHeaders.of(headers);
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
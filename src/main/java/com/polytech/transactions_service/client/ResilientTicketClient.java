@@ -0,0 +1,46 @@
+package com.polytech.transactions_service.client;
+
+import com.polytech.transactions_service.dto.TicketDto;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * TicketClient injecté partout : chaque appel Feign passe par le bulkhead et le breaker "tickets-service".
+ * Seules la lecture et la libération sont réessayées ; une réservation ou une vente répétée
+ * après un timeout pourrait tomber sur un ticket que l'on a soi-même déjà pris (409).
+ */
+@Component
+@Primary
+public class ResilientTicketClient implements TicketClient {
+
+    private final TicketClient delegate;
+    private final DependencyGuard guard;
+
+    public ResilientTicketClient(@Qualifier("ticketFeignClient") TicketClient delegate, DependencyGuard guard) {
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public TicketDto getTicketById(UUID ticketId) {
+        return guard.callIdempotent(DependencyGuard.TICKETS, () -> delegate.getTicketById(ticketId));
+    }
+
+    @Override
+    public void markTicketAsSold(UUID ticketId) {
+        guard.run(DependencyGuard.TICKETS, () -> delegate.markTicketAsSold(ticketId));
+    }
+
+    @Override
+    public void reserveTicket(UUID ticketId) {
+        guard.run(DependencyGuard.TICKETS, () -> delegate.reserveTicket(ticketId));
+    }
+
+    @Override
+    public void releaseTicket(UUID ticketId) {
+        guard.runIdempotent(DependencyGuard.TICKETS, () -> delegate.releaseTicket(ticketId));
+    }
+}
@@ -0,0 +1,29 @@
+package com.polytech.transactions_service.client;
+
+import com.polytech.transactions_service.dto.UserDto;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * UserClient injecté partout : appels sous le bulkhead et le breaker "users-service", lecture réessayée.
+ */
+@Component
+@Primary
+public class ResilientUserClient implements UserClient {
+
+    private final UserClient delegate;
+    private final DependencyGuard guard;
+
+    public ResilientUserClient(@Qualifier("userFeignClient") UserClient delegate, DependencyGuard guard) {
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public UserDto getUserById(UUID id) {
+        return guard.callIdempotent(DependencyGuard.USERS, () -> delegate.getUserById(id));
+    }
+}
@@ -0,0 +1,73 @@
+package com.polytech.transactions_service.client;
+
+import com.stripe.StripeClient;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.RefundCreateParams;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * PaymentGateway sur le StripeClient partagé (clé, timeouts et pool de connexions fixés une fois,
+ * voir StripeConfig) : plus de Stripe.apiKey global ni d'API statiques.
+ * Chaque appel passe par le bulkhead et le breaker "stripe".
+ */
+@Component
+public class StripePaymentGateway implements PaymentGateway {
+
+    private final StripeClient stripeClient;
+    private final DependencyGuard guard;
+    private final String currency;
+
+    public StripePaymentGateway(StripeClient stripeClient,
+                                DependencyGuard guard,
+                                @Value("${stripe.currency:eur}") String currency) {
+        this.stripeClient = stripeClient;
+        this.guard = guard;
+        this.currency = currency;
+    }
+
+    @Override
+    public Payment createPayment(long amountCents, Map<String, String> metadata) throws StripeException {
+        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
+                .setAmount(amountCents) // Stripe compte aussi en centimes
+                .setCurrency(currency)
+                .setAutomaticPaymentMethods(
+                        PaymentIntentCreateParams.AutomaticPaymentMethods.builder().setEnabled(true).build()
+                )
+                .putAllMetadata(metadata)
+                .build();
+        return toPayment(guard.call(DependencyGuard.STRIPE, () -> stripeClient.paymentIntents().create(params)));
+    }
+
+    @Override
+    public Payment retrievePayment(String paymentId) throws StripeException {
+        return toPayment(guard.call(DependencyGuard.STRIPE, () -> stripeClient.paymentIntents().retrieve(paymentId)));
+    }
+
+    @Override
+    public void cancelPayment(String paymentId) throws StripeException {
+        // Un seul appel : plus de retrieve préalable
+        guard.call(DependencyGuard.STRIPE, () -> stripeClient.paymentIntents().cancel(paymentId));
+    }
+
+    @Override
+    public String refund(String paymentId, Long amountCents, String idempotencyKey) throws StripeException {
+        RefundCreateParams.Builder params = RefundCreateParams.builder().setPaymentIntent(paymentId);
+        if (amountCents != null) {
+            params.setAmount(amountCents);
+        }
+        RefundCreateParams refund = params.build();
+        RequestOptions options = RequestOptions.builder().setIdempotencyKey(idempotencyKey).build();
+        return guard.call(DependencyGuard.STRIPE, () -> stripeClient.refunds().create(refund, options)).getStatus();
+    }
+
+    private static Payment toPayment(PaymentIntent intent) {
+        String failure = intent.getLastPaymentError() != null ? intent.getLastPaymentError().getMessage() : null;
+        return new Payment(intent.getId(), intent.getClientSecret(), intent.getStatus(), failure);
+    }
+}
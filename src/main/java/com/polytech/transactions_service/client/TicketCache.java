@@ -0,0 +1,72 @@
+package com.polytech.transactions_service.client;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.polytech.transactions_service.dto.TicketDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Cache local des métadonnées de tickets devant TicketClient.getTicketById.
+ * Borné en taille, avec TTL, invalidé à chaque changement de statut connu (réservation,
+ * libération, vente) et par les événements Kafka (voir TicketCacheInvalidationListener).
+ * Métriques hit/miss exposées sous cache.gets{cache="tickets"}.
+ */
+@Component
+public class TicketCache {
+
+    private final TicketClient ticketClient;
+    private final AsyncCache<UUID, TicketDto> tickets;
+
+    public TicketCache(TicketClient ticketClient,
+                       MeterRegistry meterRegistry,
+                       @Value("${tickets.cache.max-size:10000}") long maxSize,
+                       @Value("${tickets.cache.ttl:30s}") Duration ttl) {
+        this.ticketClient = ticketClient;
+        this.tickets = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, tickets, "tickets");
+    }
+
+    /**
+     * Ticket depuis le cache, ou depuis tickets-service en cas d'absence.
+     * Les appels concurrents pour un même ticket absent ne déclenchent qu'un seul appel Feign.
+     * Les exceptions Feign (ex: NotFound) sont propagées telles quelles et rien n'est mis en cache.
+     * L'appel Feign est fait hors du verrou de la map (compute) : un thread virtuel qui attend
+     * tickets-service n'épingle pas son thread porteur, les autres appelants attendent le futur.
+     */
+    public TicketDto getTicket(UUID ticketId) {
+        CompletableFuture<TicketDto> loading = new CompletableFuture<>();
+        CompletableFuture<TicketDto> ticket = tickets.get(ticketId, (id, executor) -> loading);
+        if (ticket == loading) {
+            try {
+                loading.complete(ticketClient.getTicketById(ticketId));
+            } catch (RuntimeException e) {
+                loading.completeExceptionally(e); // Retiré du cache par Caffeine
+                throw e;
+            }
+        }
+        try {
+            return ticket.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void invalidate(UUID ticketId) {
+        tickets.synchronous().invalidate(ticketId);
+    }
+}
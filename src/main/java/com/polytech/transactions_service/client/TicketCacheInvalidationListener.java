@@ -0,0 +1,79 @@
+package com.polytech.transactions_service.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polytech.transactions_service.event.EventCodec;
+import com.polytech.transactions_service.event.TicketSoldEvent;
+import com.polytech.transactions_service.event.TransactionRefundedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.ContainerPostProcessor;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Invalide le TicketCache à la réception d'un événement portant un "ticketId".
+ * Lit le JSON (tickets-service, topics non migrés) comme l'encodage binaire de EventCodec.
+ * Groupe de consommateurs propre à chaque instance : toutes les instances reçoivent tous les messages.
+ * Aucun offset n'est jamais commité (auto-commit coupé, ack manuel jamais donné) : sans offsets, le coordinateur
+ * supprime le groupe dès que l'instance s'arrête, les groupes ne s'accumulent pas d'un déploiement à l'autre.
+ * Au démarrage la lecture part de la fin des topics : le cache local est vide, rien à rattraper.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TicketCacheInvalidationListener {
+
+    private final TicketCache ticketCache;
+    private final ObjectMapper objectMapper;
+
+    // AckMode.MANUAL sans Acknowledgment dans la signature : le conteneur ne commite jamais d'offset
+    @Bean
+    static ContainerPostProcessor<String, byte[], AbstractMessageListenerContainer<String, byte[]>> ticketCacheWithoutCommits() {
+        return container -> container.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+    }
+
+    @KafkaListener(
+            topics = "#{'${tickets.cache.invalidation-topics}'.split(',')}",
+            groupId = "${spring.application.name}-ticket-cache-${tickets.cache.instance-id}",
+            containerPostProcessor = "ticketCacheWithoutCommits",
+            properties = {
+                    "auto.offset.reset=latest",
+                    "enable.auto.commit=false",
+                    "value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer"
+            })
+    public void onTicketEvent(byte[] payload,
+                              @Header(name = EventCodec.CONTENT_TYPE_HEADER, required = false) byte[] contentType) {
+        try {
+            UUID ticketId = contentType != null && EventCodec.isBinary(new String(contentType, StandardCharsets.UTF_8))
+                    ? binaryTicketId(payload)
+                    : jsonTicketId(payload);
+            if (ticketId != null) {
+                ticketCache.invalidate(ticketId);
+            }
+        } catch (Exception e) {
+            log.warn("Événement ticket illisible, ignoré pour l'invalidation du cache ({} octets)", payload.length, e);
+        }
+    }
+
+    private static UUID binaryTicketId(byte[] payload) {
+        return switch (EventCodec.decodeBinary(payload)) {
+            case TicketSoldEvent e -> e.getTicketId();
+            case TransactionRefundedEvent e -> e.getTicketId();
+            default -> null;
+        };
+    }
+
+    private UUID jsonTicketId(byte[] payload) throws IOException {
+        JsonNode ticketId = objectMapper.readTree(payload).get("ticketId");
+        return ticketId != null && !ticketId.isNull() ? UUID.fromString(ticketId.asText()) : null;
+    }
+}
@@ -8,8 +8,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 
 import java.util.UUID;
 
-// "ticket-service" est le nom enregistré dans Eureka
-@FeignClient(name = "tickets-service")
+// "ticket-service" est le nom enregistré dans Eureka.
+// Client brut : les services injectent ResilientTicketClient (@Primary), qui l'appelle sous DependencyGuard
+@FeignClient(name = "tickets-service", qualifiers = "ticketFeignClient", primary = false)
 public interface TicketClient {
     
     // Récupérer les infos d'un ticket (Prix, Statut)
@@ -6,7 +6,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import java.util.UUID;
 
-@FeignClient(name = "eventy-users-service")
+// Client brut : les services injectent ResilientUserClient (@Primary), qui l'appelle sous DependencyGuard
+@FeignClient(name = "eventy-users-service", qualifiers = "userFeignClient", primary = false)
 public interface UserClient {
     @GetMapping("/users/{id}")
     UserDto getUserById(@PathVariable("id") UUID id);
@@ -0,0 +1,102 @@
+package com.polytech.transactions_service.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Cache des JWT déjà vérifiés devant le décodeur Nimbus.
+ * Un client rejoue le même jeton pendant toute sa durée de vie : seule la première requête paie
+ * la vérification de signature et les validateurs, les suivantes se limitent à un SHA-256 et une lecture de map.
+ * Clé : empreinte SHA-256 du jeton (le jeton lui-même n'est pas conservé comme clé).
+ * Une entrée expire à l'exp du jeton, et au plus tard après max-ttl. Les jetons refusés ne sont pas mis en cache.
+ * Métriques hit/miss exposées sous cache.gets{cache="jwt"}.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<TokenHash, Jwt> verified;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maxSize, Duration maxTtl, MeterRegistry meterRegistry) {
+        this(delegate, maxSize, maxTtl, Ticker.systemTicker());
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt");
+        }
+    }
+
+    CachingJwtDecoder(JwtDecoder delegate, long maxSize, Duration maxTtl, Ticker ticker) {
+        this.delegate = delegate;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry(maxTtl))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        TokenHash key = TokenHash.of(token);
+        Jwt jwt = verified.getIfPresent(key);
+        if (jwt == null) {
+            // Deux requêtes simultanées avec un nouveau jeton le vérifient chacune : pas de verrou sur le chemin chaud
+            jwt = delegate.decode(token);
+            verified.put(key, jwt);
+        }
+        return jwt;
+    }
+
+    private record TokenHash(long h0, long h1, long h2, long h3) {
+
+        static TokenHash of(String token) {
+            ByteBuffer digest;
+            try {
+                digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                        .digest(token.getBytes(StandardCharsets.US_ASCII)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 indisponible", e);
+            }
+            return new TokenHash(digest.getLong(), digest.getLong(), digest.getLong(), digest.getLong());
+        }
+    }
+
+    // Durée de vie d'une entrée : jusqu'à l'exp du jeton, bornée par maxTtl
+    private record UntilTokenExpiry(Duration maxTtl) implements Expiry<TokenHash, Jwt> {
+
+        @Override
+        public long expireAfterCreate(TokenHash key, Jwt jwt, long currentTime) {
+            Instant expiresAt = jwt.getExpiresAt();
+            if (expiresAt == null) {
+                return maxTtl.toNanos();
+            }
+            Duration remaining = Duration.between(Instant.now(), expiresAt);
+            if (remaining.isNegative()) {
+                return 0;
+            }
+            return Math.min(remaining.toNanos(), maxTtl.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenHash key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenHash key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
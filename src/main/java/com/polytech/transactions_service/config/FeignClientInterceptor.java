@@ -2,24 +2,35 @@ package com.polytech.transactions_service.config;
 
 import feign.RequestInterceptor;
 import feign.RequestTemplate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Component;
 
+/**
+ * Propage le JWT de la requête entrante vers les services appelés.
+ * Hors requête utilisateur (backfill, sweeper, webhooks) : jeton du compte de service (ServiceTokenProvider),
+ * jamais celui d'un utilisateur capturé plus tôt.
+ * Appelé à chaque requête Feign : simple concaténation, pas de String.format.
+ */
 @Component
+@RequiredArgsConstructor
 public class FeignClientInterceptor implements RequestInterceptor {
 
-    private static final String AUTHORIZATION_HEADER = "Authorization";
-    private static final String BEARER_TOKEN_TYPE = "Bearer";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final ServiceTokenProvider serviceTokenProvider;
 
     @Override
     public void apply(RequestTemplate template) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-        if (authentication instanceof JwtAuthenticationToken) {
-            JwtAuthenticationToken jwtToken = (JwtAuthenticationToken) authentication;
-            template.header(AUTHORIZATION_HEADER, String.format("%s %s", BEARER_TOKEN_TYPE, jwtToken.getToken().getTokenValue()));
+        if (authentication instanceof JwtAuthenticationToken jwtToken) {
+            template.header(HttpHeaders.AUTHORIZATION, BEARER_PREFIX + jwtToken.getToken().getTokenValue());
+            return;
         }
+        serviceTokenProvider.accessToken()
+                .ifPresent(token -> template.header(HttpHeaders.AUTHORIZATION, BEARER_PREFIX + token));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.polytech.transactions_service.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Client HTTP des appels Feign : Apache HttpClient 5 (feign-hc5), pool de connexions keep-alive
+ * créé par Spring Cloud OpenFeign (limites sous spring.cloud.openfeign.httpclient.*).
+ * Occupation du pool publiée sous httpcomponents.httpclient.pool.*{httpclient="feign"}.
+ */
+@Configuration
+public class FeignHttpClientConfig {
+
+    @Bean
+    public MeterBinder feignConnectionPoolMetrics(ObjectProvider<HttpClientConnectionManager> connectionManager) {
+        return registry -> {
+            if (connectionManager.getIfAvailable() instanceof PoolingHttpClientConnectionManager pool) {
+                new PoolingHttpClientConnectionManagerMetricsBinder(pool, "feign").bindTo(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.polytech.transactions_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Threads des pools internes qui font des appels bloquants (Feign, Stripe, JDBC).
+ * Suit spring.threads.virtual.enabled comme Tomcat, @Scheduled et les listeners Kafka :
+ * en mode virtuel, la taille des pools ne sert plus qu'à borner la concurrence vers les services distants.
+ */
+@Component
+public class IoThreadFactory {
+
+    private final boolean virtualThreads;
+
+    public IoThreadFactory(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public ThreadFactory named(String prefix) {
+        return virtualThreads
+                ? Thread.ofVirtual().name(prefix, 0).factory()
+                : new CustomizableThreadFactory(prefix);
+    }
+
+    public boolean isVirtual() {
+        return virtualThreads;
+    }
+}
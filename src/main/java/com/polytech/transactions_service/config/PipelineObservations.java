@@ -0,0 +1,77 @@
+package com.polytech.transactions_service.config;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Observations des pipelines checkout / confirmation / remboursement.
+ * Un pipeline produit le timer "transactions.pipeline" et un span parent ; chacune de ses étapes
+ * (appel tickets-service, Stripe, écriture en base, outbox) le timer "transactions.stage" et un span enfant.
+ * Tags des métriques : pipeline, stage, error. L'ID de transaction, de haute cardinalité,
+ * n'est porté que par les spans.
+ */
+@Component
+public class PipelineObservations {
+
+    public static final String PIPELINE = "transactions.pipeline";
+    public static final String STAGE = "transactions.stage";
+
+    private static final String TRANSACTION_ID = "transaction.id";
+
+    private final ObservationRegistry observationRegistry;
+
+    public PipelineObservations(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    // transactionId peut être null (checkout : l'ID n'existe qu'après l'insertion, voir tagTransaction)
+    public <T, E extends Throwable> T pipeline(String pipeline, UUID transactionId,
+                                               Observation.CheckedCallable<T, E> work) throws E {
+        return pipelineObservation(pipeline, transactionId).observeChecked(work);
+    }
+
+    public <E extends Throwable> void runPipeline(String pipeline, UUID transactionId,
+                                                  Observation.CheckedRunnable<E> work) throws E {
+        pipelineObservation(pipeline, transactionId).observeChecked(work);
+    }
+
+    public <T, E extends Throwable> T stage(String pipeline, String stage,
+                                            Observation.CheckedCallable<T, E> work) throws E {
+        return stageObservation(pipeline, stage).observeChecked(work);
+    }
+
+    public <E extends Throwable> void runStage(String pipeline, String stage,
+                                               Observation.CheckedRunnable<E> work) throws E {
+        stageObservation(pipeline, stage).observeChecked(work);
+    }
+
+    /**
+     * Rattache l'ID de transaction au pipeline en cours, dès qu'il est connu.
+     */
+    public void tagTransaction(UUID transactionId) {
+        Observation current = observationRegistry.getCurrentObservation();
+        if (current != null && transactionId != null) {
+            current.highCardinalityKeyValue(TRANSACTION_ID, transactionId.toString());
+        }
+    }
+
+    private Observation pipelineObservation(String pipeline, UUID transactionId) {
+        Observation observation = Observation.createNotStarted(PIPELINE, observationRegistry)
+                .contextualName(pipeline)
+                .lowCardinalityKeyValue("pipeline", pipeline);
+        if (transactionId != null) {
+            observation.highCardinalityKeyValue(TRANSACTION_ID, transactionId.toString());
+        }
+        return observation;
+    }
+
+    private Observation stageObservation(String pipeline, String stage) {
+        return Observation.createNotStarted(STAGE, observationRegistry)
+                .contextualName(pipeline + " " + stage)
+                .lowCardinalityKeyValue("pipeline", pipeline)
+                .lowCardinalityKeyValue("stage", stage);
+    }
+}
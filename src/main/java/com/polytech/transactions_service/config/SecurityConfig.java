@@ -1,6 +1,20 @@
 package com.polytech.transactions_service.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.info.InfoEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -10,16 +24,20 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.Collections;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Configuration
 @EnableWebSecurity
@@ -32,59 +50,109 @@ public class SecurityConfig {
     @Value("${keycloak.realm:eventy-realm}")
     private String realm;
 
+    @Value("${keycloak.jwt-cache.max-size:10000}")
+    private long jwtCacheMaxSize = 10_000;
+
+    // Borne la durée pendant laquelle un jeton déjà vérifié est accepté sans nouvelle vérification
+    @Value("${keycloak.jwt-cache.max-ttl:5m}")
+    private Duration jwtCacheMaxTtl = Duration.ofMinutes(5);
+
+    @Value("${keycloak.jwks.ttl:15m}")
+    private Duration jwksTtl = Duration.ofMinutes(15);
+
+    @Value("${keycloak.jwks.refresh-ahead:1m}")
+    private Duration jwksRefreshAhead = Duration.ofMinutes(1);
+
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtDecoder jwtDecoder) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/actuator/**", "/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        // Sondes anonymes ; métriques et autres endpoints de management réservés aux admins
+                        .requestMatchers(EndpointRequest.to(HealthEndpoint.class, InfoEndpoint.class)).permitAll()
+                        .requestMatchers(EndpointRequest.toAnyEndpoint()).hasRole("ADMIN")
+                        .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        // Webhooks Stripe : authentifiés par leur signature, pas par un JWT
+                        .requestMatchers("/webhooks/stripe").permitAll()
                         // Route Admin pour voir toutes les transactions
                         .requestMatchers("/transactions/admin/**").hasRole("ADMIN")
+                        // Jobs de maintenance (backfill des vendorId)
+                        .requestMatchers("/transactions/maintenance/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
                         .jwt(jwt -> jwt
                                 .jwtAuthenticationConverter(jwtAuthenticationConverter())
-                                .decoder(jwtDecoder())
+                                .decoder(jwtDecoder)
                         )
                 );
         return http.build();
     }
 
+    /**
+     * Décodeur Nimbus derrière un cache des jetons déjà vérifiés (voir CachingJwtDecoder).
+     * Clés JWKS de Keycloak en cache, rafraîchies en tâche de fond avant leur expiration :
+     * aucune requête ne paie l'aller-retour vers Keycloak, sauf pour un kid inconnu (rotation des clés).
+     */
     @Bean
-    public JwtDecoder jwtDecoder() {
+    public JwtDecoder jwtDecoder(ObjectProvider<MeterRegistry> meterRegistry) throws MalformedURLException {
         String jwkSetUri = String.format("%s/realms/%s/protocol/openid-connect/certs", keycloakServerUrl, realm);
-        return NimbusJwtDecoder.withJwkSetUri(jwkSetUri).build();
+        JWKSource<SecurityContext> jwkSource = JWKSourceBuilder
+                .create(URI.create(jwkSetUri).toURL(), new DefaultResourceRetriever(1000, 2000, 512 * 1024))
+                .cache(jwksTtl.toMillis(), 2000)
+                .refreshAheadCache(jwksRefreshAhead.toMillis(), true)
+                .rateLimited(true)
+                .build();
+
+        // Même configuration que NimbusJwtDecoder.withJwkSetUri : les claims sont validés par Spring (exp, nbf, typ)
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSTypeVerifier((type, context) -> {
+        });
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+
+        return new CachingJwtDecoder(new NimbusJwtDecoder(jwtProcessor), jwtCacheMaxSize, jwtCacheMaxTtl,
+                meterRegistry.getIfAvailable());
     }
 
+    /**
+     * Autorités calculées une seule fois par instance de Jwt : les jetons servis par CachingJwtDecoder
+     * sont les mêmes instances d'une requête à l'autre, la conversion se réduit alors à une lecture de map.
+     * Clés faibles (identité) : l'entrée disparaît avec le Jwt, à son éviction du cache de jetons.
+     */
     @Bean
     public JwtAuthenticationConverter jwtAuthenticationConverter() {
         JwtGrantedAuthoritiesConverter defaultConverter = new JwtGrantedAuthoritiesConverter();
+        Cache<Jwt, Collection<GrantedAuthority>> mapped = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumSize(jwtCacheMaxSize)
+                .build();
         JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
 
-        converter.setJwtGrantedAuthoritiesConverter(jwt -> {
-            Collection<GrantedAuthority> authorities = defaultConverter.convert(jwt);
+        converter.setJwtGrantedAuthoritiesConverter(jwt -> mapped.get(jwt, token -> {
+            Collection<GrantedAuthority> authorities = new ArrayList<>(defaultConverter.convert(token));
 
             // Rôles standards
-            if (jwt.hasClaim("realm_access")) {
-                Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
+            if (token.hasClaim("realm_access")) {
+                Map<String, Object> realmAccess = token.getClaimAsMap("realm_access");
                 if (realmAccess.get("roles") instanceof Collection<?> roles) {
-                    authorities.addAll(roles.stream()
-                            .map(role -> new SimpleGrantedAuthority("ROLE_" + role.toString().toUpperCase()))
-                            .collect(Collectors.toList()));
+                    for (Object role : roles) {
+                        authorities.add(new SimpleGrantedAuthority("ROLE_" + role.toString().toUpperCase()));
+                    }
                 }
             }
 
             // Attribut personnalisé app_role
-            if (jwt.hasClaim("app_role")) {
-                String appRole = jwt.getClaimAsString("app_role");
+            if (token.hasClaim("app_role")) {
+                String appRole = token.getClaimAsString("app_role");
                 if (appRole != null && !appRole.trim().isEmpty()) {
                     authorities.add(new SimpleGrantedAuthority("ROLE_" + appRole.toUpperCase()));
                 }
             }
-            return authorities;
-        });
+            return Collections.unmodifiableCollection(authorities);
+        }));
         return converter;
     }
-}
\ No newline at end of file
+}
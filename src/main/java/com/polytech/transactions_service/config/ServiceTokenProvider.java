@@ -0,0 +1,63 @@
+package com.polytech.transactions_service.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.client.AuthorizedClientServiceOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.InMemoryOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Jeton du compte de service (client_credentials Keycloak) pour les appels sortants faits hors requête utilisateur.
+ * Gardé en mémoire et redemandé peu avant son expiration par le gestionnaire Spring Security.
+ * Sans client-secret configuré, aucun jeton n'est demandé.
+ */
+@Component
+@Slf4j
+public class ServiceTokenProvider {
+
+    private static final String REGISTRATION_ID = "transactions-service";
+
+    private final String clientId;
+    private final OAuth2AuthorizedClientManager clientManager;
+
+    public ServiceTokenProvider(@Value("${keycloak.server-url:http://keycloak:8080}") String serverUrl,
+                                @Value("${keycloak.realm:eventy-realm}") String realm,
+                                @Value("${keycloak.service-account.client-id:transactions-service}") String clientId,
+                                @Value("${keycloak.service-account.client-secret:}") String clientSecret) {
+        this.clientId = clientId;
+        if (clientSecret == null || clientSecret.isBlank()) {
+            log.warn("keycloak.service-account.client-secret absent : appels de service sans jeton");
+            this.clientManager = null;
+            return;
+        }
+        ClientRegistration registration = ClientRegistration.withRegistrationId(REGISTRATION_ID)
+                .clientId(clientId)
+                .clientSecret(clientSecret)
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .tokenUri(serverUrl + "/realms/" + realm + "/protocol/openid-connect/token")
+                .build();
+        InMemoryClientRegistrationRepository registrations = new InMemoryClientRegistrationRepository(registration);
+        AuthorizedClientServiceOAuth2AuthorizedClientManager manager = new AuthorizedClientServiceOAuth2AuthorizedClientManager(
+                registrations, new InMemoryOAuth2AuthorizedClientService(registrations));
+        manager.setAuthorizedClientProvider(OAuth2AuthorizedClientProviderBuilder.builder().clientCredentials().build());
+        this.clientManager = manager;
+    }
+
+    public Optional<String> accessToken() {
+        if (clientManager == null) {
+            return Optional.empty();
+        }
+        OAuth2AuthorizedClient client = clientManager.authorize(
+                OAuth2AuthorizeRequest.withClientRegistrationId(REGISTRATION_ID).principal(clientId).build());
+        return client == null ? Optional.empty() : Optional.of(client.getAccessToken().getTokenValue());
+    }
+}
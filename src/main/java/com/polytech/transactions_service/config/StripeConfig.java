@@ -0,0 +1,119 @@
+package com.polytech.transactions_service.config;
+
+import com.polytech.transactions_service.client.PooledStripeHttpClient;
+import com.stripe.Stripe;
+import com.stripe.StripeClient;
+import com.stripe.net.LiveStripeResponseGetter;
+import com.stripe.net.StripeResponseGetterOptions;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.time.Duration;
+
+/**
+ * Client Stripe unique, thread-safe, partagé par tous les appels : clé, timeouts et retries réseau
+ * configurés une fois (stripe.*), transport HTTP poolé (PooledStripeHttpClient).
+ * Par défaut le SDK attend 30 s la connexion et 80 s la réponse : un Stripe lent retiendrait
+ * les threads du checkout bien au-delà du timeout du client.
+ * Occupation du pool publiée sous httpcomponents.httpclient.pool.*{httpclient="stripe"}.
+ */
+@Configuration
+public class StripeConfig {
+
+    @Bean(destroyMethod = "close")
+    public PooledStripeHttpClient stripeHttpClient(@Value("${stripe.max-connections:32}") int maxConnections,
+                                                   @Value("${stripe.connect-timeout:2s}") Duration connectTimeout,
+                                                   @Value("${stripe.connection-ttl:5m}") Duration connectionTtl) {
+        return new PooledStripeHttpClient(maxConnections, connectTimeout, connectionTtl);
+    }
+
+    @Bean
+    public StripeClient stripeClient(PooledStripeHttpClient stripeHttpClient,
+                                     @Value("${stripe.api-key}") String apiKey,
+                                     @Value("${stripe.api-base:" + Stripe.LIVE_API_BASE + "}") String apiBase,
+                                     @Value("${stripe.connect-timeout:2s}") Duration connectTimeout,
+                                     @Value("${stripe.read-timeout:10s}") Duration readTimeout,
+                                     @Value("${stripe.max-network-retries:1}") int maxNetworkRetries) {
+        ClientOptions options = new ClientOptions(apiKey, apiBase,
+                (int) connectTimeout.toMillis(), (int) readTimeout.toMillis(), maxNetworkRetries);
+        return new StripeClient(new LiveStripeResponseGetter(options, stripeHttpClient));
+    }
+
+    @Bean
+    public MeterBinder stripeConnectionPoolMetrics(PooledStripeHttpClient stripeHttpClient) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(stripeHttpClient.connectionManager(), "stripe");
+    }
+
+    // StripeClient.builder() ne permet pas de fournir le transport HTTP : options passées directement
+    private static final class ClientOptions extends StripeResponseGetterOptions {
+
+        private final String apiKey;
+        private final String apiBase;
+        private final int connectTimeout;
+        private final int readTimeout;
+        private final int maxNetworkRetries;
+
+        ClientOptions(String apiKey, String apiBase, int connectTimeout, int readTimeout, int maxNetworkRetries) {
+            this.apiKey = apiKey;
+            this.apiBase = apiBase;
+            this.connectTimeout = connectTimeout;
+            this.readTimeout = readTimeout;
+            this.maxNetworkRetries = maxNetworkRetries;
+        }
+
+        @Override
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        @Override
+        public String getClientId() {
+            return null;
+        }
+
+        @Override
+        public int getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        @Override
+        public Proxy getConnectionProxy() {
+            return null;
+        }
+
+        @Override
+        public int getMaxNetworkRetries() {
+            return maxNetworkRetries;
+        }
+
+        @Override
+        public PasswordAuthentication getProxyCredential() {
+            return null;
+        }
+
+        @Override
+        public String getApiBase() {
+            return apiBase;
+        }
+
+        @Override
+        public String getFilesBase() {
+            return Stripe.UPLOAD_API_BASE;
+        }
+
+        @Override
+        public String getConnectBase() {
+            return Stripe.CONNECT_API_BASE;
+        }
+
+        @Override
+        public int getReadTimeout() {
+            return readTimeout;
+        }
+    }
+}
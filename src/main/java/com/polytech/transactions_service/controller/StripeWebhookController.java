@@ -0,0 +1,29 @@
+package com.polytech.transactions_service.controller;
+
+import com.polytech.transactions_service.service.StripeWebhookService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/webhooks/stripe")
+@RequiredArgsConstructor
+public class StripeWebhookController {
+
+    private final StripeWebhookService stripeWebhookService;
+
+    /**
+     * Point d'entrée des événements Stripe.
+     * Répond immédiatement : le traitement se fait en arrière-plan (503 si la file est pleine, Stripe réessaiera).
+     */
+    @PostMapping
+    public ResponseEntity<Void> receive(@RequestBody String payload,
+                                        @RequestHeader(value = "Stripe-Signature", required = false) String signature) {
+        StripeWebhookService.Outcome outcome = stripeWebhookService.receive(payload, signature);
+        if (outcome == StripeWebhookService.Outcome.BUSY) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+}
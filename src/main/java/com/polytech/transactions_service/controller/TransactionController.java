@@ -1,52 +1,132 @@
 package com.polytech.transactions_service.controller;
 
+import com.polytech.transactions_service.dto.BackfillStatus;
+import com.polytech.transactions_service.dto.CheckoutResult;
+import com.polytech.transactions_service.dto.CreateOrderRequest;
 import com.polytech.transactions_service.dto.CreateTransactionRequest;
+import com.polytech.transactions_service.dto.CursorPage;
+import com.polytech.transactions_service.dto.ExportFormat;
+import com.polytech.transactions_service.dto.OrderCheckoutResult;
+import com.polytech.transactions_service.dto.PayoutRunResult;
+import com.polytech.transactions_service.dto.RollupRebuildResult;
+import com.polytech.transactions_service.dto.SalesSummaryDto;
+import com.polytech.transactions_service.dto.TransactionSummaryDto;
+import com.polytech.transactions_service.dto.VendorBalanceDto;
+import com.polytech.transactions_service.model.FeeRule;
+import com.polytech.transactions_service.model.LedgerEntry;
 import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.enums.TransactionStatus;
+import com.polytech.transactions_service.service.FeeScheduleService;
+import com.polytech.transactions_service.service.IdempotencyService;
+import com.polytech.transactions_service.service.LedgerService;
+import com.polytech.transactions_service.service.OrderService;
+import com.polytech.transactions_service.service.SalesRollupService;
+import com.polytech.transactions_service.service.TransactionExportService;
 import com.polytech.transactions_service.service.TransactionService;
+import com.polytech.transactions_service.service.VendorBackfillJob;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.HashMap;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/transactions")
 @RequiredArgsConstructor
 public class TransactionController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_SUMMARY_DAYS = 366;
+
     private final TransactionService transactionService;
+    private final TransactionExportService transactionExportService;
+    private final VendorBackfillJob vendorBackfillJob;
+    private final IdempotencyService idempotencyService;
+    private final OrderService orderService;
+    private final SalesRollupService salesRollupService;
+    private final LedgerService ledgerService;
+    private final FeeScheduleService feeScheduleService;
 
     /**
      * Initier un achat.
      * Retourne la transaction ET le clientSecret Stripe nécessaire au front.
+     * Avec un en-tête Idempotency-Key, les nouvelles tentatives du client rejouent la même transaction
+     * (état courant, clientSecret relu depuis le cache ou Stripe).
      */
     @PostMapping
-    public ResponseEntity<Map<String, Object>> createTransaction(
+    public ResponseEntity<?> createTransaction(
             @RequestBody CreateTransactionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal Jwt principal) {
 
         String buyerId = principal.getSubject();
 
-        // 1. Initier la transaction (Création en base + Création PaymentIntent Stripe)
-        Transaction tx = transactionService.createTransaction(buyerId, request.getTicketId());
+        // Création en base + Création PaymentIntent Stripe (le clientSecret est renvoyé directement)
+        Supplier<CheckoutResult> checkout = () -> transactionService.createTransaction(buyerId, request.getTicketId());
+        if (idempotencyKey == null) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(checkout.get());
+        }
+        return idempotencyService.execute(buyerId, idempotencyKey, request, checkout,
+                CheckoutResult::getTransactionId, id -> transactionService.replayCheckout(id, buyerId));
+    }
+
+    /**
+     * Checkout panier : réserve tous les tickets (tout ou rien) et renvoie un seul clientSecret.
+     * Accepte aussi un en-tête Idempotency-Key.
+     */
+    @PostMapping("/orders")
+    public ResponseEntity<?> createOrder(
+            @RequestBody CreateOrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @AuthenticationPrincipal Jwt principal) {
+
+        String buyerId = principal.getSubject();
+        Supplier<OrderCheckoutResult> checkout = () -> orderService.createOrder(buyerId, request.getTicketIds());
+        if (idempotencyKey == null) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(checkout.get());
+        }
+        return idempotencyService.execute(buyerId, idempotencyKey, request, checkout,
+                OrderCheckoutResult::getOrderId, id -> orderService.replayOrder(id, buyerId));
+    }
 
-        // 2. Récupérer le clientSecret Stripe via le service
-        // (Le PaymentIntent ID est stocké dans tx.getPaymentToken())
-        String clientSecret = transactionService.getStripeClientSecret(tx.getPaymentToken());
+    @PostMapping("/orders/{orderId}/confirm")
+    public ResponseEntity<List<Transaction>> confirmOrder(@PathVariable UUID orderId,
+                                                          @AuthenticationPrincipal Jwt principal) {
+        return ResponseEntity.ok(orderService.completeOrder(orderId, principal.getSubject()));
+    }
 
-        // 3. Construire la réponse composite
-        Map<String, Object> response = new HashMap<>();
-        response.put("transaction", tx);            // Données métier (montant, dates...)
-        response.put("transactionId", tx.getId());  // ID pratique pour le front
-        response.put("clientSecret", clientSecret); // LA clé pour Stripe React Native
+    @PostMapping("/orders/{orderId}/cancel")
+    public ResponseEntity<Void> cancelOrder(@PathVariable UUID orderId, @AuthenticationPrincipal Jwt principal) {
+        orderService.cancelOrder(orderId, principal.getSubject());
+        return ResponseEntity.ok().build();
+    }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    // Remboursement réservé aux administrateurs (/transactions/admin/**), quelle que soit la commande
+    @PostMapping("/admin/orders/{orderId}/refund")
+    public ResponseEntity<Void> refundOrder(@PathVariable UUID orderId) {
+        orderService.refundOrder(orderId);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Reprendre un checkout en cours (clientSecret servi depuis le cache local).
+     */
+    @GetMapping("/{id}/checkout")
+    public ResponseEntity<CheckoutResult> resumeCheckout(@PathVariable UUID id,
+                                                         @AuthenticationPrincipal Jwt principal) {
+        return ResponseEntity.ok(transactionService.resumeCheckout(id, principal.getSubject()));
     }
 
     /**
@@ -62,19 +142,71 @@ public class TransactionController {
 
     /**
      * Obtenir l'historique de l'utilisateur connecté.
+     * Paginé par curseur : renvoyer "nextCursor" pour obtenir la page suivante.
      */
     @GetMapping("/history")
-    public ResponseEntity<List<Transaction>> getMyHistory(@AuthenticationPrincipal Jwt principal) {
+    public ResponseEntity<CursorPage<TransactionSummaryDto>> getMyHistory(
+            @AuthenticationPrincipal Jwt principal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
         UUID userId = UUID.fromString(principal.getSubject());
-        return ResponseEntity.ok(transactionService.getUserHistory(userId));
+        return ResponseEntity.ok(transactionService.getUserHistory(userId, cursor, clampPageSize(size)));
     }
 
     @GetMapping("/sales")
-    public ResponseEntity<List<Transaction>> getMySales(@AuthenticationPrincipal Jwt principal) {
+    public ResponseEntity<CursorPage<TransactionSummaryDto>> getMySales(
+            @AuthenticationPrincipal Jwt principal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
         UUID userId = UUID.fromString(principal.getSubject());
-        return ResponseEntity.ok(transactionService.getUserSales(userId));
+        return ResponseEntity.ok(transactionService.getUserSales(userId, cursor, clampPageSize(size)));
     }
     
+    /**
+     * Résumé des ventes du vendeur connecté, jour par jour (lu dans les rollups, pas dans transactions).
+     * Par défaut : les 30 derniers jours.
+     */
+    @GetMapping("/sales/summary")
+    public ResponseEntity<SalesSummaryDto> getMySalesSummary(
+            @AuthenticationPrincipal Jwt principal,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        UUID userId = UUID.fromString(principal.getSubject());
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        checkSummaryRange(start, end);
+        return ResponseEntity.ok(salesRollupService.getVendorSummary(userId, start, end));
+    }
+
+    /**
+     * Solde dû au vendeur connecté (une seule ligne lue, pas d'agrégation).
+     */
+    @GetMapping("/ledger/balance")
+    public ResponseEntity<VendorBalanceDto> getMyBalance(@AuthenticationPrincipal Jwt principal) {
+        UUID userId = UUID.fromString(principal.getSubject());
+        return ResponseEntity.ok(ledgerService.getBalance(userId));
+    }
+
+    @GetMapping("/ledger/entries")
+    public ResponseEntity<CursorPage<LedgerEntry>> getMyLedgerEntries(
+            @AuthenticationPrincipal Jwt principal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        UUID userId = UUID.fromString(principal.getSubject());
+        return ResponseEntity.ok(ledgerService.getEntries(userId, cursor, clampPageSize(size)));
+    }
+
+    // Relevé complet en NDJSON, écrit en streaming
+    @GetMapping("/ledger/entries/export")
+    public ResponseEntity<StreamingResponseBody> exportMyLedgerEntries(@AuthenticationPrincipal Jwt principal) {
+        UUID userId = UUID.fromString(principal.getSubject());
+        StreamingResponseBody body = out -> ledgerService.exportEntries(userId, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"ledger.ndjson\"")
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Transaction> getById(@PathVariable UUID id) {
         return ResponseEntity.ok(transactionService.getTransaction(id));
@@ -88,6 +220,68 @@ public class TransactionController {
         return ResponseEntity.ok(transactionService.getAllTransactions());
     }
 
+    /**
+     * Export complet en streaming (NDJSON ou CSV), filtres appliqués en base.
+     * GET /transactions/admin/export?format=CSV&from=2025-01-01T00:00:00&status=COMPLETED
+     */
+    @GetMapping("/admin/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) TransactionStatus status) {
+        StreamingResponseBody body = out -> transactionExportService.export(format, from, to, status, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions." + format.getExtension() + "\"")
+                .body(body);
+    }
+
+    @GetMapping("/admin/events/{eventId}/summary")
+    public ResponseEntity<SalesSummaryDto> getEventSummary(
+            @PathVariable UUID eventId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        checkSummaryRange(start, end);
+        return ResponseEntity.ok(salesRollupService.getEventSummary(eventId, start, end));
+    }
+
+    /**
+     * Recalcule les rollups de ventes depuis la table transactions (après import ou correction manuelle).
+     */
+    @PostMapping("/admin/rollups/rebuild")
+    public ResponseEntity<RollupRebuildResult> rebuildRollups() {
+        return ResponseEntity.ok(salesRollupService.rebuild());
+    }
+
+    /**
+     * Crée les versements des vendeurs dont le solde atteint le minimum (ledger.payout.min-amount-cents par défaut).
+     */
+    @PostMapping("/admin/payouts/run")
+    public ResponseEntity<PayoutRunResult> runPayouts(@RequestParam(required = false) Long minAmountCents) {
+        return ResponseEntity.ok(ledgerService.runPayouts(minAmountCents));
+    }
+
+    // Barème des commissions : les modifications sont visibles immédiatement sur cette instance,
+    // au prochain rafraîchissement (fees.refresh-interval-ms) sur les autres
+    @GetMapping("/admin/fees/rules")
+    public ResponseEntity<List<FeeRule>> getFeeRules() {
+        return ResponseEntity.ok(feeScheduleService.getRules());
+    }
+
+    @PostMapping("/admin/fees/rules")
+    public ResponseEntity<FeeRule> saveFeeRule(@RequestBody FeeRule rule) {
+        return ResponseEntity.ok(feeScheduleService.saveRule(rule));
+    }
+
+    @DeleteMapping("/admin/fees/rules/{ruleId}")
+    public ResponseEntity<Void> deleteFeeRule(@PathVariable Long ruleId) {
+        feeScheduleService.deleteRule(ruleId);
+        return ResponseEntity.noContent().build();
+    }
+
     @PostMapping("/admin/{id}/refund")
     // @PreAuthorize("hasRole('ADMIN')") // À activer quand la sécu admin sera stricte
     public ResponseEntity<Void> refundTransaction(@PathVariable UUID id) {
@@ -107,9 +301,28 @@ public class TransactionController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Lance le backfill des vendorId en arrière-plan (202), ou 409 s'il tourne déjà.
+     * La progression se suit avec le GET.
+     */
     @PostMapping("/maintenance/backfill-vendors")
-    public ResponseEntity<Void> backfillVendors() {
-        transactionService.backfillVendorIds();
-        return ResponseEntity.ok().build();
+    public ResponseEntity<BackfillStatus> backfillVendors() {
+        HttpStatus status = vendorBackfillJob.start() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(vendorBackfillJob.getStatus());
+    }
+
+    @GetMapping("/maintenance/backfill-vendors")
+    public ResponseEntity<BackfillStatus> backfillVendorsStatus() {
+        return ResponseEntity.ok(vendorBackfillJob.getStatus());
+    }
+
+    private static void checkSummaryRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_SUMMARY_DAYS) {
+            throw new IllegalArgumentException("Période invalide (au plus " + MAX_SUMMARY_DAYS + " jours)");
+        }
+    }
+
+    private static int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
     }
 }
\ No newline at end of file
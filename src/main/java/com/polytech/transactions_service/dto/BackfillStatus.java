@@ -0,0 +1,26 @@
+package com.polytech.transactions_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// État du job de backfill des vendorId, exposé par GET /transactions/maintenance/backfill-vendors
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackfillStatus {
+
+    public enum State { IDLE, RUNNING, COMPLETED, FAILED }
+
+    private State state;
+    private long processed; // Lignes examinées
+    private long updated;   // Lignes dont le vendorId a été renseigné
+    private long failed;    // Lignes dont le ticket n'a pas pu être résolu
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String lastError;
+}
@@ -0,0 +1,22 @@
+package com.polytech.transactions_service.dto;
+
+import com.polytech.transactions_service.model.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Réponse du checkout : la transaction PENDING et de quoi confirmer le paiement côté front
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutResult {
+    private Transaction transaction;     // Données métier (montant, dates...)
+    private UUID transactionId;          // ID pratique pour le front
+    private String clientSecret;         // LA clé pour Stripe React Native
+    private LocalDateTime expiresAt;     // Au-delà, la réservation du ticket n'est plus garantie
+}
@@ -0,0 +1,12 @@
+package com.polytech.transactions_service.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+// Checkout panier : plusieurs tickets achetés et payés ensemble
+@Data
+public class CreateOrderRequest {
+    private List<UUID> ticketIds;
+}
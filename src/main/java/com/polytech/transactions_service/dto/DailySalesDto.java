@@ -0,0 +1,20 @@
+package com.polytech.transactions_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Ventes d'une journée (remboursements du jour déduits)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySalesDto {
+    private LocalDate date;
+    private long salesCount;
+    private long refundCount;
+    private double grossAmount;
+    private double vendorAmount;
+    private double platformFee;
+}
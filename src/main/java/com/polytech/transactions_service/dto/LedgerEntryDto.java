@@ -0,0 +1,26 @@
+package com.polytech.transactions_service.dto;
+
+import com.polytech.transactions_service.model.enums.LedgerAccount;
+import com.polytech.transactions_service.model.enums.LedgerEntryType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Ligne du relevé vendeur : projection construite par la requête JPQL, jamais attachée au contexte de persistance
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntryDto {
+    private Long id;
+    private UUID journalId;
+    private LedgerEntryType type;
+    private LedgerAccount account;
+    private UUID vendorId;
+    private UUID transactionId;
+    private UUID payoutId;
+    private long amountCents;
+    private LocalDateTime createdAt;
+}
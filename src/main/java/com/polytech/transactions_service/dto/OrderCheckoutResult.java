@@ -0,0 +1,24 @@
+package com.polytech.transactions_service.dto;
+
+import com.polytech.transactions_service.model.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Réponse du checkout panier : une ligne PENDING par ticket, un seul paiement à confirmer côté front
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderCheckoutResult {
+    private UUID orderId;
+    private List<Transaction> transactions;
+    private long totalAmountCents;       // Somme des lignes, montant du PaymentIntent
+    private String clientSecret;         // Un seul clientSecret pour toute la commande
+    private LocalDateTime expiresAt;
+}
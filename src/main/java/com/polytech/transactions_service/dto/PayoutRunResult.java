@@ -0,0 +1,18 @@
+package com.polytech.transactions_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Résultat de POST /transactions/admin/payouts/run
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayoutRunResult {
+    private long vendorsScanned; // Soldes au-dessus du minimum lus dans vendor_balances
+    private long payouts;        // Versements créés (les soldes modifiés entre-temps sont ignorés)
+    private double totalAmount;
+    private long durationMs;
+}
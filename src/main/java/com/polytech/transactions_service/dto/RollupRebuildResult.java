@@ -0,0 +1,18 @@
+package com.polytech.transactions_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Résultat de POST /transactions/admin/rollups/rebuild
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupRebuildResult {
+    private long transactions;  // Lignes lues dans la table transactions
+    private int vendorDays;     // Lignes vendor_daily_sales écrites
+    private int eventDays;      // Lignes event_daily_sales écrites
+    private long durationMs;
+}
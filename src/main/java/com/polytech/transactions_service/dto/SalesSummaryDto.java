@@ -0,0 +1,27 @@
+package com.polytech.transactions_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+// Totaux d'un vendeur ou d'un événement sur une période, lus depuis les rollups journaliers
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesSummaryDto {
+    private UUID id;            // vendorId ou eventId
+    private LocalDate from;
+    private LocalDate to;
+    private long salesCount;
+    private long refundCount;
+    private double grossAmount;
+    private double vendorAmount;
+    private double platformFee;
+    private List<DailySalesDto> days;
+}
@@ -0,0 +1,29 @@
+package com.polytech.transactions_service.dto;
+
+import com.polytech.transactions_service.model.enums.PaymentStatus;
+import com.polytech.transactions_service.model.enums.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Projection en lecture seule pour l'historique : construite directement par la requête JPQL,
+// sans passer par une entité managée (ni paymentToken, ni refundAddress exposés).
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionSummaryDto {
+    private UUID id;
+    private UUID ticketId;
+    private UUID buyerId;
+    private UUID vendorId;
+    private long totalAmountCents;
+    private long platformFeeCents;
+    private long vendorAmountCents;
+    private PaymentStatus paymentStatus;
+    private TransactionStatus status;
+    private LocalDateTime transactionDate;
+    private LocalDateTime validationDate;
+}
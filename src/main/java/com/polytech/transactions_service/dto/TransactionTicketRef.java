@@ -0,0 +1,9 @@
+package com.polytech.transactions_service.dto;
+
+import java.util.UUID;
+
+// Projection Spring Data minimale (id + ticket) pour les traitements par lots
+public interface TransactionTicketRef {
+    UUID getId();
+    UUID getTicketId();
+}
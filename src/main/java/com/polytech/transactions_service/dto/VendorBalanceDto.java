@@ -0,0 +1,18 @@
+package com.polytech.transactions_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Solde dû au vendeur (ventes - remboursements - versements)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VendorBalanceDto {
+    private UUID vendorId;
+    private double balance;
+    private LocalDateTime updatedAt; // null si aucune écriture
+}
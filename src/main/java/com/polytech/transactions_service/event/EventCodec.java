@@ -0,0 +1,194 @@
+package com.polytech.transactions_service.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Encodage des événements Kafka : JSON par défaut, binaire compact pour les topics listés dans
+ * outbox.encoding.binary-topics (à activer quand les consommateurs savent le lire).
+ * Le format est annoncé dans l'en-tête "content-type" de chaque message.
+ *
+ * Binaire, version 1 : [0xE7][version][type] puis les champs dans l'ordre de la classe.
+ * UUID : 1 octet de présence + 16 octets ; montants en centimes : varint zigzag.
+ */
+@Component
+public class EventCodec {
+
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+    public static final String JSON = "application/json";
+    public static final String BINARY = "application/x-eventy-binary; version=1";
+
+    private static final byte MAGIC = (byte) 0xE7;
+    private static final byte VERSION = 1;
+
+    private static final byte TICKET_SOLD = 1;
+    private static final byte PAYMENT_VALIDATED = 2;
+    private static final byte TRANSACTION_REFUNDED = 3;
+    private static final byte PAYOUT_CREATED = 4;
+
+    private final ObjectMapper objectMapper;
+    private final Set<String> binaryTopics;
+
+    public EventCodec(ObjectMapper objectMapper,
+                      @Value("${outbox.encoding.binary-topics:}") String binaryTopics) {
+        this.objectMapper = objectMapper;
+        this.binaryTopics = Set.copyOf(StringUtils.commaDelimitedListToSet(StringUtils.trimAllWhitespace(binaryTopics)));
+    }
+
+    public record Encoded(String contentType, byte[] payload) {
+    }
+
+    public Encoded encode(String topic, Object event) {
+        if (binaryTopics.contains(topic)) {
+            byte[] binary = encodeBinary(event);
+            if (binary != null) {
+                return new Encoded(BINARY, binary);
+            }
+        }
+        // Repli JSON : topic non migré ou type d'événement sans schéma binaire
+        try {
+            return new Encoded(JSON, objectMapper.writeValueAsBytes(event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Sérialisation impossible de l'événement " + topic, e);
+        }
+    }
+
+    public static boolean isBinary(String contentType) {
+        return contentType != null && contentType.startsWith("application/x-eventy-binary");
+    }
+
+    // Null si le type n'a pas de schéma binaire
+    static byte[] encodeBinary(Object event) {
+        Writer out = new Writer();
+        switch (event) {
+            case TicketSoldEvent e -> {
+                out.header(TICKET_SOLD);
+                out.uuid(e.getTicketId());
+                out.uuid(e.getTransactionId());
+                out.uuid(e.getBuyerId());
+            }
+            case PaymentValidatedEvent e -> {
+                out.header(PAYMENT_VALIDATED);
+                out.uuid(e.getTransactionId());
+                out.uuid(e.getBuyerId());
+                out.uuid(e.getVendorId());
+                out.varLong(e.getAmountCents());
+                out.varLong(e.getVendorAmountCents());
+            }
+            case TransactionRefundedEvent e -> {
+                out.header(TRANSACTION_REFUNDED);
+                out.uuid(e.getTransactionId());
+                out.uuid(e.getTicketId());
+                out.uuid(e.getVendorId());
+                out.varLong(e.getVendorAmountCents());
+            }
+            case PayoutCreatedEvent e -> {
+                out.header(PAYOUT_CREATED);
+                out.uuid(e.getPayoutId());
+                out.uuid(e.getVendorId());
+                out.varLong(e.getAmountCents());
+            }
+            default -> {
+                return null;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static Object decodeBinary(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        if (in.get() != MAGIC) {
+            throw new IllegalArgumentException("Message binaire invalide");
+        }
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Version de schéma non supportée : " + version);
+        }
+        byte type = in.get();
+        return switch (type) {
+            case TICKET_SOLD -> new TicketSoldEvent(uuid(in), uuid(in), uuid(in));
+            case PAYMENT_VALIDATED -> PaymentValidatedEvent.builder()
+                    .transactionId(uuid(in))
+                    .buyerId(uuid(in))
+                    .vendorId(uuid(in))
+                    .amountCents(varLong(in))
+                    .vendorAmountCents(varLong(in))
+                    .build();
+            case TRANSACTION_REFUNDED -> TransactionRefundedEvent.builder()
+                    .transactionId(uuid(in))
+                    .ticketId(uuid(in))
+                    .vendorId(uuid(in))
+                    .vendorAmountCents(varLong(in))
+                    .build();
+            case PAYOUT_CREATED -> PayoutCreatedEvent.builder()
+                    .payoutId(uuid(in))
+                    .vendorId(uuid(in))
+                    .amountCents(varLong(in))
+                    .build();
+            default -> throw new IllegalArgumentException("Type d'événement inconnu : " + type);
+        };
+    }
+
+    private static UUID uuid(ByteBuffer in) {
+        return in.get() == 0 ? null : new UUID(in.getLong(), in.getLong());
+    }
+
+    private static long varLong(ByteBuffer in) {
+        long raw = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            raw |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+
+        Writer() {
+            super(64);
+        }
+
+        void header(byte type) {
+            write(MAGIC);
+            write(VERSION);
+            write(type);
+        }
+
+        void uuid(UUID value) {
+            if (value == null) {
+                write(0);
+                return;
+            }
+            write(1);
+            fixedLong(value.getMostSignificantBits());
+            fixedLong(value.getLeastSignificantBits());
+        }
+
+        void fixedLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        // Zigzag : les petits montants, positifs ou négatifs, tiennent sur 1 à 3 octets
+        void varLong(long value) {
+            long raw = (value << 1) ^ (value >> 63);
+            while ((raw & ~0x7FL) != 0) {
+                write((int) ((raw & 0x7F) | 0x80));
+                raw >>>= 7;
+            }
+            write((int) raw);
+        }
+    }
+}
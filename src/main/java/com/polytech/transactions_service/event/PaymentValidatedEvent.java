@@ -15,6 +15,6 @@ public class PaymentValidatedEvent {
     private UUID transactionId;
     private UUID buyerId;
     private UUID vendorId;
-    private Double amount;        // Montant total payé par l'acheteur
-    private Double vendorAmount;  // Montant net à créditer au vendeur
+    private long amountCents;        // Montant total payé par l'acheteur
+    private long vendorAmountCents;  // Montant net à créditer au vendeur
 }
\ No newline at end of file
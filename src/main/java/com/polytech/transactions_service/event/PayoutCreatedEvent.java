@@ -0,0 +1,18 @@
+package com.polytech.transactions_service.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PayoutCreatedEvent {
+    private UUID payoutId;
+    private UUID vendorId;
+    private long amountCents; // Montant à virer au vendeur
+}
@@ -15,5 +15,5 @@ public class TransactionRefundedEvent {
     private UUID transactionId;
     private UUID ticketId;
     private UUID vendorId;
-    private Double vendorAmount; // Montant à retirer au vendeur
+    private long vendorAmountCents; // Montant à retirer au vendeur
 }
\ No newline at end of file
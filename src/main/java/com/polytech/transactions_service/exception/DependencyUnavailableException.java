@@ -0,0 +1,19 @@
+package com.polytech.transactions_service.exception;
+
+import lombok.Getter;
+
+/**
+ * Appel à une dépendance refusé sans avoir été tenté (circuit breaker ouvert, bulkhead plein)
+ * ou resté sans réponse exploitable (timeout, 5xx) après compensation.
+ * Répondu en 503 par GlobalExceptionHandler.
+ */
+@Getter
+public class DependencyUnavailableException extends RuntimeException {
+
+    private final String dependency;
+
+    public DependencyUnavailableException(String dependency, String reason, Throwable cause) {
+        super("Service " + dependency + " indisponible (" + reason + ")", cause);
+        this.dependency = dependency;
+    }
+}
@@ -0,0 +1,26 @@
+package com.polytech.transactions_service.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.MappedSuperclass;
+import lombok.Data;
+
+// Compteurs communs aux rollups journaliers (vendeur, événement), montants en centimes
+@Data
+@MappedSuperclass
+public abstract class DailySales {
+
+    @Column(name = "sales_count", nullable = false)
+    private long salesCount;
+
+    @Column(name = "refund_count", nullable = false)
+    private long refundCount;
+
+    @Column(name = "gross_cents", nullable = false)
+    private long grossCents; // Payé par les acheteurs, remboursements déduits
+
+    @Column(name = "vendor_cents", nullable = false)
+    private long vendorCents;
+
+    @Column(name = "fee_cents", nullable = false)
+    private long feeCents;
+}
@@ -0,0 +1,37 @@
+package com.polytech.transactions_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Ventes d'un événement par jour (rollup incrémental, voir SalesRollupService)
+@Entity
+@Table(name = "event_daily_sales")
+@IdClass(EventDailySales.Key.class)
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+public class EventDailySales extends DailySales {
+
+    @Id
+    @Column(name = "event_id")
+    private UUID eventId;
+
+    @Id
+    @Column(name = "sale_date")
+    private LocalDate saleDate;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID eventId;
+        private LocalDate saleDate;
+    }
+}
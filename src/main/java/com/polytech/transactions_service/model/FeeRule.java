@@ -0,0 +1,42 @@
+package com.polytech.transactions_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Commission spécifique à un vendeur OU à un événement (la règle d'événement l'emporte)
+@Entity
+@Table(name = "fee_rules")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeeRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "rule_id")
+    private Long id;
+
+    @Column(name = "vendor_id")
+    private UUID vendorId;
+
+    @Column(name = "event_id")
+    private UUID eventId;
+
+    @Column(name = "rate_bps", nullable = false)
+    private int rateBps; // Points de base : 500 = 5 %
+
+    @Column(name = "fixed_cents", nullable = false)
+    private long fixedCents; // Part fixe ajoutée au pourcentage
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
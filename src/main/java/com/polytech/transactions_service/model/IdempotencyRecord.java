@@ -0,0 +1,75 @@
+package com.polytech.transactions_service.model;
+
+import com.polytech.transactions_service.model.enums.IdempotencyStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Clé d'idempotence d'une création de transaction et réponse associée (rejouée telle quelle)
+@Entity
+@Table(name = "idempotency_keys")
+@Getter
+@Setter
+@NoArgsConstructor
+public class IdempotencyRecord implements Persistable<String> {
+
+    @Id
+    @Column(name = "scoped_key", length = 320)
+    private String id; // buyerId + ":" + Idempotency-Key
+
+    // Empreinte de la requête : une même clé réutilisée pour une autre requête est refusée
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private IdempotencyStatus status;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    // ID de la ressource créée (transaction ou commande) : la réponse est reconstruite au rejeu,
+    // le clientSecret Stripe n'est jamais stocké
+    @Column(name = "resource_id")
+    private UUID resourceId;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Fin du bail IN_PROGRESS : au-delà, une nouvelle requête avec la même clé peut reprendre l'exécution
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil;
+
+    // Clé fournie par le client : l'INSERT doit échouer sur doublon plutôt que faire un merge
+    @Transient
+    private boolean newRecord = true;
+
+    public IdempotencyRecord(String id, String requestHash, LocalDateTime expiresAt, LocalDateTime lockedUntil) {
+        this.id = id;
+        this.requestHash = requestHash;
+        this.status = IdempotencyStatus.IN_PROGRESS;
+        this.expiresAt = expiresAt;
+        this.lockedUntil = lockedUntil;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newRecord;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newRecord = false;
+    }
+}
@@ -0,0 +1,54 @@
+package com.polytech.transactions_service.model;
+
+import com.polytech.transactions_service.model.enums.LedgerAccount;
+import com.polytech.transactions_service.model.enums.LedgerEntryType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Ligne du grand livre (ajout seul). Les lignes d'un même journalId s'équilibrent à zéro.
+@Entity
+@Table(name = "ledger_entries")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntry {
+
+    // Identité croissante : sert aussi de curseur pour l'historique
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "entry_id")
+    private Long id;
+
+    @Column(name = "journal_id", nullable = false, updatable = false)
+    private UUID journalId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, updatable = false, length = 16)
+    private LedgerEntryType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 32)
+    private LedgerAccount account;
+
+    @Column(name = "vendor_id", updatable = false)
+    private UUID vendorId;
+
+    @Column(name = "transaction_id", updatable = false)
+    private UUID transactionId;
+
+    @Column(name = "payout_id", updatable = false)
+    private UUID payoutId;
+
+    @Column(name = "amount_cents", nullable = false, updatable = false)
+    private long amountCents; // > 0 crédit, < 0 débit
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
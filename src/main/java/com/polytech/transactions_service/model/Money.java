@@ -0,0 +1,38 @@
+package com.polytech.transactions_service.model;
+
+/**
+ * Montants en centimes (long) : additions et commissions exactes, sans objet alloué.
+ * Les décimaux n'apparaissent qu'aux frontières (prix renvoyés par tickets-service, affichage).
+ */
+public final class Money {
+
+    private static final int BASIS_POINTS = 10_000;
+
+    private Money() {
+    }
+
+    // Prix reçu en euros (tickets-service) : arrondi au centime le plus proche
+    public static long ofDecimal(Double amount) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Montant absent");
+        }
+        return Math.round(amount * 100);
+    }
+
+    public static double toDecimal(long cents) {
+        return cents / 100.0;
+    }
+
+    // Pourcentage en points de base (500 = 5 %), arrondi au centime supérieur à partir de la moitié
+    public static long percentOf(long cents, int basisPoints) {
+        return Math.floorDiv(cents * basisPoints + BASIS_POINTS / 2, BASIS_POINTS);
+    }
+
+    // Représentation décimale exacte ("12.30", "-0.05") pour les exports
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        long units = abs / 100;
+        long rest = abs % 100;
+        return (cents < 0 ? "-" : "") + units + (rest < 10 ? ".0" : ".") + rest;
+    }
+}
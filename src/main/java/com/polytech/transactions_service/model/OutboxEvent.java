@@ -0,0 +1,56 @@
+package com.polytech.transactions_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+// Événement Kafka en attente de publication (pattern "transactional outbox")
+@Entity
+@Table(name = "outbox_events")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    // Identité croissante : l'ordre de relais suit l'ordre d'écriture
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(name = "message_key")
+    private String messageKey;
+
+    // Format du payload (en-tête content-type du message) ; null = JSON (lignes antérieures)
+    @Column(name = "content_type", length = 64)
+    private String contentType;
+
+    // Message déjà sérialisé, envoyé tel quel par le relais
+    @JdbcTypeCode(SqlTypes.VARBINARY)
+    @Column(nullable = false, length = 65536)
+    private byte[] payload;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    // Renseigné après outbox.relay.max-attempts échecs : la ligne n'est plus relayée (dead-letter)
+    @Column(name = "dead_lettered_at")
+    private LocalDateTime deadLetteredAt;
+}
@@ -0,0 +1,37 @@
+package com.polytech.transactions_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Versement calculé par un run de payout ; le virement lui-même est fait par le service finance
+@Entity
+@Table(name = "payouts")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Payout {
+
+    @Id
+    @UuidGenerator(algorithm = TimeOrderedUuid.class) // Insertions en fin d'index, voir TimeOrderedUuid
+    @Column(name = "payout_id")
+    private UUID id;
+
+    @Column(name = "vendor_id", nullable = false)
+    private UUID vendorId;
+
+    @Column(name = "amount_cents", nullable = false)
+    private long amountCents;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
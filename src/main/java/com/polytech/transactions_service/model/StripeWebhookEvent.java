@@ -0,0 +1,69 @@
+package com.polytech.transactions_service.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// Événement webhook Stripe déjà reçu (déduplication par ID d'événement Stripe)
+@Entity
+@Table(name = "stripe_webhook_events")
+@Getter
+@Setter
+@NoArgsConstructor
+public class StripeWebhookEvent implements Persistable<String> {
+
+    @Id
+    @Column(name = "event_id")
+    private String id; // ID Stripe (evt_...)
+
+    @Column(nullable = false)
+    private String type;
+
+    @Column(name = "payment_intent_id")
+    private String paymentIntentId;
+
+    @CreationTimestamp
+    @Column(name = "received_at", nullable = false, updatable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    // Traitements en échec ; à stripe.webhook.max-attempts, l'événement n'est plus repris (dead-letter)
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    // Réservation par une instance (file locale ou reprise) ; échue, l'événement peut être repris ailleurs
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    // ID fourni par Stripe : sans ce marqueur, save() ferait un merge au lieu d'un INSERT
+    // et un doublon ne serait pas détecté par la clé primaire
+    @Transient
+    private boolean newEvent = true;
+
+    public StripeWebhookEvent(String id, String type, String paymentIntentId) {
+        this.id = id;
+        this.type = type;
+        this.paymentIntentId = paymentIntentId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEvent;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEvent = false;
+    }
+}
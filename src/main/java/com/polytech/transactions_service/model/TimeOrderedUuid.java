@@ -0,0 +1,34 @@
+package com.polytech.transactions_service.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.uuid.UuidValueGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * UUID ordonnés dans le temps (disposition UUIDv7, RFC 9562) pour les clés primaires.
+ * Les UUID v4 aléatoires dispersent les insertions sur toutes les pages de l'index B-tree ;
+ * avec un préfixe horodaté, les nouvelles lignes s'ajoutent en fin d'index (pages chaudes, peu de splits).
+ *
+ * 48 bits : millisecondes Unix | version 7 | 12 bits aléatoires | variant | 62 bits aléatoires.
+ * Aléa tiré de ThreadLocalRandom : aucun état partagé entre threads. Ces identifiants ne sont pas des secrets
+ * (l'accès aux ressources est contrôlé par propriétaire/rôle), seule leur unicité compte.
+ * Les UUID v4 déjà en base restent valides : même type de colonne, simple cohabitation dans l'index.
+ */
+public class TimeOrderedUuid implements UuidValueGenerator {
+
+    public static UUID next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = (System.currentTimeMillis() << 16)
+                | 0x7000L
+                | (random.nextLong() & 0x0FFFL);
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    @Override
+    public UUID generateUuid(SharedSessionContractImplementor session) {
+        return next();
+    }
+}
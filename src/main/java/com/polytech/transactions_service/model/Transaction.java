@@ -8,7 +8,9 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -22,7 +24,7 @@ import java.util.UUID;
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @UuidGenerator(algorithm = TimeOrderedUuid.class) // Insertions en fin d'index, voir TimeOrderedUuid
     @Column(name = "transaction_id")
     private UUID id;
 
@@ -37,16 +39,27 @@ public class Transaction {
     @Column(name = "vendor_id")
     private UUID vendorId;
 
-    // --- Informations Financières ---
+    // Snapshot du ticket au moment de l'achat (évite de rappeler tickets-service ensuite)
+    @Column(name = "event_id")
+    private UUID eventId;
+
+    @Column(name = "ticket_price_cents")
+    private Long ticketPriceCents; // Prix de vente du ticket lors de l'achat
+
+    // Checkout panier : les lignes d'une même commande partagent cet ID et un seul PaymentIntent
+    @Column(name = "order_id")
+    private UUID orderId;
+
+    // --- Informations Financières (centimes, voir Money) ---
     
-    @Column(name = "total_amount", nullable = false)
-    private Double totalAmount; // Montant payé par l'acheteur (Prix + Frais)
+    @Column(name = "total_amount_cents", nullable = false)
+    private long totalAmountCents; // Montant payé par l'acheteur (Prix + Frais)
 
-    @Column(name = "platform_fee", nullable = false)
-    private Double platformFee; // Commission de la plateforme
+    @Column(name = "platform_fee_cents", nullable = false)
+    private long platformFeeCents; // Commission de la plateforme
 
-    @Column(name = "vendor_amount", nullable = false)
-    private Double vendorAmount; // Montant reversé au vendeur
+    @Column(name = "vendor_amount_cents", nullable = false)
+    private long vendorAmountCents; // Montant reversé au vendeur
 
     // --- Informations Paiement ---
 
@@ -73,7 +86,21 @@ public class Transaction {
     @Column(name = "validation_date")
     private LocalDateTime validationDate;
 
+    @Column(name = "refund_date")
+    private LocalDateTime refundDate;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private TransactionStatus status = TransactionStatus.PENDING;
+
+    // --- Sweeper : écrits uniquement par les UPDATE conditionnels du repository, jamais par save() ---
+
+    // Réservation par une instance du sweeper ; échue, la ligne peut être reprise ailleurs
+    @Column(name = "claimed_until", insertable = false, updatable = false)
+    private LocalDateTime claimedUntil;
+
+    // Ticket encore à libérer après le passage EXPIRED
+    @ColumnDefault("false")
+    @Column(name = "release_pending", nullable = false, insertable = false, updatable = false)
+    private boolean releasePending;
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.polytech.transactions_service.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Solde courant du compte VENDOR_PAYABLE d'un vendeur (modifié uniquement par UPDATE conditionnel)
+@Entity
+@Table(name = "vendor_balances")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VendorBalance {
+
+    @Id
+    @Column(name = "vendor_id")
+    private UUID vendorId;
+
+    @Column(name = "balance_cents", nullable = false)
+    private long balanceCents;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,6 @@
+package com.polytech.transactions_service.model.enums;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,
+    COMPLETED
+}
@@ -0,0 +1,8 @@
+package com.polytech.transactions_service.model.enums;
+
+public enum LedgerAccount {
+    BUYER_CLEARING,   // Fonds encaissés auprès des acheteurs (Stripe)
+    VENDOR_PAYABLE,   // Dû aux vendeurs
+    PLATFORM_REVENUE, // Commissions de la plateforme
+    PAYOUT_CLEARING   // Versements émis vers les vendeurs
+}
@@ -0,0 +1,7 @@
+package com.polytech.transactions_service.model.enums;
+
+public enum LedgerEntryType {
+    SALE,
+    REFUND,
+    PAYOUT
+}
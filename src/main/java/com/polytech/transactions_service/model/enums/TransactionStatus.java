@@ -4,7 +4,9 @@ package com.polytech.transactions_service.model.enums;
 public enum TransactionStatus {
     PENDING,    // Créée, en attente de paiement
     COMPLETED,  // Payée et validée
+    REFUNDING,  // Remboursement Stripe en cours, réservé par une seule requête
     FAILED,     // Échec du paiement
     CANCELED,   // Annulée par l'utilisateur
-    REFUNDED    // Remboursée
+    REFUNDED,   // Remboursée
+    EXPIRED     // Checkout abandonné, réservation libérée par le sweeper
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.polytech.transactions_service.repository;
+
+import com.polytech.transactions_service.model.EventDailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface EventDailySalesRepository extends JpaRepository<EventDailySales, EventDailySales.Key> {
+
+    // Ajoute des deltas à la ligne du jour (créée au besoin) : un seul aller-retour, sûr en concurrence
+    String UPSERT_SQL = "INSERT INTO event_daily_sales "
+            + "(event_id, sale_date, sales_count, refund_count, gross_cents, vendor_cents, fee_cents) "
+            + "VALUES (:id, :saleDate, :salesCount, :refundCount, :grossCents, :vendorCents, :feeCents) "
+            + "ON CONFLICT (event_id, sale_date) DO UPDATE SET "
+            + "sales_count = event_daily_sales.sales_count + EXCLUDED.sales_count, "
+            + "refund_count = event_daily_sales.refund_count + EXCLUDED.refund_count, "
+            + "gross_cents = event_daily_sales.gross_cents + EXCLUDED.gross_cents, "
+            + "vendor_cents = event_daily_sales.vendor_cents + EXCLUDED.vendor_cents, "
+            + "fee_cents = event_daily_sales.fee_cents + EXCLUDED.fee_cents";
+
+    @Modifying
+    @Query(value = UPSERT_SQL, nativeQuery = true)
+    int addDeltas(@Param("id") UUID eventId,
+                  @Param("saleDate") LocalDate saleDate,
+                  @Param("salesCount") long salesCount,
+                  @Param("refundCount") long refundCount,
+                  @Param("grossCents") long grossCents,
+                  @Param("vendorCents") long vendorCents,
+                  @Param("feeCents") long feeCents);
+
+    // Clé primaire (event_id, sale_date) : lecture en O(jours)
+    List<EventDailySales> findByEventIdAndSaleDateBetweenOrderBySaleDateAsc(UUID eventId, LocalDate from, LocalDate to);
+}
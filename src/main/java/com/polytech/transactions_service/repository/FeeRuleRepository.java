@@ -0,0 +1,9 @@
+package com.polytech.transactions_service.repository;
+
+import com.polytech.transactions_service.model.FeeRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface FeeRuleRepository extends JpaRepository<FeeRule, Long> {
+}
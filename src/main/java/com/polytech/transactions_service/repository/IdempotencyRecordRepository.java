@@ -0,0 +1,40 @@
+package com.polytech.transactions_service.repository;
+
+import com.polytech.transactions_service.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = com.polytech.transactions_service.model.enums.IdempotencyStatus.COMPLETED, "
+            + "r.responseStatus = :responseStatus, r.resourceId = :resourceId WHERE r.id = :id")
+    int complete(@Param("id") String id,
+                 @Param("responseStatus") int responseStatus,
+                 @Param("resourceId") UUID resourceId);
+
+    // Reprise d'une clé IN_PROGRESS dont le bail a expiré : une seule instance obtient 1
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.lockedUntil = :lockedUntil WHERE r.id = :id "
+            + "AND r.status = com.polytech.transactions_service.model.enums.IdempotencyStatus.IN_PROGRESS "
+            + "AND r.lockedUntil < :now")
+    int takeOver(@Param("id") String id,
+                 @Param("now") LocalDateTime now,
+                 @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    // Nettoyage périodique (index idx_idempotency_keys_expires_at)
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,40 @@
+package com.polytech.transactions_service.repository;
+
+import com.polytech.transactions_service.dto.LedgerEntryDto;
+import com.polytech.transactions_service.model.LedgerEntry;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    // Historique d'un vendeur par curseur sur entry_id (index idx_ledger_vendor_entry)
+    @Query("SELECT e FROM LedgerEntry e WHERE e.vendorId = :vendorId ORDER BY e.id DESC")
+    List<LedgerEntry> findVendorPage(@Param("vendorId") UUID vendorId, Pageable limit);
+
+    @Query("SELECT e FROM LedgerEntry e WHERE e.vendorId = :vendorId AND e.id < :afterId ORDER BY e.id DESC")
+    List<LedgerEntry> findVendorPageAfter(@Param("vendorId") UUID vendorId,
+                                          @Param("afterId") long afterId,
+                                          Pageable limit);
+
+    // Relevé complet, dans l'ordre d'écriture, lu par curseur serveur.
+    // Projection DTO : le contexte de persistance ne grossit pas avec le nombre de lignes lues
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.polytech.transactions_service.dto.LedgerEntryDto(e.id, e.journalId, e.type, e.account, "
+            + "e.vendorId, e.transactionId, e.payoutId, e.amountCents, e.createdAt) "
+            + "FROM LedgerEntry e WHERE e.vendorId = :vendorId ORDER BY e.id")
+    Stream<LedgerEntryDto> streamVendorEntries(@Param("vendorId") UUID vendorId);
+}
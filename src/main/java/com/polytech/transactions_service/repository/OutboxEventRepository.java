@@ -0,0 +1,25 @@
+package com.polytech.transactions_service.repository;
+
+import com.polytech.transactions_service.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Verrou consultatif libéré en fin de transaction : une seule instance relaie la partition
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:lockId)", nativeQuery = true)
+    boolean tryLockPartition(@Param("lockId") long lockId);
+
+    // Lignes de la partition (hash de la clé), dans l'ordre d'écriture, dead-letters exclues.
+    // SKIP LOCKED en plus du verrou de partition : sans blocage face à un relais d'une version antérieure
+    @Query(value = "SELECT * FROM outbox_events WHERE dead_lettered_at IS NULL "
+            + "AND (hashtext(COALESCE(message_key, '')) & 2147483647) % :partitions = :partition "
+            + "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("partitions") int partitions, @Param("partition") int partition,
+                                    @Param("limit") int limit);
+}
@@ -0,0 +1,11 @@
+package com.polytech.transactions_service.repository;
+
+import com.polytech.transactions_service.model.Payout;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface PayoutRepository extends JpaRepository<Payout, UUID> {
+}
@@ -0,0 +1,40 @@
+package com.polytech.transactions_service.repository;
+
+import com.polytech.transactions_service.model.StripeWebhookEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, String> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE StripeWebhookEvent e SET e.processedAt = :processedAt WHERE e.id = :id")
+    int markProcessed(@Param("id") String id, @Param("processedAt") LocalDateTime processedAt);
+
+    @Transactional
+    @Modifying
+    // La réservation est rendue : l'événement en échec est repris au prochain passage
+    @Query("UPDATE StripeWebhookEvent e SET e.attempts = e.attempts + 1, e.lastError = :error, e.claimedUntil = null "
+            + "WHERE e.id = :id")
+    int recordFailure(@Param("id") String id, @Param("error") String error);
+
+    // Événements jamais traités (instance arrêtée, échec) et non réservés, hors dead-letter.
+    // SKIP LOCKED : les instances qui reprennent en même temps se partagent les événements
+    @Query(value = "SELECT * FROM stripe_webhook_events WHERE processed_at IS NULL AND attempts < :maxAttempts "
+            + "AND (claimed_until IS NULL OR claimed_until < :now) "
+            + "ORDER BY received_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<StripeWebhookEvent> lockRedrivable(@Param("maxAttempts") int maxAttempts, @Param("now") LocalDateTime now,
+                                            @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE StripeWebhookEvent e SET e.claimedUntil = :claimedUntil WHERE e.id IN :ids")
+    int claim(@Param("ids") List<String> ids, @Param("claimedUntil") LocalDateTime claimedUntil);
+}
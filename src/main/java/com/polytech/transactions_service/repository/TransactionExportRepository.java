@@ -0,0 +1,17 @@
+package com.polytech.transactions_service.repository;
+
+import com.polytech.transactions_service.dto.TransactionSummaryDto;
+import com.polytech.transactions_service.model.enums.TransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+// Fragment Spring Data : requêtes d'export construites dynamiquement (filtres optionnels)
+public interface TransactionExportRepository {
+
+    /**
+     * Flux de projections lu avec un curseur serveur (fetch size fixe).
+     * Doit être consommé dans une transaction et fermé par l'appelant.
+     */
+    Stream<TransactionSummaryDto> streamForExport(LocalDateTime from, LocalDateTime to, TransactionStatus status);
+}
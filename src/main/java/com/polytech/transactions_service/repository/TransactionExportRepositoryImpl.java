@@ -0,0 +1,60 @@
+package com.polytech.transactions_service.repository;
+
+import com.polytech.transactions_service.dto.TransactionSummaryDto;
+import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.enums.TransactionStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TransactionExportRepositoryImpl implements TransactionExportRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${transactions.export.fetch-size:500}")
+    private int fetchSize;
+
+    @Override
+    public Stream<TransactionSummaryDto> streamForExport(LocalDateTime from, LocalDateTime to, TransactionStatus status) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TransactionSummaryDto> query = cb.createQuery(TransactionSummaryDto.class);
+        Root<Transaction> t = query.from(Transaction.class);
+
+        // Seuls les filtres renseignés sont ajoutés : pas de "(:param IS NULL OR ...)" côté SQL
+        List<Predicate> predicates = new ArrayList<>();
+        if (from != null) {
+            predicates.add(cb.greaterThanOrEqualTo(t.get("transactionDate"), from));
+        }
+        if (to != null) {
+            predicates.add(cb.lessThan(t.get("transactionDate"), to));
+        }
+        if (status != null) {
+            predicates.add(cb.equal(t.get("status"), status));
+        }
+
+        query.select(cb.construct(TransactionSummaryDto.class,
+                        t.get("id"), t.get("ticketId"), t.get("buyerId"), t.get("vendorId"),
+                        t.get("totalAmountCents"), t.get("platformFeeCents"), t.get("vendorAmountCents"),
+                        t.get("paymentStatus"), t.get("status"), t.get("transactionDate"), t.get("validationDate")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(t.get("transactionDate")), cb.asc(t.get("id")));
+
+        // Ordre servi par idx_transactions_date_id (V20) : pas de tri avant la première ligne
+        // Projections DTO : rien n'est attaché au contexte de persistance pendant le parcours
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+}
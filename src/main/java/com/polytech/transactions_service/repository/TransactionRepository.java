@@ -1,21 +1,155 @@
 package com.polytech.transactions_service.repository;
 
+import com.polytech.transactions_service.dto.TransactionSummaryDto;
+import com.polytech.transactions_service.dto.TransactionTicketRef;
 import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.enums.TransactionStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
+public interface TransactionRepository extends JpaRepository<Transaction, UUID>, TransactionExportRepository {
+
+    String SUMMARY_SELECT = "SELECT new com.polytech.transactions_service.dto.TransactionSummaryDto("
+            + "t.id, t.ticketId, t.buyerId, t.vendorId, t.totalAmountCents, t.platformFeeCents, t.vendorAmountCents, "
+            + "t.paymentStatus, t.status, t.transactionDate, t.validationDate) FROM Transaction t ";
+
+    String KEYSET_ORDER = " ORDER BY t.transactionDate DESC, t.id DESC";
+
     // Historique des achats d'un utilisateur
     List<Transaction> findByBuyerId(UUID buyerId);
 
     // Historique des ventes d'un utilisateur
     List<Transaction> findByVendorId(UUID vendorId);
-    
+
     // Retrouver la transaction liée à un ticket spécifique
     List<Transaction> findByTicketId(UUID ticketId);
-    
-}
\ No newline at end of file
+
+    // Transactions payées par un PaymentIntent Stripe (webhook)
+    List<Transaction> findByPaymentToken(String paymentToken);
+
+    // Lignes d'une commande panier
+    List<Transaction> findByOrderId(UUID orderId);
+
+    // Mise à jour ciblée (pas de SELECT préalable comme avec save() sur une entité détachée)
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.paymentToken = :token WHERE t.id = :id")
+    int updatePaymentToken(@Param("id") UUID id, @Param("token") String token);
+
+    // Le PaymentIntent unique de la commande est rattaché à toutes ses lignes
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.paymentToken = :token WHERE t.orderId = :orderId")
+    int updateOrderPaymentToken(@Param("orderId") UUID orderId, @Param("token") String token);
+
+    // --- Transitions depuis PENDING : conditionnelles, une seule transition concurrente l'emporte ---
+
+    // 1 si la ligne était encore PENDING, 0 si elle a été confirmée, annulée ou expirée entre-temps
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :status WHERE t.id = :id "
+            + "AND t.status = com.polytech.transactions_service.model.enums.TransactionStatus.PENDING")
+    int updatePendingStatus(@Param("id") UUID id, @Param("status") TransactionStatus status);
+
+    // Confirmation : le contexte de persistance est vidé, l'entité chargée ne peut plus réécrire le statut
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Transaction t SET t.status = com.polytech.transactions_service.model.enums.TransactionStatus.COMPLETED, "
+            + "t.paymentStatus = com.polytech.transactions_service.model.enums.PaymentStatus.PAID, "
+            + "t.validationDate = :validationDate WHERE t.id = :id "
+            + "AND t.status = com.polytech.transactions_service.model.enums.TransactionStatus.PENDING")
+    int completePending(@Param("id") UUID id, @Param("validationDate") LocalDateTime validationDate);
+
+    // Remboursement : COMPLETED -> REFUNDING avant l'appel Stripe ; une seule demande concurrente l'emporte
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.polytech.transactions_service.model.enums.TransactionStatus.REFUNDING "
+            + "WHERE t.id = :id AND t.status = com.polytech.transactions_service.model.enums.TransactionStatus.COMPLETED")
+    int claimRefund(@Param("id") UUID id);
+
+    // Remboursement Stripe en échec : les lignes redeviennent remboursables
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.polytech.transactions_service.model.enums.TransactionStatus.COMPLETED "
+            + "WHERE t.id IN :ids AND t.status = com.polytech.transactions_service.model.enums.TransactionStatus.REFUNDING")
+    int releaseRefundClaim(@Param("ids") List<UUID> ids);
+
+    // --- Expiration des checkouts abandonnés (index partiel idx_transactions_pending_date) ---
+
+    // Parcours par (transaction_date, transaction_id) : les lignes laissées PENDING par le sweeper
+    // (paiement en cours de traitement, annulation Stripe en échec) ne sont pas relues dans le même passage.
+    // SKIP LOCKED + claimed_until : deux instances ne règlent jamais la même ligne en même temps
+    @Query(value = "SELECT * FROM transactions WHERE status = 'PENDING' AND transaction_date < :cutoff "
+            + "AND (transaction_date, transaction_id) > (:afterDate, :afterId) "
+            + "AND (claimed_until IS NULL OR claimed_until < :now) "
+            + "ORDER BY transaction_date, transaction_id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Transaction> lockExpiredPending(@Param("cutoff") LocalDateTime cutoff,
+                                         @Param("afterDate") LocalDateTime afterDate,
+                                         @Param("afterId") UUID afterId,
+                                         @Param("now") LocalDateTime now,
+                                         @Param("limit") int limit);
+
+    // Libérations de tickets en échec, rejouées à chaque passage (index partiel idx_transactions_release_pending)
+    @Query(value = "SELECT * FROM transactions WHERE release_pending "
+            + "AND (claimed_until IS NULL OR claimed_until < :now) "
+            + "LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Transaction> lockPendingReleases(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.claimedUntil = :claimedUntil WHERE t.id IN :ids")
+    int claim(@Param("ids") List<UUID> ids, @Param("claimedUntil") LocalDateTime claimedUntil);
+
+    // Comme updatePendingStatus(EXPIRED), en notant le ticket à libérer dans la même écriture
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.polytech.transactions_service.model.enums.TransactionStatus.EXPIRED, "
+            + "t.releasePending = true WHERE t.id = :id "
+            + "AND t.status = com.polytech.transactions_service.model.enums.TransactionStatus.PENDING")
+    int expirePending(@Param("id") UUID id);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Transaction t SET t.releasePending = false, t.claimedUntil = null WHERE t.id = :id")
+    int markReleased(@Param("id") UUID id);
+
+    @Query("SELECT MIN(t.transactionDate) FROM Transaction t "
+            + "WHERE t.status = com.polytech.transactions_service.model.enums.TransactionStatus.PENDING")
+    LocalDateTime findOldestPendingDate();
+
+    // --- Backfill des vendorId (parcours par id croissant, reprise possible) ---
+
+    List<TransactionTicketRef> findByVendorIdIsNullOrderByIdAsc(Pageable limit);
+
+    List<TransactionTicketRef> findByVendorIdIsNullAndIdGreaterThanOrderByIdAsc(UUID afterId, Pageable limit);
+
+    // --- Pagination keyset (index idx_transactions_*_date) ---
+
+    @Query(SUMMARY_SELECT + "WHERE t.buyerId = :buyerId" + KEYSET_ORDER)
+    List<TransactionSummaryDto> findBuyerPage(@Param("buyerId") UUID buyerId, Pageable limit);
+
+    @Query(SUMMARY_SELECT + "WHERE t.buyerId = :buyerId "
+            + "AND (t.transactionDate, t.id) < (:date, :id)" + KEYSET_ORDER)
+    List<TransactionSummaryDto> findBuyerPageAfter(@Param("buyerId") UUID buyerId,
+                                                   @Param("date") LocalDateTime date,
+                                                   @Param("id") UUID id,
+                                                   Pageable limit);
+
+    @Query(SUMMARY_SELECT + "WHERE t.vendorId = :vendorId" + KEYSET_ORDER)
+    List<TransactionSummaryDto> findVendorPage(@Param("vendorId") UUID vendorId, Pageable limit);
+
+    @Query(SUMMARY_SELECT + "WHERE t.vendorId = :vendorId "
+            + "AND (t.transactionDate, t.id) < (:date, :id)" + KEYSET_ORDER)
+    List<TransactionSummaryDto> findVendorPageAfter(@Param("vendorId") UUID vendorId,
+                                                    @Param("date") LocalDateTime date,
+                                                    @Param("id") UUID id,
+                                                    Pageable limit);
+}
@@ -0,0 +1,43 @@
+package com.polytech.transactions_service.repository;
+
+import com.polytech.transactions_service.model.VendorBalance;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface VendorBalanceRepository extends JpaRepository<VendorBalance, UUID> {
+
+    // Ajoute un delta au solde (ligne créée au besoin) sans lecture préalable
+    @Modifying
+    @Query(value = "INSERT INTO vendor_balances (vendor_id, balance_cents, updated_at) "
+            + "VALUES (:vendorId, :delta, :now) "
+            + "ON CONFLICT (vendor_id) DO UPDATE SET "
+            + "balance_cents = vendor_balances.balance_cents + EXCLUDED.balance_cents, "
+            + "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int addToBalance(@Param("vendorId") UUID vendorId,
+                     @Param("delta") long deltaCents,
+                     @Param("now") LocalDateTime now);
+
+    // Débit conditionnel : 0 ligne modifiée si le solde ne couvre plus le montant
+    @Modifying
+    @Query("UPDATE VendorBalance b SET b.balanceCents = b.balanceCents - :amount, b.updatedAt = :now "
+            + "WHERE b.vendorId = :vendorId AND b.balanceCents >= :amount")
+    int debitIfCovered(@Param("vendorId") UUID vendorId,
+                       @Param("amount") long amountCents,
+                       @Param("now") LocalDateTime now);
+
+    // Parcours des vendeurs à payer par curseur sur vendor_id
+    @Query("SELECT b FROM VendorBalance b WHERE b.balanceCents >= :minCents AND b.vendorId > :afterVendorId "
+            + "ORDER BY b.vendorId")
+    List<VendorBalance> findPayableAfter(@Param("minCents") long minCents,
+                                         @Param("afterVendorId") UUID afterVendorId,
+                                         Pageable limit);
+}
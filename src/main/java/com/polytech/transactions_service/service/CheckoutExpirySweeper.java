@@ -0,0 +1,289 @@
+package com.polytech.transactions_service.service;
+
+import com.polytech.transactions_service.client.PaymentGateway;
+import com.polytech.transactions_service.client.TicketCache;
+import com.polytech.transactions_service.client.TicketClient;
+import com.polytech.transactions_service.config.IoThreadFactory;
+import com.polytech.transactions_service.exception.DependencyUnavailableException;
+import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.enums.TransactionStatus;
+import com.polytech.transactions_service.repository.TransactionRepository;
+import com.stripe.exception.StripeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Expire les checkouts PENDING abandonnés et libère leurs tickets.
+ * Le PaymentIntent est consulté avant toute décision : un paiement abouti complète la transaction,
+ * un paiement en cours de traitement est laissé au passage suivant (ou au webhook), les autres sont annulés.
+ * Une ligne ne passe EXPIRED qu'après une annulation réussie, par un UPDATE conditionnel (status = 'PENDING') :
+ * face à une confirmation ou une autre instance du sweeper, une seule transition l'emporte,
+ * et seul son gagnant libère le ticket. Les appels distants sont faits avec une concurrence bornée.
+ * Chaque paquet est réservé (FOR UPDATE SKIP LOCKED + claimed_until) avant d'appeler Stripe : deux instances
+ * ne règlent pas la même ligne. Le ticket à libérer est noté avec le passage EXPIRED (release_pending) ;
+ * une libération en échec est rejouée aux passages suivants.
+ */
+@Component
+@ConditionalOnProperty(name = "checkout.sweeper.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class CheckoutExpirySweeper {
+
+    // Début du parcours keyset (transaction_date, transaction_id) de chaque passage
+    private static final LocalDateTime SWEEP_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final UUID SWEEP_START_ID = new UUID(0, 0);
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionService transactionService;
+    private final TicketClient ticketClient;
+    private final TicketCache ticketCache;
+    private final ClientSecretCache clientSecretCache;
+    private final PaymentGateway paymentGateway;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration checkoutExpiry;
+    private final Duration claimLease;
+    private final int batchSize;
+    private final ExecutorService releases;
+
+    // Retard du balayage : âge au-delà de l'expiration du plus vieux checkout encore PENDING
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final Counter expiredCounter;
+    private final Counter completedCounter;
+    private final Counter deferredCounter;
+    private final Counter releaseFailures;
+    private final Timer sweepTimer;
+
+    public CheckoutExpirySweeper(TransactionRepository transactionRepository,
+                                 TransactionService transactionService,
+                                 TicketClient ticketClient,
+                                 TicketCache ticketCache,
+                                 ClientSecretCache clientSecretCache,
+                                 PaymentGateway paymentGateway,
+                                 MeterRegistry meterRegistry,
+                                 PlatformTransactionManager transactionManager,
+                                 IoThreadFactory ioThreadFactory,
+                                 @Value("${checkout.expiry:15m}") Duration checkoutExpiry,
+                                 @Value("${checkout.sweeper.claim-lease:2m}") Duration claimLease,
+                                 @Value("${checkout.sweeper.batch-size:200}") int batchSize,
+                                 @Value("${checkout.sweeper.concurrency:8}") int concurrency) {
+        this.transactionRepository = transactionRepository;
+        this.transactionService = transactionService;
+        this.ticketClient = ticketClient;
+        this.ticketCache = ticketCache;
+        this.clientSecretCache = clientSecretCache;
+        this.paymentGateway = paymentGateway;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkoutExpiry = checkoutExpiry;
+        this.claimLease = claimLease;
+        this.batchSize = batchSize;
+        this.releases = Executors.newFixedThreadPool(concurrency, ioThreadFactory.named("checkout-sweeper-"));
+
+        Gauge.builder("checkout.sweeper.lag", lagSeconds, AtomicLong::get)
+                .baseUnit("seconds")
+                .description("Retard du plus vieux checkout PENDING au-delà de son expiration")
+                .register(meterRegistry);
+        this.expiredCounter = Counter.builder("checkout.sweeper.expired")
+                .description("Checkouts passés EXPIRED")
+                .register(meterRegistry);
+        this.completedCounter = Counter.builder("checkout.sweeper.completed")
+                .description("Checkouts expirés mais payés, complétés par le sweeper")
+                .register(meterRegistry);
+        this.deferredCounter = Counter.builder("checkout.sweeper.deferred")
+                .description("Checkouts laissés PENDING (paiement en cours, Stripe indisponible)")
+                .register(meterRegistry);
+        this.releaseFailures = Counter.builder("checkout.sweeper.release.failures")
+                .description("Libérations de ticket en échec après expiration (rejouées au passage suivant)")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("checkout.sweeper.duration")
+                .description("Durée d'un passage du sweeper")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${checkout.sweeper.interval-ms:30000}")
+    public void sweep() {
+        sweepTimer.record(() -> {
+            retryPendingReleases();
+            LocalDateTime cutoff = LocalDateTime.now().minus(checkoutExpiry);
+            LocalDateTime afterDate = SWEEP_START;
+            UUID afterId = SWEEP_START_ID;
+            List<Transaction> batch;
+            do {
+                LocalDateTime from = afterDate;
+                UUID fromId = afterId;
+                batch = claim(now -> transactionRepository.lockExpiredPending(cutoff, from, fromId, now, batchSize));
+                if (!batch.isEmpty()) {
+                    settleAll(batch);
+                    Transaction last = batch.get(batch.size() - 1);
+                    afterDate = last.getTransactionDate();
+                    afterId = last.getId();
+                }
+            } while (batch.size() == batchSize);
+            updateLag();
+        });
+    }
+
+    // Verrouille puis réserve le paquet dans une transaction courte, relâchée avant les appels distants
+    private List<Transaction> claim(Function<LocalDateTime, List<Transaction>> lock) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Transaction> claimed = transactionTemplate.execute(status -> {
+            List<Transaction> rows = lock.apply(now);
+            if (!rows.isEmpty()) {
+                transactionRepository.claim(rows.stream().map(Transaction::getId).toList(), now.plus(claimLease));
+            }
+            return rows;
+        });
+        return claimed == null ? List.of() : claimed;
+    }
+
+    // Tickets de checkouts déjà EXPIRED dont la libération a échoué
+    private void retryPendingReleases() {
+        List<Transaction> batch;
+        do {
+            batch = claim(now -> transactionRepository.lockPendingReleases(now, batchSize));
+            List<CompletableFuture<Void>> futures = new ArrayList<>(batch.size());
+            for (Transaction transaction : batch) {
+                futures.add(CompletableFuture.runAsync(() -> release(transaction), releases));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } while (batch.size() == batchSize);
+    }
+
+    private void settleAll(List<Transaction> batch) {
+        // Les lignes d'une commande panier partagent un PaymentIntent : une seule décision pour toutes
+        Map<String, List<Transaction>> byPayment = new LinkedHashMap<>();
+        List<Transaction> withoutPayment = new ArrayList<>();
+        for (Transaction transaction : batch) {
+            if (transaction.getPaymentToken() == null) {
+                withoutPayment.add(transaction);
+            } else {
+                byPayment.computeIfAbsent(transaction.getPaymentToken(), token -> new ArrayList<>()).add(transaction);
+            }
+        }
+
+        AtomicInteger expired = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(batch.size());
+        for (Transaction transaction : withoutPayment) {
+            futures.add(CompletableFuture.runAsync(() -> expire(List.of(transaction), expired), releases));
+        }
+        byPayment.forEach((paymentId, lines) ->
+                futures.add(CompletableFuture.runAsync(() -> settle(paymentId, lines, expired), releases)));
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        if (expired.get() > 0) {
+            log.info("{} checkouts PENDING expirés", expired.get());
+        }
+    }
+
+    private void settle(String paymentId, List<Transaction> lines, AtomicInteger expired) {
+        PaymentGateway.Payment payment;
+        try {
+            payment = paymentGateway.retrievePayment(paymentId);
+        } catch (StripeException | DependencyUnavailableException e) {
+            log.warn("PaymentIntent {} illisible, checkout laissé PENDING jusqu'au prochain passage", paymentId, e);
+            deferredCounter.increment(lines.size());
+            return;
+        }
+
+        switch (payment.status()) {
+            // Payé après l'expiration (ou webhook perdu) : l'acheteur garde ses tickets
+            case "succeeded" -> complete(lines);
+            // Paiement en cours : le webhook ou un prochain passage tranchera
+            case "processing", "requires_capture" -> deferredCounter.increment(lines.size());
+            case "canceled" -> expire(lines, expired);
+            default -> {
+                try {
+                    paymentGateway.cancelPayment(paymentId);
+                } catch (StripeException | DependencyUnavailableException e) {
+                    // Ex: paiement abouti entre la lecture et l'annulation ; relu au prochain passage
+                    log.warn("Annulation du PaymentIntent {} impossible, checkout laissé PENDING", paymentId, e);
+                    deferredCounter.increment(lines.size());
+                    return;
+                }
+                expire(lines, expired);
+            }
+        }
+    }
+
+    private void complete(List<Transaction> lines) {
+        for (Transaction transaction : lines) {
+            try {
+                transactionService.completeTransaction(transaction.getId());
+                completedCounter.increment();
+                log.info("Checkout {} payé après expiration, transaction complétée", transaction.getId());
+            } catch (RuntimeException e) {
+                log.error("Complétion du checkout payé {} impossible", transaction.getId(), e);
+            }
+        }
+    }
+
+    private void expire(List<Transaction> lines, AtomicInteger expired) {
+        for (Transaction transaction : lines) {
+            int updated;
+            try {
+                updated = transactionRepository.expirePending(transaction.getId());
+            } catch (RuntimeException e) {
+                log.error("Expiration du checkout {} impossible", transaction.getId(), e);
+                continue;
+            }
+            if (updated == 0) {
+                continue; // Confirmé, annulé ou expiré par une autre instance entre-temps : rien à libérer ici
+            }
+            expiredCounter.increment();
+            expired.incrementAndGet();
+            clientSecretCache.evict(transaction.getId());
+            release(transaction);
+        }
+    }
+
+    // release_pending reste posé tant que la libération n'a pas réussi : rejouée au passage suivant
+    private void release(Transaction transaction) {
+        try {
+            ticketClient.releaseTicket(transaction.getTicketId());
+            ticketCache.invalidate(transaction.getTicketId());
+        } catch (Exception e) {
+            releaseFailures.increment();
+            log.error("Erreur libération ticket {} (transaction expirée {}), rejouée au prochain passage",
+                    transaction.getTicketId(), transaction.getId(), e);
+            return;
+        }
+        try {
+            transactionRepository.markReleased(transaction.getId());
+        } catch (RuntimeException e) {
+            log.error("Libération du ticket {} non enregistrée (transaction {})", transaction.getTicketId(), transaction.getId(), e);
+        }
+    }
+
+    private void updateLag() {
+        LocalDateTime oldest = transactionRepository.findOldestPendingDate();
+        long lag = oldest == null ? 0
+                : Duration.between(oldest.plus(checkoutExpiry), LocalDateTime.now()).getSeconds();
+        lagSeconds.set(Math.max(0, lag));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        releases.shutdownNow();
+    }
+}
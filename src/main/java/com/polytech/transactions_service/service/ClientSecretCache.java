@@ -0,0 +1,40 @@
+package com.polytech.transactions_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Cache local des clientSecret Stripe des checkouts en cours.
+ * Permet de reprendre un paiement sans refaire un PaymentIntent.retrieve.
+ * Durée de vie alignée sur l'expiration du checkout ; borné en taille.
+ */
+@Component
+public class ClientSecretCache {
+
+    private final Cache<UUID, String> secrets;
+
+    public ClientSecretCache(@Value("${checkout.expiry:15m}") Duration checkoutExpiry,
+                             @Value("${checkout.secret-cache.max-size:10000}") long maxSize) {
+        this.secrets = Caffeine.newBuilder()
+                .expireAfterWrite(checkoutExpiry)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public void put(UUID transactionId, String clientSecret) {
+        secrets.put(transactionId, clientSecret);
+    }
+
+    public String get(UUID transactionId) {
+        return secrets.getIfPresent(transactionId);
+    }
+
+    public void evict(UUID transactionId) {
+        secrets.invalidate(transactionId);
+    }
+}
@@ -0,0 +1,100 @@
+package com.polytech.transactions_service.service;
+
+import com.polytech.transactions_service.model.FeeRule;
+import com.polytech.transactions_service.model.Money;
+import com.polytech.transactions_service.repository.FeeRuleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Barème des commissions : règle par événement, sinon par vendeur, sinon taux par défaut.
+ * Les règles sont tenues dans un snapshot immuable remplacé d'un bloc à chaque rafraîchissement :
+ * le calcul d'une commission ne fait aucune requête et n'alloue rien.
+ */
+@Service
+@Slf4j
+public class FeeScheduleService {
+
+    record Rule(int rateBps, long fixedCents) {
+
+        long feeFor(long amountCents) {
+            // La commission ne dépasse jamais le montant payé
+            return Math.min(amountCents, Money.percentOf(amountCents, rateBps) + fixedCents);
+        }
+    }
+
+    record Snapshot(Rule defaultRule, Map<UUID, Rule> byEvent, Map<UUID, Rule> byVendor, LocalDateTime loadedAt) {
+    }
+
+    private final FeeRuleRepository feeRuleRepository;
+    private final Rule defaultRule;
+    private volatile Snapshot snapshot;
+
+    public FeeScheduleService(FeeRuleRepository feeRuleRepository,
+                              @Value("${fees.default-rate-bps:500}") int defaultRateBps,
+                              @Value("${fees.default-fixed-cents:0}") long defaultFixedCents) {
+        this.feeRuleRepository = feeRuleRepository;
+        this.defaultRule = new Rule(defaultRateBps, defaultFixedCents);
+        // Taux par défaut seul jusqu'au premier chargement
+        this.snapshot = new Snapshot(defaultRule, Map.of(), Map.of(), null);
+    }
+
+    public long platformFee(UUID vendorId, UUID eventId, long amountCents) {
+        Snapshot current = snapshot;
+        Rule rule = eventId != null ? current.byEvent().get(eventId) : null;
+        if (rule == null && vendorId != null) {
+            rule = current.byVendor().get(vendorId);
+        }
+        return (rule != null ? rule : current.defaultRule()).feeFor(amountCents);
+    }
+
+    /**
+     * Recharge toutes les règles (une requête) et publie le nouveau snapshot.
+     * Les autres instances prennent en compte une modification au prochain passage.
+     */
+    @Scheduled(fixedDelayString = "${fees.refresh-interval-ms:60000}")
+    public void refresh() {
+        Map<UUID, Rule> byEvent = new HashMap<>();
+        Map<UUID, Rule> byVendor = new HashMap<>();
+        for (FeeRule feeRule : feeRuleRepository.findAll()) {
+            Rule rule = new Rule(feeRule.getRateBps(), feeRule.getFixedCents());
+            if (feeRule.getEventId() != null) {
+                byEvent.put(feeRule.getEventId(), rule);
+            } else if (feeRule.getVendorId() != null) {
+                byVendor.put(feeRule.getVendorId(), rule);
+            }
+        }
+        snapshot = new Snapshot(defaultRule, Map.copyOf(byEvent), Map.copyOf(byVendor), LocalDateTime.now());
+        log.debug("Barème des commissions rechargé : {} règles événement, {} règles vendeur",
+                byEvent.size(), byVendor.size());
+    }
+
+    public List<FeeRule> getRules() {
+        return feeRuleRepository.findAll();
+    }
+
+    public FeeRule saveRule(FeeRule rule) {
+        if ((rule.getVendorId() == null) == (rule.getEventId() == null)) {
+            throw new IllegalArgumentException("Une règle porte sur un vendeur ou sur un événement, pas les deux");
+        }
+        if (rule.getRateBps() < 0 || rule.getRateBps() > 10_000 || rule.getFixedCents() < 0) {
+            throw new IllegalArgumentException("Taux (0 à 10000 points de base) ou part fixe invalide");
+        }
+        FeeRule saved = feeRuleRepository.save(rule);
+        refresh();
+        return saved;
+    }
+
+    public void deleteRule(Long id) {
+        feeRuleRepository.deleteById(id);
+        refresh();
+    }
+}
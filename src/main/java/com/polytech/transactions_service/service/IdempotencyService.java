@@ -0,0 +1,258 @@
+package com.polytech.transactions_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.polytech.transactions_service.model.IdempotencyRecord;
+import com.polytech.transactions_service.model.enums.IdempotencyStatus;
+import com.polytech.transactions_service.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Idempotence des créations de transaction (en-tête Idempotency-Key).
+ * Seuls le statut HTTP et l'ID de la ressource créée sont enregistrés : la réponse (qui contient le
+ * clientSecret Stripe) est reconstruite à chaque rejeu et n'est jamais écrite en base.
+ * - Réponse terminée : ID lu depuis le cache local, sinon depuis la table idempotency_keys.
+ * - Doublon concurrent sur la même instance : attend le résultat de la première requête.
+ * - Doublon concurrent sur une autre instance (ligne IN_PROGRESS) : 409, le client réessaiera.
+ * - Ligne IN_PROGRESS dont le bail a expiré (instance arrêtée en cours de requête) : reprise par la requête suivante.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Duration lease;
+    private final Cache<String, StoredResponse> responses;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${idempotency.ttl:24h}") Duration ttl,
+                              @Value("${idempotency.wait-timeout:30s}") Duration waitTimeout,
+                              @Value("${idempotency.lease:2m}") Duration lease,
+                              @Value("${idempotency.cache.max-size:10000}") long maxSize) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.lease = lease;
+        this.responses = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    record StoredResponse(String requestHash, int status, UUID resourceId) {
+    }
+
+    /**
+     * Exécute l'action une seule fois par (acheteur, clé) et renvoie 201 avec son résultat.
+     * Un doublon reçoit 201 avec replay(resourceId(résultat)), relu à partir de l'état courant.
+     */
+    public <T> ResponseEntity<?> execute(String buyerId, String idempotencyKey, Object request,
+                                         Supplier<T> action, Function<T, UUID> resourceId,
+                                         Function<UUID, ?> replay) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key invalide (1 à " + MAX_KEY_LENGTH + " caractères)");
+        }
+        String scopedKey = buyerId + ":" + idempotencyKey;
+        String requestHash = hash(request);
+
+        StoredResponse cached = responses.getIfPresent(scopedKey);
+        if (cached != null) {
+            return replay(cached, requestHash, replay);
+        }
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> first = inFlight.putIfAbsent(scopedKey, mine);
+        if (first != null) {
+            // Même clé déjà en cours sur cette instance : pas de second appel Feign/Stripe
+            return replay(await(first), requestHash, replay);
+        }
+        try {
+            Execution<T> execution = executeOnce(scopedKey, requestHash, action, resourceId);
+            mine.complete(execution.stored());
+            if (execution.result() == null) {
+                return replay(execution.stored(), requestHash, replay);
+            }
+            // Première exécution : le résultat est renvoyé tel quel, sans relecture
+            return ResponseEntity.status(execution.stored().status()).body(execution.result());
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scopedKey, mine);
+        }
+    }
+
+    // Résultat de executeOnce : result est null quand la réponse vient d'une exécution précédente
+    private record Execution<T>(StoredResponse stored, T result) {
+    }
+
+    private <T> Execution<T> executeOnce(String scopedKey, String requestHash, Supplier<T> action,
+                                         Function<T, UUID> resourceId) {
+        // La requête précédente a pu se terminer entre la lecture du cache et l'inscription dans inFlight
+        StoredResponse cached = responses.getIfPresent(scopedKey);
+        if (cached != null) {
+            return new Execution<>(cached, null);
+        }
+
+        StoredResponse existing = reserve(scopedKey, requestHash);
+        if (existing != null) {
+            return new Execution<>(existing, null);
+        }
+
+        T result;
+        StoredResponse stored;
+        try {
+            result = action.get();
+            stored = new StoredResponse(requestHash, HttpStatus.CREATED.value(), resourceId.apply(result));
+        } catch (RuntimeException e) {
+            // Échec : la clé est libérée pour que le client puisse réessayer
+            releaseQuietly(scopedKey);
+            throw e;
+        }
+        responses.put(scopedKey, stored);
+        try {
+            idempotencyRecordRepository.complete(scopedKey, stored.status(), stored.resourceId());
+        } catch (RuntimeException e) {
+            // L'action a réussi : la réponse est renvoyée et rejouée depuis le cache local,
+            // la ligne IN_PROGRESS sera reprise à l'expiration de son bail
+            log.error("Réponse de l'Idempotency-Key {} non enregistrée en base", scopedKey, e);
+        }
+        return new Execution<>(stored, result);
+    }
+
+    private void releaseQuietly(String scopedKey) {
+        try {
+            idempotencyRecordRepository.deleteById(scopedKey);
+        } catch (RuntimeException e) {
+            log.warn("Impossible de libérer l'Idempotency-Key {}, reprise à l'expiration du bail", scopedKey, e);
+        }
+    }
+
+    /**
+     * Inscrit la clé (IN_PROGRESS). Renvoie null si l'appelant doit exécuter l'action,
+     * ou la réponse déjà enregistrée pour cette clé.
+     */
+    private StoredResponse reserve(String scopedKey, String requestHash) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                idempotencyRecordRepository.saveAndFlush(
+                        new IdempotencyRecord(scopedKey, requestHash, now.plus(ttl), now.plus(lease)));
+                return null;
+            } catch (DataIntegrityViolationException e) {
+                IdempotencyRecord record = idempotencyRecordRepository.findById(scopedKey).orElse(null);
+                if (record == null) {
+                    continue; // Supprimée entre-temps (échec ou nettoyage) : nouvelle tentative
+                }
+                if (record.getExpiresAt().isBefore(LocalDateTime.now())) {
+                    idempotencyRecordRepository.deleteById(scopedKey); // Pas encore nettoyée
+                    continue;
+                }
+                if (record.getStatus() == IdempotencyStatus.IN_PROGRESS) {
+                    LocalDateTime now = LocalDateTime.now();
+                    if (record.getLockedUntil().isAfter(now)) {
+                        throw new ResponseStatusException(HttpStatus.CONFLICT,
+                                "Une requête avec cette Idempotency-Key est déjà en cours");
+                    }
+                    if (!record.getRequestHash().equals(requestHash)) {
+                        throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                                "Idempotency-Key déjà utilisée pour une requête différente");
+                    }
+                    // Bail expiré : la requête précédente a été interrompue, elle est reprise ici
+                    if (idempotencyRecordRepository.takeOver(scopedKey, now, now.plus(lease)) == 1) {
+                        log.warn("Idempotency-Key {} reprise après expiration du bail", scopedKey);
+                        return null;
+                    }
+                    continue; // Reprise ou terminée par une autre requête entre-temps
+                }
+                StoredResponse stored = new StoredResponse(record.getRequestHash(),
+                        record.getResponseStatus(), record.getResourceId());
+                responses.put(scopedKey, stored);
+                return stored;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "Idempotency-Key en cours de modification");
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> first) {
+        try {
+            return first.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // Même erreur que la première requête
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Une requête avec cette Idempotency-Key est déjà en cours");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Attente interrompue");
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash, Function<UUID, ?> replay) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key déjà utilisée pour une requête différente");
+        }
+        return ResponseEntity.status(stored.status()).body(replay.apply(stored.resourceId()));
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("{} clés d'idempotence expirées supprimées", deleted);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(toJson(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Sérialisation JSON impossible", e);
+        }
+    }
+}
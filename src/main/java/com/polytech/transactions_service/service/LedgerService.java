@@ -0,0 +1,252 @@
+package com.polytech.transactions_service.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.polytech.transactions_service.dto.CursorPage;
+import com.polytech.transactions_service.dto.LedgerEntryDto;
+import com.polytech.transactions_service.dto.PayoutRunResult;
+import com.polytech.transactions_service.dto.VendorBalanceDto;
+import com.polytech.transactions_service.event.PayoutCreatedEvent;
+import com.polytech.transactions_service.model.LedgerEntry;
+import com.polytech.transactions_service.model.Money;
+import com.polytech.transactions_service.model.Payout;
+import com.polytech.transactions_service.model.TimeOrderedUuid;
+import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.VendorBalance;
+import com.polytech.transactions_service.model.enums.LedgerAccount;
+import com.polytech.transactions_service.model.enums.LedgerEntryType;
+import com.polytech.transactions_service.repository.LedgerEntryRepository;
+import com.polytech.transactions_service.repository.PayoutRepository;
+import com.polytech.transactions_service.repository.VendorBalanceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Grand livre des sommes dues aux vendeurs, en partie double.
+ * Ventes et remboursements sont passés dans la transaction qui change le statut, et le solde du
+ * vendeur (vendor_balances) est mis à jour au même moment : lire un solde = lire une ligne.
+ * Les versements débitent ce solde par UPDATE conditionnel, jamais en dessous de zéro.
+ */
+@Service
+@Slf4j
+public class LedgerService {
+
+    private static final UUID FIRST_VENDOR = new UUID(0, 0);
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final VendorBalanceRepository vendorBalanceRepository;
+    private final PayoutRepository payoutRepository;
+    private final OutboxService outboxService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final long minPayoutCents;
+    private final int pageSize;
+
+    public LedgerService(LedgerEntryRepository ledgerEntryRepository,
+                         VendorBalanceRepository vendorBalanceRepository,
+                         PayoutRepository payoutRepository,
+                         OutboxService outboxService,
+                         ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${ledger.payout.min-amount-cents:1000}") long minPayoutCents,
+                         @Value("${ledger.payout.page-size:500}") int pageSize) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.vendorBalanceRepository = vendorBalanceRepository;
+        this.payoutRepository = payoutRepository;
+        this.outboxService = outboxService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.minPayoutCents = minPayoutCents;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Vente : l'acheteur paie le total, réparti entre le vendeur et la commission.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordSale(Transaction transaction) {
+        post(transaction, LedgerEntryType.SALE, 1);
+    }
+
+    /**
+     * Remboursement : écriture inverse de la vente. Le solde peut devenir négatif si le vendeur
+     * a déjà été payé ; il est alors repris sur les ventes suivantes.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRefund(Transaction transaction) {
+        post(transaction, LedgerEntryType.REFUND, -1);
+    }
+
+    private void post(Transaction transaction, LedgerEntryType type, int sign) {
+        UUID vendorId = transaction.getVendorId();
+        if (vendorId == null) {
+            // Antérieure au backfill des vendorId : rien à imputer, le backfill puis un rattrapage s'en chargeront
+            log.warn("Transaction {} sans vendorId : écriture {} non passée au grand livre", transaction.getId(), type);
+            return;
+        }
+        long gross = transaction.getTotalAmountCents();
+        long vendor = transaction.getVendorAmountCents();
+        long fee = transaction.getPlatformFeeCents();
+        UUID journalId = TimeOrderedUuid.next();
+        LocalDateTime now = LocalDateTime.now();
+
+        ledgerEntryRepository.saveAll(List.of(
+                entry(journalId, type, LedgerAccount.BUYER_CLEARING, null, transaction.getId(), -sign * gross, now),
+                entry(journalId, type, LedgerAccount.VENDOR_PAYABLE, vendorId, transaction.getId(), sign * vendor, now),
+                entry(journalId, type, LedgerAccount.PLATFORM_REVENUE, null, transaction.getId(), sign * fee, now)));
+        vendorBalanceRepository.addToBalance(vendorId, sign * vendor, now);
+    }
+
+    private static LedgerEntry entry(UUID journalId, LedgerEntryType type, LedgerAccount account, UUID vendorId,
+                                     UUID transactionId, long amountCents, LocalDateTime now) {
+        return LedgerEntry.builder()
+                .journalId(journalId)
+                .type(type)
+                .account(account)
+                .vendorId(vendorId)
+                .transactionId(transactionId)
+                .amountCents(amountCents)
+                .createdAt(now)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public VendorBalanceDto getBalance(UUID vendorId) {
+        return vendorBalanceRepository.findById(vendorId)
+                .map(b -> new VendorBalanceDto(vendorId, Money.toDecimal(b.getBalanceCents()), b.getUpdatedAt()))
+                .orElseGet(() -> new VendorBalanceDto(vendorId, 0, null));
+    }
+
+    /**
+     * Écritures du vendeur, de la plus récente à la plus ancienne. Le curseur est le dernier entry_id lu.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<LedgerEntry> getEntries(UUID vendorId, String cursor, int size) {
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<LedgerEntry> rows;
+        if (cursor == null) {
+            rows = ledgerEntryRepository.findVendorPage(vendorId, limit);
+        } else {
+            long afterId;
+            try {
+                afterId = Long.parseLong(cursor);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Curseur invalide");
+            }
+            rows = ledgerEntryRepository.findVendorPageAfter(vendorId, afterId, limit);
+        }
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<LedgerEntry> items = rows.subList(0, size);
+        return new CursorPage<>(items, String.valueOf(items.get(size - 1).getId()));
+    }
+
+    /**
+     * Relevé complet du vendeur en NDJSON, écrit au fil de la lecture.
+     */
+    @Transactional(readOnly = true)
+    public void exportEntries(UUID vendorId, OutputStream out) throws IOException {
+        ObjectWriter ndjsonWriter = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long count = 0;
+        try (Stream<LedgerEntryDto> rows = ledgerEntryRepository.streamVendorEntries(vendorId);
+             SequenceWriter writer = ndjsonWriter.writeValues(out)) {
+            Iterator<LedgerEntryDto> it = rows.iterator();
+            while (it.hasNext()) {
+                writer.write(it.next());
+                count++;
+            }
+        }
+        if (count > 0) {
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Crée un versement pour chaque vendeur dont le solde atteint le minimum.
+     * Parcours de vendor_balances par pages (curseur sur vendor_id), une transaction courte par vendeur :
+     * le grand livre n'est jamais agrégé et un échec n'annule pas les versements déjà créés.
+     */
+    public PayoutRunResult runPayouts(Long minAmountCents) {
+        long min = Math.max(1, minAmountCents != null ? minAmountCents : minPayoutCents);
+        long start = System.currentTimeMillis();
+        long scanned = 0;
+        long payouts = 0;
+        long totalCents = 0;
+
+        UUID after = FIRST_VENDOR;
+        List<VendorBalance> page;
+        do {
+            page = vendorBalanceRepository.findPayableAfter(min, after, PageRequest.of(0, pageSize));
+            for (VendorBalance balance : page) {
+                scanned++;
+                Boolean paid = transactionTemplate.execute(status -> payOut(balance.getVendorId(), balance.getBalanceCents()));
+                if (Boolean.TRUE.equals(paid)) {
+                    payouts++;
+                    totalCents += balance.getBalanceCents();
+                }
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getVendorId();
+            }
+        } while (page.size() == pageSize);
+
+        PayoutRunResult result = PayoutRunResult.builder()
+                .vendorsScanned(scanned)
+                .payouts(payouts)
+                .totalAmount(Money.toDecimal(totalCents))
+                .durationMs(System.currentTimeMillis() - start)
+                .build();
+        log.info("Run de versements terminé : {}", result);
+        return result;
+    }
+
+    private boolean payOut(UUID vendorId, long amountCents) {
+        LocalDateTime now = LocalDateTime.now();
+        // Le solde a pu baisser depuis la lecture (remboursement) : dans ce cas, rien n'est versé
+        if (vendorBalanceRepository.debitIfCovered(vendorId, amountCents, now) == 0) {
+            log.info("Solde du vendeur {} modifié pendant le run, versement reporté", vendorId);
+            return false;
+        }
+        Payout payout = payoutRepository.save(Payout.builder()
+                .vendorId(vendorId)
+                .amountCents(amountCents)
+                .build());
+        UUID journalId = TimeOrderedUuid.next();
+        ledgerEntryRepository.saveAll(List.of(
+                payoutEntry(journalId, LedgerAccount.VENDOR_PAYABLE, vendorId, payout.getId(), -amountCents, now),
+                payoutEntry(journalId, LedgerAccount.PAYOUT_CLEARING, null, payout.getId(), amountCents, now)));
+        outboxService.enqueue("vendor-payout-created", vendorId, PayoutCreatedEvent.builder()
+                .payoutId(payout.getId())
+                .vendorId(vendorId)
+                .amountCents(amountCents)
+                .build());
+        return true;
+    }
+
+    private static LedgerEntry payoutEntry(UUID journalId, LedgerAccount account, UUID vendorId, UUID payoutId,
+                                           long amountCents, LocalDateTime now) {
+        LedgerEntry entry = entry(journalId, LedgerEntryType.PAYOUT, account, vendorId, null, amountCents, now);
+        entry.setPayoutId(payoutId);
+        return entry;
+    }
+}
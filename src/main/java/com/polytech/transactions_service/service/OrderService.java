@@ -0,0 +1,456 @@
+package com.polytech.transactions_service.service;
+
+import com.polytech.transactions_service.client.DependencyGuard;
+import com.polytech.transactions_service.client.PaymentGateway;
+import com.polytech.transactions_service.client.TicketCache;
+import com.polytech.transactions_service.client.TicketClient;
+import com.polytech.transactions_service.config.IoThreadFactory;
+import com.polytech.transactions_service.dto.OrderCheckoutResult;
+import com.polytech.transactions_service.dto.TicketDto;
+import com.polytech.transactions_service.event.TransactionRefundedEvent;
+import com.polytech.transactions_service.exception.DependencyUnavailableException;
+import com.polytech.transactions_service.model.Money;
+import com.polytech.transactions_service.model.TimeOrderedUuid;
+import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.enums.PaymentStatus;
+import com.polytech.transactions_service.model.enums.TransactionStatus;
+import com.polytech.transactions_service.repository.TransactionRepository;
+import com.stripe.exception.StripeException;
+import feign.FeignException;
+import feign.RetryableException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Checkout panier : N tickets réservés en parallèle (tout ou rien), une ligne par ticket insérée
+ * en un seul batch sous un même orderId, et un seul PaymentIntent pour le total.
+ * Confirmation, annulation et remboursement se font ensuite à l'échelle de la commande.
+ */
+@Service
+@Slf4j
+public class OrderService {
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionService transactionService;
+    private final TicketClient ticketClient;
+    private final TicketCache ticketCache;
+    private final OutboxService outboxService;
+    private final SalesRollupService salesRollupService;
+    private final LedgerService ledgerService;
+    private final FeeScheduleService feeScheduleService;
+    private final PaymentGateway paymentGateway;
+    private final ClientSecretCache clientSecretCache;
+    private final TransactionOperations transactionOperations;
+    private final ExecutorService ticketCalls;
+    private final int maxTickets;
+    private final Duration checkoutExpiry;
+
+    public OrderService(TransactionRepository transactionRepository,
+                        TransactionService transactionService,
+                        TicketClient ticketClient,
+                        TicketCache ticketCache,
+                        OutboxService outboxService,
+                        SalesRollupService salesRollupService,
+                        LedgerService ledgerService,
+                        FeeScheduleService feeScheduleService,
+                        PaymentGateway paymentGateway,
+                        ClientSecretCache clientSecretCache,
+                        TransactionOperations transactionOperations,
+                        IoThreadFactory ioThreadFactory,
+                        @Value("${checkout.cart.max-tickets:10}") int maxTickets,
+                        @Value("${checkout.cart.concurrency:16}") int concurrency,
+                        @Value("${checkout.expiry:15m}") Duration checkoutExpiry) {
+        this.transactionRepository = transactionRepository;
+        this.transactionService = transactionService;
+        this.ticketClient = ticketClient;
+        this.ticketCache = ticketCache;
+        this.outboxService = outboxService;
+        this.salesRollupService = salesRollupService;
+        this.ledgerService = ledgerService;
+        this.feeScheduleService = feeScheduleService;
+        this.paymentGateway = paymentGateway;
+        this.clientSecretCache = clientSecretCache;
+        this.transactionOperations = transactionOperations;
+        this.ticketCalls = Executors.newFixedThreadPool(concurrency, ioThreadFactory.named("cart-tickets-"));
+        this.maxTickets = maxTickets;
+        this.checkoutExpiry = checkoutExpiry;
+    }
+
+    /**
+     * Crée la commande. Comme createTransaction, sans @Transactional : aucune connexion JDBC
+     * n'est retenue pendant les appels à tickets-service et à Stripe.
+     */
+    public OrderCheckoutResult createOrder(String buyerId, List<UUID> ticketIds) {
+        if (ticketIds == null || ticketIds.isEmpty() || ticketIds.size() > maxTickets) {
+            throw new IllegalArgumentException("Une commande contient de 1 à " + maxTickets + " tickets");
+        }
+        List<UUID> distinctIds = new ArrayList<>(new LinkedHashSet<>(ticketIds));
+        if (distinctIds.size() != ticketIds.size()) {
+            throw new IllegalArgumentException("Ticket en double dans la commande");
+        }
+
+        // 1. Réservations en parallèle ; au moindre échec, les tickets déjà réservés sont libérés
+        List<TicketDto> tickets = reserveAll(distinctIds);
+
+        // 2. Une ligne par ticket, insérées en un seul batch (hibernate.jdbc.batch_size)
+        UUID orderId = TimeOrderedUuid.next();
+        List<Transaction> transactions;
+        try {
+            List<Transaction> rows = new ArrayList<>(tickets.size());
+            for (TicketDto ticket : tickets) {
+                long totalAmount = Money.ofDecimal(ticket.getSalePrice());
+                long fees = feeScheduleService.platformFee(ticket.getVendorId(), ticket.getEventId(), totalAmount);
+                rows.add(Transaction.builder()
+                        .buyerId(UUID.fromString(buyerId))
+                        .ticketId(ticket.getId())
+                        .orderId(orderId)
+                        .vendorId(ticket.getVendorId())
+                        .eventId(ticket.getEventId())
+                        .ticketPriceCents(totalAmount)
+                        .totalAmountCents(totalAmount)
+                        .platformFeeCents(fees)
+                        .vendorAmountCents(totalAmount - fees)
+                        .status(TransactionStatus.PENDING)
+                        .paymentStatus(PaymentStatus.UNPAID)
+                        .transactionDate(LocalDateTime.now())
+                        .build());
+            }
+            transactions = transactionRepository.saveAll(rows);
+        } catch (RuntimeException e) {
+            releaseAll(distinctIds);
+            throw e;
+        }
+
+        // 3. Un seul PaymentIntent pour le total (somme des lignes)
+        long amountCents = 0;
+        for (Transaction transaction : transactions) {
+            amountCents += transaction.getTotalAmountCents();
+        }
+        PaymentGateway.Payment payment;
+        try {
+            payment = paymentGateway.createPayment(amountCents, Map.of(
+                    "orderId", orderId.toString(),
+                    "ticketCount", String.valueOf(transactions.size()),
+                    "buyerId", buyerId));
+        } catch (StripeException e) {
+            log.error("Erreur Stripe lors de l'initialisation du paiement de la commande {}", orderId, e);
+            abandonOrder(orderId, transactions);
+            throw new RuntimeException("Erreur de paiement: " + e.getMessage());
+        } catch (DependencyUnavailableException e) {
+            // Breaker Stripe ouvert ou bulkhead plein : même compensation, réponse 503
+            abandonOrder(orderId, transactions);
+            throw e;
+        }
+
+        // 4. Rattachement du PaymentIntent à toutes les lignes (un seul UPDATE)
+        try {
+            transactionRepository.updateOrderPaymentToken(orderId, payment.id());
+        } catch (RuntimeException e) {
+            // PaymentIntent introuvable depuis les lignes : annulé, puis lignes FAILED (ou laissées au sweeper)
+            try {
+                paymentGateway.cancelPayment(payment.id());
+            } catch (StripeException | DependencyUnavailableException cancelError) {
+                log.warn("Annulation du PaymentIntent {} impossible (commande {})", payment.id(), orderId, cancelError);
+            }
+            abandonOrder(orderId, transactions);
+            throw e;
+        }
+        transactions.forEach(t -> t.setPaymentToken(payment.id()));
+
+        // Même cache que les checkouts unitaires, indexé par orderId (jamais en base)
+        clientSecretCache.put(orderId, payment.clientSecret());
+        return toOrderCheckoutResult(orderId, transactions, payment.clientSecret());
+    }
+
+    /**
+     * Rejeu d'une création avec Idempotency-Key : état courant des lignes, avec le clientSecret
+     * tant qu'une ligne attend son paiement (cache local, sinon Stripe).
+     */
+    public OrderCheckoutResult replayOrder(UUID orderId, String buyerId) {
+        List<Transaction> transactions = findOwnedOrder(orderId, buyerId);
+        String paymentToken = transactions.get(0).getPaymentToken();
+        String clientSecret = null;
+        if (paymentToken != null && transactions.stream().anyMatch(t -> t.getStatus() == TransactionStatus.PENDING)) {
+            clientSecret = clientSecretCache.get(orderId);
+            if (clientSecret == null) {
+                try {
+                    clientSecret = paymentGateway.retrievePayment(paymentToken).clientSecret();
+                } catch (StripeException e) {
+                    throw new RuntimeException("Impossible de récupérer le secret Stripe", e);
+                }
+                clientSecretCache.put(orderId, clientSecret);
+            }
+        }
+        return toOrderCheckoutResult(orderId, transactions, clientSecret);
+    }
+
+    private OrderCheckoutResult toOrderCheckoutResult(UUID orderId, List<Transaction> transactions, String clientSecret) {
+        long amountCents = 0;
+        for (Transaction transaction : transactions) {
+            amountCents += transaction.getTotalAmountCents();
+        }
+        return OrderCheckoutResult.builder()
+                .orderId(orderId)
+                .transactions(transactions)
+                .totalAmountCents(amountCents)
+                .clientSecret(clientSecret)
+                .expiresAt(transactions.get(0).getTransactionDate().plus(checkoutExpiry))
+                .build();
+    }
+
+    /**
+     * Confirme les lignes de la commande (mêmes règles et événements que completeTransaction), chacune
+     * dans sa propre transaction : rejouable, une ligne déjà confirmée est renvoyée telle quelle et une ligne
+     * annulée ou expirée entre-temps est ignorée sans empêcher la confirmation des autres
+     * (si le paiement a abouti, le webhook rembourse sa part).
+     */
+    public List<Transaction> completeOrder(UUID orderId, String buyerId) {
+        List<Transaction> completed = new ArrayList<>();
+        for (Transaction transaction : findOwnedOrder(orderId, buyerId)) {
+            switch (transaction.getStatus()) {
+                case COMPLETED -> completed.add(transaction);
+                // completeTransaction relit la ligne (completePending vide le contexte de persistance)
+                case PENDING -> {
+                    try {
+                        completed.add(transactionService.completeTransaction(transaction.getId()));
+                    } catch (IllegalStateException e) {
+                        log.warn("Ligne {} de la commande {} sortie de PENDING entre-temps, non confirmée",
+                                transaction.getId(), orderId, e);
+                    }
+                }
+                default -> log.info("Ligne {} de la commande {} déjà {}, non confirmée",
+                        transaction.getId(), orderId, transaction.getStatus());
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Annule les lignes encore PENDING, puis annule le PaymentIntent et libère les tickets (hors transaction).
+     * Seuls les tickets des lignes effectivement passées CANCELED ici sont libérés : une ligne confirmée,
+     * expirée ou annulée entre-temps par une autre requête garde son ticket.
+     */
+    public void cancelOrder(UUID orderId, String buyerId) {
+        List<Transaction> pending = findOwnedOrder(orderId, buyerId).stream()
+                .filter(t -> t.getStatus() == TransactionStatus.PENDING)
+                .toList();
+        List<UUID> canceled = leavePending(pending, TransactionStatus.CANCELED);
+        if (canceled.isEmpty()) {
+            return;
+        }
+
+        String paymentToken = pending.get(0).getPaymentToken();
+        if (paymentToken != null) {
+            try {
+                paymentGateway.cancelPayment(paymentToken);
+            } catch (StripeException | DependencyUnavailableException e) {
+                log.warn("Annulation du PaymentIntent {} impossible (commande {})", paymentToken, orderId, e);
+            }
+        }
+        releaseAll(canceled);
+    }
+
+    /**
+     * Rembourse en une fois les lignes COMPLETED de la commande (celles déjà remboursées sont ignorées).
+     * Comme TransactionService.refundTransaction, sans @Transactional : aucune connexion pendant l'appel Stripe.
+     */
+    public void refundOrder(UUID orderId) {
+        // Réservation ligne par ligne (COMPLETED -> REFUNDING) avant l'appel Stripe, hors transaction :
+        // une ligne prise par un remboursement concurrent (commande ou ligne seule) est laissée à celui-ci
+        List<Transaction> claimed = findOrder(orderId).stream()
+                .filter(t -> t.getStatus() == TransactionStatus.COMPLETED)
+                .filter(t -> transactionRepository.claimRefund(t.getId()) == 1)
+                .toList();
+        if (claimed.isEmpty()) {
+            throw new IllegalStateException("Aucune ligne complétée à rembourser dans la commande " + orderId);
+        }
+        List<UUID> claimedIds = claimed.stream().map(Transaction::getId).toList();
+
+        long amountCents = 0;
+        for (Transaction transaction : claimed) {
+            amountCents += transaction.getTotalAmountCents();
+        }
+        try {
+            String refundStatus = paymentGateway.refund(claimed.get(0).getPaymentToken(), amountCents,
+                    refundKey(orderId, claimedIds));
+            if (!"succeeded".equals(refundStatus)) {
+                throw new RuntimeException("Le remboursement Stripe a échoué : " + refundStatus);
+            }
+        } catch (StripeException e) {
+            log.error("Erreur Stripe Refund (commande {})", orderId, e);
+            transactionRepository.releaseRefundClaim(claimedIds);
+            throw new RuntimeException("Erreur Stripe : " + e.getMessage());
+        } catch (RuntimeException e) {
+            transactionRepository.releaseRefundClaim(claimedIds);
+            throw e;
+        }
+
+        LocalDateTime refundDate = LocalDateTime.now();
+        try {
+            transactionOperations.executeWithoutResult(status -> {
+                for (Transaction transaction : claimed) {
+                    transaction.setStatus(TransactionStatus.REFUNDED);
+                    transaction.setPaymentStatus(PaymentStatus.REFUNDED);
+                    transaction.setRefundDate(refundDate);
+                    salesRollupService.recordRefund(transaction);
+                    ledgerService.recordRefund(transaction);
+                    outboxService.enqueue("transaction-refunded", transaction.getId(), TransactionRefundedEvent.builder()
+                            .transactionId(transaction.getId())
+                            .ticketId(transaction.getTicketId())
+                            .vendorId(transaction.getVendorId())
+                            .vendorAmountCents(transaction.getVendorAmountCents())
+                            .build());
+                }
+                transactionRepository.saveAll(claimed);
+            });
+        } catch (RuntimeException e) {
+            // Remboursé chez Stripe : les lignes restent REFUNDING, à solder manuellement
+            log.error("Commande {} remboursée chez Stripe mais non enregistrée, lignes {} laissées REFUNDING",
+                    orderId, claimedIds, e);
+            throw e;
+        }
+        log.info("Commande {} remboursée ({} lignes), événements Kafka mis en file (outbox).", orderId, claimed.size());
+    }
+
+    // Même clé pour une nouvelle tentative sur les mêmes lignes, distincte pour un remboursement ultérieur
+    private static String refundKey(UUID orderId, List<UUID> lineIds) {
+        String lines = lineIds.stream().map(UUID::toString).sorted().collect(Collectors.joining(","));
+        return "refund-order-" + orderId + "-" + UUID.nameUUIDFromBytes(lines.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<Transaction> findOrder(UUID orderId) {
+        List<Transaction> transactions = transactionRepository.findByOrderId(orderId);
+        if (transactions.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Commande introuvable");
+        }
+        return transactions;
+    }
+
+    // Toutes les lignes d'une commande appartiennent au même acheteur
+    private List<Transaction> findOwnedOrder(UUID orderId, String buyerId) {
+        List<Transaction> transactions = findOrder(orderId);
+        if (!transactions.get(0).getBuyerId().toString().equals(buyerId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Commande d'un autre utilisateur");
+        }
+        return transactions;
+    }
+
+    private List<TicketDto> reserveAll(List<UUID> ticketIds) {
+        // Le JWT de l'acheteur est propagé aux appels Feign faits depuis le pool
+        Executor executor = new DelegatingSecurityContextExecutor(ticketCalls);
+        List<CompletableFuture<TicketDto>> futures = new ArrayList<>(ticketIds.size());
+        for (UUID ticketId : ticketIds) {
+            futures.add(CompletableFuture.supplyAsync(() -> reserve(ticketId), executor));
+        }
+
+        List<TicketDto> reserved = new ArrayList<>(ticketIds.size());
+        List<UUID> toRelease = new ArrayList<>();
+        RuntimeException failure = null;
+        for (CompletableFuture<TicketDto> future : futures) {
+            try {
+                TicketDto ticket = future.join();
+                reserved.add(ticket);
+                toRelease.add(ticket.getId());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException cause ? cause : e;
+                }
+            }
+        }
+        if (failure != null) {
+            // Tout ou rien : compensation des réservations obtenues
+            releaseAll(toRelease);
+            throw failure;
+        }
+        return reserved;
+    }
+
+    private TicketDto reserve(UUID ticketId) {
+        TicketDto ticket;
+        try {
+            ticket = ticketCache.getTicket(ticketId);
+        } catch (FeignException.NotFound e) {
+            throw new IllegalArgumentException("Ticket not found: " + ticketId);
+        }
+        try {
+            ticketClient.reserveTicket(ticketId);
+        } catch (RetryableException | FeignException.FeignServerException e) {
+            // Pas de réponse exploitable (timeout, 5xx) : la réservation a pu aboutir côté tickets-service
+            releaseQuietly(ticketId);
+            throw new DependencyUnavailableException(DependencyGuard.TICKETS, "no-response", e);
+        } catch (FeignException e) {
+            throw new IllegalStateException("Le ticket " + ticketId + " n'est plus disponible.");
+        } finally {
+            ticketCache.invalidate(ticketId);
+        }
+        return ticket;
+    }
+
+    // Compensation d'une commande dont le PaymentIntent n'a pas pu être créé ou rattaché
+    private void abandonOrder(UUID orderId, List<Transaction> transactions) {
+        List<UUID> failed;
+        try {
+            failed = leavePending(transactions, TransactionStatus.FAILED);
+        } catch (RuntimeException dbError) {
+            log.error("Impossible de marquer la commande {} FAILED, tickets laissés au sweeper", orderId, dbError);
+            return;
+        }
+        releaseAll(failed);
+    }
+
+    // Transition conditionnelle ligne par ligne : renvoie les tickets des lignes quittées ici, à libérer
+    private List<UUID> leavePending(List<Transaction> transactions, TransactionStatus status) {
+        List<UUID> ticketIds = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            if (transactionRepository.updatePendingStatus(transaction.getId(), status) == 1) {
+                transaction.setStatus(status);
+                ticketIds.add(transaction.getTicketId());
+            }
+        }
+        return ticketIds;
+    }
+
+    private void releaseAll(List<UUID> ticketIds) {
+        Executor executor = new DelegatingSecurityContextExecutor(ticketCalls);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(ticketIds.size());
+        for (UUID ticketId : ticketIds) {
+            futures.add(CompletableFuture.runAsync(() -> releaseQuietly(ticketId), executor));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void releaseQuietly(UUID ticketId) {
+        try {
+            ticketClient.releaseTicket(ticketId);
+            ticketCache.invalidate(ticketId);
+        } catch (Exception e) {
+            log.error("Erreur non-bloquante libération ticket {}", ticketId, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticketCalls.shutdown();
+    }
+}
@@ -0,0 +1,205 @@
+package com.polytech.transactions_service.service;
+
+import com.polytech.transactions_service.event.EventCodec;
+import com.polytech.transactions_service.model.OutboxEvent;
+import com.polytech.transactions_service.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publie les événements de la table outbox vers Kafka, par lots.
+ * L'outbox est découpée en outbox.relay.partitions partitions par hash de la clé de message ; chaque partition
+ * est relayée par une seule instance à la fois (verrou consultatif transactionnel), les instances se répartissent
+ * les partitions. Les lignes d'une même clé et d'un même topic sont publiées dans l'ordre d'écriture : chacune n'est
+ * envoyée qu'après l'accusé de la précédente et un échec arrête la clé jusqu'au passage suivant.
+ * Les lignes ne sont supprimées qu'après l'accusé de réception du broker (livraison au moins une fois).
+ * Chaque envoi est suivi par un callback (compteurs envoyés/échoués par topic, latence, taille) ;
+ * un échec laisse la ligne dans l'outbox pour le passage suivant. Après outbox.relay.max-attempts échecs,
+ * la ligne passe en dead-letter (dead_lettered_at) : elle n'est plus relayée, une erreur est journalisée
+ * et le compteur outbox.relay.dead_lettered est incrémenté (alerte).
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class OutboxRelay {
+
+    // Base des verrous consultatifs PostgreSQL des partitions (une valeur par partition)
+    private static final long PARTITION_LOCK_BASE = 0x6F7574626F78L << 16;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Timer sendTimer;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final int maxAttempts;
+    private final int partitions;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       KafkaTemplate<String, byte[]> kafkaTemplate,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.batch-size:100}") int batchSize,
+                       @Value("${outbox.relay.send-timeout-ms:10000}") long sendTimeoutMs,
+                       @Value("${outbox.relay.max-attempts:20}") int maxAttempts,
+                       @Value("${outbox.relay.partitions:8}") int partitions) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.partitions = partitions;
+        this.sendTimer = Timer.builder("outbox.relay.send")
+                .description("Délai entre l'envoi et l'accusé de réception du broker")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+    public void relay() {
+        for (int partition = 0; partition < partitions; partition++) {
+            int current = partition;
+            // On enchaîne les lots tant qu'ils sont pleins et intégralement publiés
+            Integer published;
+            do {
+                published = transactionTemplate.execute(status -> publishNextBatch(current));
+            } while (published != null && published == batchSize);
+        }
+    }
+
+    private int publishNextBatch(int partition) {
+        if (!outboxEventRepository.tryLockPartition(PARTITION_LOCK_BASE + partition)) {
+            return 0; // Partition relayée par une autre instance
+        }
+        List<OutboxEvent> batch = outboxEventRepository.lockNextBatch(partitions, partition, batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // Envoi de tout le lot avant d'attendre : le producteur regroupe les messages.
+        // Même topic et même clé : envoi chaîné sur l'accusé du précédent, jamais après un échec ou la fin du lot
+        AtomicBoolean batchClosed = new AtomicBoolean();
+        Map<String, CompletableFuture<SendResult<String, byte[]>>> lastSendByKey = new HashMap<>();
+        List<CompletableFuture<SendResult<String, byte[]>>> futures = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            String orderingKey = orderingKey(event);
+            CompletableFuture<SendResult<String, byte[]>> previous = orderingKey != null ? lastSendByKey.get(orderingKey) : null;
+            CompletableFuture<SendResult<String, byte[]>> future = previous == null
+                    ? send(event)
+                    : previous.thenCompose(result -> batchClosed.get()
+                            ? CompletableFuture.failedFuture(new CancellationException("Lot terminé"))
+                            : send(event));
+            futures.add(future);
+            if (orderingKey != null) {
+                lastSendByKey.put(orderingKey, future);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        List<Long> published = new ArrayList<>(batch.size());
+        Set<String> blockedKeys = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            String orderingKey = orderingKey(event);
+            if (orderingKey != null && blockedKeys.contains(orderingKey)) {
+                continue; // Non envoyée : un message précédent de la même clé est en échec, pas de tentative comptée
+            }
+            try {
+                futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                published.add(event.getId());
+            } catch (ExecutionException | TimeoutException e) {
+                // La ligne reste dans l'outbox et sera retentée au prochain passage, avant les suivantes de sa clé
+                if (orderingKey != null) {
+                    blockedKeys.add(orderingKey);
+                }
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                event.setAttempts(event.getAttempts() + 1);
+                event.setLastError(truncate(String.valueOf(cause)));
+                if (event.getAttempts() >= maxAttempts) {
+                    deadLetter(event, cause);
+                } else {
+                    log.warn("Publication outbox échouée (id={}, topic={}, tentative {})",
+                            event.getId(), event.getTopic(), event.getAttempts(), cause);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        batchClosed.set(true);
+
+        outboxEventRepository.deleteAllByIdInBatch(published);
+        return published.size();
+    }
+
+    // Kafka n'ordonne qu'au sein d'une partition : clé de message et topic (sans ':' dans un nom de topic)
+    private static String orderingKey(OutboxEvent event) {
+        return event.getMessageKey() != null ? event.getTopic() + ':' + event.getMessageKey() : null;
+    }
+
+    // Ligne empoisonnée (message refusé, topic absent...) : elle ne bloque plus le relais
+    private void deadLetter(OutboxEvent event, Throwable cause) {
+        event.setDeadLetteredAt(LocalDateTime.now());
+        Counter.builder("outbox.relay.dead_lettered")
+                .description("Événements outbox abandonnés après max-attempts échecs")
+                .tag("topic", event.getTopic())
+                .register(meterRegistry)
+                .increment();
+        log.error("Événement outbox {} (topic={}, clé={}) en dead-letter après {} tentatives",
+                event.getId(), event.getTopic(), event.getMessageKey(), event.getAttempts(), cause);
+    }
+
+    private CompletableFuture<SendResult<String, byte[]>> send(OutboxEvent event) {
+        String contentType = event.getContentType() != null ? event.getContentType() : EventCodec.JSON;
+        ProducerRecord<String, byte[]> record =
+                new ProducerRecord<>(event.getTopic(), event.getMessageKey(), event.getPayload());
+        record.headers().add(EventCodec.CONTENT_TYPE_HEADER, contentType.getBytes(StandardCharsets.UTF_8));
+
+        DistributionSummary.builder("outbox.relay.payload")
+                .baseUnit("bytes")
+                .tag("content.type", EventCodec.isBinary(contentType) ? "binary" : "json")
+                .register(meterRegistry)
+                .record(event.getPayload().length);
+        long start = System.nanoTime();
+        return kafkaTemplate.send(record).whenComplete((result, error) -> {
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            Counter.builder(error == null ? "outbox.relay.sent" : "outbox.relay.failed")
+                    .tag("topic", event.getTopic())
+                    .register(meterRegistry)
+                    .increment();
+        });
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+}
@@ -0,0 +1,38 @@
+package com.polytech.transactions_service.service;
+
+import com.polytech.transactions_service.event.EventCodec;
+import com.polytech.transactions_service.model.OutboxEvent;
+import com.polytech.transactions_service.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+/**
+ * Enregistre les événements à publier dans la table outbox.
+ * Appelé uniquement depuis une transaction existante : si elle est annulée, l'événement l'est aussi.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final EventCodec eventCodec;
+
+    /**
+     * La clé (transaction, ticket, vendeur) fixe la partition Kafka ; OutboxRelay publie les événements d'une même clé
+     * dans l'ordre d'écriture (un échec retient les suivants). Une ligne passée en dead-letter ne les retient plus.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String topic, UUID key, Object event) {
+        EventCodec.Encoded encoded = eventCodec.encode(topic, event);
+        outboxEventRepository.save(OutboxEvent.builder()
+                .topic(topic)
+                .messageKey(key != null ? key.toString() : null)
+                .contentType(encoded.contentType())
+                .payload(encoded.payload())
+                .build());
+    }
+}
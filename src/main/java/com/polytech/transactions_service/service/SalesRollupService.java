@@ -0,0 +1,230 @@
+package com.polytech.transactions_service.service;
+
+import com.polytech.transactions_service.dto.DailySalesDto;
+import com.polytech.transactions_service.dto.RollupRebuildResult;
+import com.polytech.transactions_service.dto.SalesSummaryDto;
+import com.polytech.transactions_service.model.DailySales;
+import com.polytech.transactions_service.model.EventDailySales;
+import com.polytech.transactions_service.model.Money;
+import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.VendorDailySales;
+import com.polytech.transactions_service.repository.EventDailySalesRepository;
+import com.polytech.transactions_service.repository.VendorDailySalesRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Rollups journaliers des ventes par vendeur et par événement.
+ * Mis à jour par deltas (upsert) dans la transaction qui change le statut : une vente compte le jour
+ * de sa validation, un remboursement est déduit le jour du remboursement.
+ * Les résumés se lisent en O(jours) ; rebuild() recalcule tout depuis la table transactions.
+ */
+@Service
+@Slf4j
+public class SalesRollupService {
+
+    private static final String REBUILD_SELECT = "SELECT vendor_id, event_id, status, total_amount_cents, "
+            + "vendor_amount_cents, platform_fee_cents, validation_date, refund_date FROM transactions "
+            + "WHERE status IN ('COMPLETED', 'REFUNDED') AND validation_date IS NOT NULL";
+
+    private final VendorDailySalesRepository vendorDailySalesRepository;
+    private final EventDailySalesRepository eventDailySalesRepository;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    public SalesRollupService(VendorDailySalesRepository vendorDailySalesRepository,
+                              EventDailySalesRepository eventDailySalesRepository,
+                              NamedParameterJdbcTemplate namedJdbcTemplate,
+                              @Value("${transactions.export.fetch-size:500}") int fetchSize) {
+        this.vendorDailySalesRepository = vendorDailySalesRepository;
+        this.eventDailySalesRepository = eventDailySalesRepository;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        // Curseur serveur pour la reconstruction : la table n'est jamais chargée entièrement
+        this.streamingJdbcTemplate = new JdbcTemplate(namedJdbcTemplate.getJdbcTemplate().getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordSale(Transaction transaction) {
+        Totals delta = new Totals();
+        delta.add(transaction, 1);
+        apply(transaction.getVendorId(), transaction.getEventId(), transaction.getValidationDate().toLocalDate(), delta);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRefund(Transaction transaction) {
+        Totals delta = new Totals();
+        delta.add(transaction, -1);
+        apply(transaction.getVendorId(), transaction.getEventId(), transaction.getRefundDate().toLocalDate(), delta);
+    }
+
+    private void apply(UUID vendorId, UUID eventId, LocalDate day, Totals delta) {
+        if (vendorId != null) {
+            vendorDailySalesRepository.addDeltas(vendorId, day, delta.salesCount, delta.refundCount,
+                    delta.grossCents, delta.vendorCents, delta.feeCents);
+        }
+        if (eventId != null) {
+            eventDailySalesRepository.addDeltas(eventId, day, delta.salesCount, delta.refundCount,
+                    delta.grossCents, delta.vendorCents, delta.feeCents);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public SalesSummaryDto getVendorSummary(UUID vendorId, LocalDate from, LocalDate to) {
+        return summarize(vendorId, from, to,
+                vendorDailySalesRepository.findByVendorIdAndSaleDateBetweenOrderBySaleDateAsc(vendorId, from, to),
+                VendorDailySales::getSaleDate);
+    }
+
+    @Transactional(readOnly = true)
+    public SalesSummaryDto getEventSummary(UUID eventId, LocalDate from, LocalDate to) {
+        return summarize(eventId, from, to,
+                eventDailySalesRepository.findByEventIdAndSaleDateBetweenOrderBySaleDateAsc(eventId, from, to),
+                EventDailySales::getSaleDate);
+    }
+
+    private <T extends DailySales> SalesSummaryDto summarize(UUID id, LocalDate from, LocalDate to, List<T> rows,
+                                                            Function<T, LocalDate> dateOf) {
+        Totals total = new Totals();
+        List<DailySalesDto> days = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            total.salesCount += row.getSalesCount();
+            total.refundCount += row.getRefundCount();
+            total.grossCents += row.getGrossCents();
+            total.vendorCents += row.getVendorCents();
+            total.feeCents += row.getFeeCents();
+            days.add(new DailySalesDto(dateOf.apply(row), row.getSalesCount(), row.getRefundCount(),
+                    Money.toDecimal(row.getGrossCents()), Money.toDecimal(row.getVendorCents()),
+                    Money.toDecimal(row.getFeeCents())));
+        }
+        return SalesSummaryDto.builder()
+                .id(id)
+                .from(from)
+                .to(to)
+                .salesCount(total.salesCount)
+                .refundCount(total.refundCount)
+                .grossAmount(Money.toDecimal(total.grossCents))
+                .vendorAmount(Money.toDecimal(total.vendorCents))
+                .platformFee(Money.toDecimal(total.feeCents))
+                .days(days)
+                .build();
+    }
+
+    /**
+     * Recalcule les deux rollups en un seul passage (streaming) sur la table transactions.
+     * Les tables de rollup sont verrouillées pendant le calcul : les confirmations/remboursements
+     * concurrents attendent puis appliquent leur delta sur le résultat reconstruit.
+     */
+    @Transactional
+    public RollupRebuildResult rebuild() {
+        long start = System.currentTimeMillis();
+        JdbcTemplate jdbcTemplate = namedJdbcTemplate.getJdbcTemplate();
+        jdbcTemplate.execute("LOCK TABLE vendor_daily_sales, event_daily_sales IN EXCLUSIVE MODE");
+        jdbcTemplate.update("DELETE FROM vendor_daily_sales");
+        jdbcTemplate.update("DELETE FROM event_daily_sales");
+
+        Map<DayKey, Totals> vendorDays = new HashMap<>();
+        Map<DayKey, Totals> eventDays = new HashMap<>();
+        long[] rows = {0};
+        streamingJdbcTemplate.query(REBUILD_SELECT, rs -> {
+            rows[0]++;
+            UUID vendorId = rs.getObject("vendor_id", UUID.class);
+            UUID eventId = rs.getObject("event_id", UUID.class);
+            long gross = rs.getLong("total_amount_cents");
+            long vendor = rs.getLong("vendor_amount_cents");
+            long fee = rs.getLong("platform_fee_cents");
+            LocalDate saleDay = rs.getTimestamp("validation_date").toLocalDateTime().toLocalDate();
+            accumulate(vendorDays, eventDays, vendorId, eventId, saleDay, 1, 0, gross, vendor, fee);
+
+            if ("REFUNDED".equals(rs.getString("status"))) {
+                // Remboursements antérieurs à refund_date : imputés au jour de la vente
+                Timestamp refundDate = rs.getTimestamp("refund_date");
+                LocalDate refundDay = refundDate != null ? refundDate.toLocalDateTime().toLocalDate() : saleDay;
+                accumulate(vendorDays, eventDays, vendorId, eventId, refundDay, 0, 1, -gross, -vendor, -fee);
+            }
+        });
+
+        namedJdbcTemplate.batchUpdate(VendorDailySalesRepository.UPSERT_SQL, toParams(vendorDays));
+        namedJdbcTemplate.batchUpdate(EventDailySalesRepository.UPSERT_SQL, toParams(eventDays));
+
+        RollupRebuildResult result = RollupRebuildResult.builder()
+                .transactions(rows[0])
+                .vendorDays(vendorDays.size())
+                .eventDays(eventDays.size())
+                .durationMs(System.currentTimeMillis() - start)
+                .build();
+        log.info("Rollups de ventes reconstruits : {}", result);
+        return result;
+    }
+
+    private static void accumulate(Map<DayKey, Totals> vendorDays, Map<DayKey, Totals> eventDays,
+                                   UUID vendorId, UUID eventId, LocalDate day,
+                                   long sales, long refunds, long gross, long vendor, long fee) {
+        if (vendorId != null) {
+            vendorDays.computeIfAbsent(new DayKey(vendorId, day), k -> new Totals()).add(sales, refunds, gross, vendor, fee);
+        }
+        if (eventId != null) {
+            eventDays.computeIfAbsent(new DayKey(eventId, day), k -> new Totals()).add(sales, refunds, gross, vendor, fee);
+        }
+    }
+
+    private static SqlParameterSource[] toParams(Map<DayKey, Totals> days) {
+        SqlParameterSource[] params = new SqlParameterSource[days.size()];
+        int i = 0;
+        for (Map.Entry<DayKey, Totals> entry : days.entrySet()) {
+            Totals totals = entry.getValue();
+            params[i++] = new MapSqlParameterSource()
+                    .addValue("id", entry.getKey().id())
+                    .addValue("saleDate", entry.getKey().date())
+                    .addValue("salesCount", totals.salesCount)
+                    .addValue("refundCount", totals.refundCount)
+                    .addValue("grossCents", totals.grossCents)
+                    .addValue("vendorCents", totals.vendorCents)
+                    .addValue("feeCents", totals.feeCents);
+        }
+        return params;
+    }
+
+    private record DayKey(UUID id, LocalDate date) {
+    }
+
+    private static final class Totals {
+        private long salesCount;
+        private long refundCount;
+        private long grossCents;
+        private long vendorCents;
+        private long feeCents;
+
+        // sign = 1 pour une vente, -1 pour un remboursement
+        void add(Transaction transaction, int sign) {
+            add(sign > 0 ? 1 : 0, sign < 0 ? 1 : 0,
+                    sign * transaction.getTotalAmountCents(),
+                    sign * transaction.getVendorAmountCents(),
+                    sign * transaction.getPlatformFeeCents());
+        }
+
+        void add(long sales, long refunds, long gross, long vendor, long fee) {
+            salesCount += sales;
+            refundCount += refunds;
+            grossCents += gross;
+            vendorCents += vendor;
+            feeCents += fee;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.polytech.transactions_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polytech.transactions_service.client.PaymentGateway;
+import com.polytech.transactions_service.config.IoThreadFactory;
+import com.polytech.transactions_service.model.StripeWebhookEvent;
+import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.enums.TransactionStatus;
+import com.polytech.transactions_service.repository.StripeWebhookEventRepository;
+import com.polytech.transactions_service.repository.TransactionRepository;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.exception.StripeException;
+import com.stripe.net.Webhook;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Réception des webhooks Stripe.
+ * La requête HTTP ne fait que vérifier la signature et enregistrer l'ID d'événement (déduplication) ;
+ * le traitement est confié à un pool de workers borné.
+ * Seuls succeeded (complétion) et canceled (échec, libération du ticket) sont définitifs :
+ * après un payment_failed, l'acheteur peut réessayer sur le même PaymentIntent, le checkout reste PENDING.
+ * Un événement en échec est repris jusqu'à stripe.webhook.max-attempts tentatives, puis laissé en dead-letter
+ * (processed_at vide, last_error renseigné). Chaque événement est réservé (claimed_until) par l'instance qui
+ * l'a en file : à la réception, puis à chaque reprise ; une autre instance ne le reprend qu'une fois la réservation échue.
+ * Un succeeded reçu pour un checkout déjà annulé, expiré ou en échec (ticket libéré, peut-être revendu)
+ * n'est pas complété : le paiement est remboursé automatiquement ; si le remboursement échoue,
+ * l'événement suit le cycle de reprise puis reste en dead-letter pour traitement manuel.
+ */
+@Service
+@Slf4j
+public class StripeWebhookService {
+
+    public enum Outcome { ACCEPTED, DUPLICATE, IGNORED, BUSY }
+
+    static final String PAYMENT_SUCCEEDED = "payment_intent.succeeded";
+    static final String PAYMENT_FAILED = "payment_intent.payment_failed";
+    static final String PAYMENT_CANCELED = "payment_intent.canceled";
+    private static final Set<String> HANDLED_TYPES = Set.of(PAYMENT_SUCCEEDED, PAYMENT_FAILED, PAYMENT_CANCELED);
+    // Checkouts dont le ticket a été libéré : un paiement arrivé après coup doit être rendu
+    private static final Set<TransactionStatus> RELEASED_STATUSES =
+            EnumSet.of(TransactionStatus.CANCELED, TransactionStatus.EXPIRED, TransactionStatus.FAILED);
+    private static final int REDRIVE_BATCH_SIZE = 100;
+
+    private final StripeWebhookEventRepository webhookEventRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionService transactionService;
+    private final PaymentGateway paymentGateway;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final String webhookSecret;
+    private final long toleranceSeconds;
+    private final int maxAttempts;
+    private final Duration claimLease;
+    private final ThreadPoolExecutor workers;
+    // Événements dans la file locale ou en cours de traitement : la reprise ne les renvoie pas une seconde fois
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final Counter lateRefunds;
+    private final Counter lateRefundFailures;
+
+    public StripeWebhookService(StripeWebhookEventRepository webhookEventRepository,
+                                TransactionRepository transactionRepository,
+                                TransactionService transactionService,
+                                PaymentGateway paymentGateway,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                PlatformTransactionManager transactionManager,
+                                IoThreadFactory ioThreadFactory,
+                                @Value("${stripe.webhook.secret}") String webhookSecret,
+                                @Value("${stripe.webhook.tolerance-seconds:300}") long toleranceSeconds,
+                                @Value("${stripe.webhook.workers:4}") int workerCount,
+                                @Value("${stripe.webhook.queue-capacity:1000}") int queueCapacity,
+                                @Value("${stripe.webhook.max-attempts:10}") int maxAttempts,
+                                @Value("${stripe.webhook.claim-lease:2m}") Duration claimLease) {
+        // Sans secret, toute signature serait refusée : on échoue au démarrage plutôt qu'à chaque webhook
+        if (webhookSecret == null || webhookSecret.isBlank()) {
+            throw new IllegalStateException("stripe.webhook.secret (STRIPE_WEBHOOK_SECRET) doit être renseigné");
+        }
+        this.webhookEventRepository = webhookEventRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionService = transactionService;
+        this.paymentGateway = paymentGateway;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.webhookSecret = webhookSecret;
+        this.toleranceSeconds = toleranceSeconds;
+        this.maxAttempts = maxAttempts;
+        this.claimLease = claimLease;
+        // File bornée + AbortPolicy : en cas de rafale, on répond 503 et Stripe réessaiera plus tard
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), ioThreadFactory.named("stripe-webhook-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.lateRefunds = Counter.builder("stripe.webhook.late_payments")
+                .tag("outcome", "refunded")
+                .description("Paiements aboutis après libération du ticket, remboursés automatiquement")
+                .register(meterRegistry);
+        this.lateRefundFailures = Counter.builder("stripe.webhook.late_payments")
+                .tag("outcome", "refund_failed")
+                .description("Paiements aboutis après libération du ticket, remboursement en échec")
+                .register(meterRegistry);
+    }
+
+    public Outcome receive(String payload, String signatureHeader) {
+        // 1. Signature (rejette tout appel qui ne vient pas de Stripe)
+        if (signatureHeader == null) {
+            throw new IllegalArgumentException("En-tête Stripe-Signature manquant");
+        }
+        try {
+            Webhook.Signature.verifyHeader(payload, signatureHeader, webhookSecret, toleranceSeconds);
+        } catch (SignatureVerificationException e) {
+            throw new IllegalArgumentException("Signature Stripe invalide");
+        }
+
+        // 2. Lecture minimale de l'événement (indépendante de la version d'API Stripe)
+        JsonNode event;
+        try {
+            event = objectMapper.readTree(payload);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Payload Stripe illisible");
+        }
+        String eventId = event.path("id").asText();
+        String type = event.path("type").asText();
+        if (!HANDLED_TYPES.contains(type)) {
+            return Outcome.IGNORED;
+        }
+        String paymentIntentId = event.path("data").path("object").path("id").asText(null);
+
+        // 3. Déduplication : la clé primaire rejette un événement déjà reçu.
+        // Réservé d'emblée : tant qu'il attend dans la file locale, la reprise ne le donne pas à une autre instance
+        StripeWebhookEvent received = new StripeWebhookEvent(eventId, type, paymentIntentId);
+        received.setClaimedUntil(LocalDateTime.now().plus(claimLease));
+        try {
+            webhookEventRepository.saveAndFlush(received);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Webhook Stripe {} déjà reçu, ignoré", eventId);
+            return Outcome.DUPLICATE;
+        }
+
+        // 4. Traitement asynchrone
+        if (!enqueue(eventId, type, paymentIntentId)) {
+            // Pas de trace conservée : la nouvelle tentative de Stripe ne doit pas être vue comme un doublon
+            webhookEventRepository.deleteById(eventId);
+            log.warn("File des webhooks Stripe pleine, événement {} refusé", eventId);
+            return Outcome.BUSY;
+        }
+        return Outcome.ACCEPTED;
+    }
+
+    /**
+     * Reprend les événements enregistrés mais jamais traités (ex: instance arrêtée entre-temps, échec).
+     * Les événements sont d'abord réservés (FOR UPDATE SKIP LOCKED puis claimed_until), dans une transaction
+     * courte : deux instances ne reprennent jamais le même événement.
+     */
+    @Scheduled(fixedDelayString = "${stripe.webhook.redrive-interval-ms:60000}")
+    public void redriveUnprocessed() {
+        LocalDateTime now = LocalDateTime.now();
+        List<StripeWebhookEvent> claimed = transactionTemplate.execute(status -> {
+            List<StripeWebhookEvent> events = webhookEventRepository.lockRedrivable(maxAttempts, now, REDRIVE_BATCH_SIZE);
+            if (!events.isEmpty()) {
+                webhookEventRepository.claim(events.stream().map(StripeWebhookEvent::getId).toList(), now.plus(claimLease));
+            }
+            return events;
+        });
+        if (claimed == null) {
+            return;
+        }
+        for (StripeWebhookEvent event : claimed) {
+            if (queued.contains(event.getId())) {
+                continue; // Encore dans la file locale : la réservation vient seulement d'être prolongée
+            }
+            if (!enqueue(event.getId(), event.getType(), event.getPaymentIntentId())) {
+                return; // Workers saturés : le reste attendra l'échéance de sa réservation
+            }
+        }
+    }
+
+    private boolean enqueue(String eventId, String type, String paymentIntentId) {
+        if (!queued.add(eventId)) {
+            return true;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    process(eventId, type, paymentIntentId);
+                } finally {
+                    queued.remove(eventId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            queued.remove(eventId);
+            return false;
+        }
+    }
+
+    void process(String eventId, String type, String paymentIntentId) {
+        try {
+            List<Transaction> transactions = paymentIntentId != null
+                    ? transactionRepository.findByPaymentToken(paymentIntentId)
+                    : List.of();
+            if (transactions.isEmpty()) {
+                log.warn("Webhook Stripe {} : aucune transaction pour le PaymentIntent {}", eventId, paymentIntentId);
+            }
+            for (Transaction transaction : transactions) {
+                if (PAYMENT_SUCCEEDED.equals(type) && RELEASED_STATUSES.contains(transaction.getStatus())) {
+                    continue; // Remboursé ci-dessous
+                }
+                switch (type) {
+                    case PAYMENT_SUCCEEDED -> transactionService.completeTransaction(transaction.getId());
+                    case PAYMENT_CANCELED -> transactionService.failTransaction(transaction.getId());
+                    // Tentative refusée, pas un échec définitif : le ticket reste réservé pour un nouvel essai
+                    default -> log.info("Paiement refusé pour la transaction {} (PaymentIntent {}), checkout maintenu",
+                            transaction.getId(), paymentIntentId);
+                }
+            }
+            // Après les complétions (idempotentes) : une reprise ne relance que le remboursement
+            if (PAYMENT_SUCCEEDED.equals(type)) {
+                refundLatePayment(eventId, paymentIntentId, transactions);
+            }
+            webhookEventRepository.markProcessed(eventId, LocalDateTime.now());
+        } catch (Exception e) {
+            // processed_at reste vide : l'événement sera repris par redriveUnprocessed, dans la limite de maxAttempts
+            log.error("Échec du traitement du webhook Stripe {} ({})", eventId, type, e);
+            recordFailure(eventId, e);
+        }
+    }
+
+    /**
+     * Rembourse la part d'un PaymentIntent payé dont les lignes ont déjà été libérées
+     * (totalité si toutes le sont). Un échec est propagé : l'événement est repris puis laissé en dead-letter.
+     */
+    private void refundLatePayment(String eventId, String paymentIntentId, List<Transaction> transactions)
+            throws StripeException {
+        List<Transaction> released = transactions.stream()
+                .filter(t -> RELEASED_STATUSES.contains(t.getStatus()))
+                .toList();
+        if (released.isEmpty()) {
+            return;
+        }
+        Long amountCents = released.size() == transactions.size()
+                ? null
+                : released.stream().mapToLong(Transaction::getTotalAmountCents).sum();
+        try {
+            paymentGateway.refund(paymentIntentId, amountCents, "late-payment-" + eventId);
+        } catch (StripeException | RuntimeException e) {
+            lateRefundFailures.increment();
+            log.error("Paiement {} abouti après libération des transactions {} : remboursement impossible, "
+                    + "action manuelle requise (webhook {})", paymentIntentId,
+                    released.stream().map(Transaction::getId).toList(), eventId, e);
+            throw e;
+        }
+        lateRefunds.increment();
+        log.warn("Paiement {} abouti après libération des transactions {} : remboursé automatiquement",
+                paymentIntentId, released.stream().map(Transaction::getId).toList());
+    }
+
+    private void recordFailure(String eventId, Exception error) {
+        String message = String.valueOf(error.getMessage());
+        try {
+            webhookEventRepository.recordFailure(eventId,
+                    message.length() > 1000 ? message.substring(0, 1000) : message);
+        } catch (RuntimeException e) {
+            log.error("Impossible d'enregistrer l'échec du webhook Stripe {}", eventId, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,112 @@
+package com.polytech.transactions_service.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.polytech.transactions_service.dto.ExportFormat;
+import com.polytech.transactions_service.dto.TransactionSummaryDto;
+import com.polytech.transactions_service.model.Money;
+import com.polytech.transactions_service.model.enums.TransactionStatus;
+import com.polytech.transactions_service.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Export admin de la table transactions, écrit ligne par ligne directement dans la réponse.
+ * La mémoire utilisée ne dépend pas du nombre de lignes (curseur serveur + projections DTO).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionExportService {
+
+    private static final String CSV_HEADER = "transactionId,ticketId,buyerId,vendorId,totalAmount,platformFee,"
+            + "vendorAmount,paymentStatus,status,transactionDate,validationDate";
+
+    private final TransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public void export(ExportFormat format, LocalDateTime from, LocalDateTime to, TransactionStatus status,
+                       OutputStream out) throws IOException {
+        long count;
+        try (Stream<TransactionSummaryDto> rows = transactionRepository.streamForExport(from, to, status)) {
+            count = format == ExportFormat.CSV ? writeCsv(rows, out) : writeNdjson(rows, out);
+        }
+        log.info("Export {} terminé : {} transactions", format, count);
+    }
+
+    private long writeNdjson(Stream<TransactionSummaryDto> rows, OutputStream out) throws IOException {
+        long count = 0;
+        // La réponse HTTP reste ouverte à la fermeture du SequenceWriter
+        ObjectWriter ndjsonWriter = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try (SequenceWriter writer = ndjsonWriter.writeValues(out)) {
+            Iterator<TransactionSummaryDto> it = rows.iterator();
+            while (it.hasNext()) {
+                writer.write(it.next());
+                count++;
+            }
+        }
+        if (count > 0) {
+            out.write('\n');
+        }
+        out.flush();
+        return count;
+    }
+
+    private long writeCsv(Stream<TransactionSummaryDto> rows, OutputStream out) throws IOException {
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        Iterator<TransactionSummaryDto> it = rows.iterator();
+        while (it.hasNext()) {
+            TransactionSummaryDto t = it.next();
+            writer.write(csv(t.getId()));
+            writer.write(',');
+            writer.write(csv(t.getTicketId()));
+            writer.write(',');
+            writer.write(csv(t.getBuyerId()));
+            writer.write(',');
+            writer.write(csv(t.getVendorId()));
+            writer.write(',');
+            writer.write(Money.format(t.getTotalAmountCents()));
+            writer.write(',');
+            writer.write(Money.format(t.getPlatformFeeCents()));
+            writer.write(',');
+            writer.write(Money.format(t.getVendorAmountCents()));
+            writer.write(',');
+            writer.write(csv(t.getPaymentStatus()));
+            writer.write(',');
+            writer.write(csv(t.getStatus()));
+            writer.write(',');
+            writer.write(csv(t.getTransactionDate()));
+            writer.write(',');
+            writer.write(csv(t.getValidationDate()));
+            writer.write('\n');
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    // Les valeurs exportées (UUID, nombres, enums, dates ISO) ne contiennent ni virgule ni guillemet
+    private static String csv(Object value) {
+        return value == null ? "" : value.toString();
+    }
+}
@@ -1,31 +1,42 @@
 package com.polytech.transactions_service.service;
 
+import com.polytech.transactions_service.client.DependencyGuard;
+import com.polytech.transactions_service.client.PaymentGateway;
+import com.polytech.transactions_service.client.TicketCache;
 import com.polytech.transactions_service.client.TicketClient;
 import com.polytech.transactions_service.client.UserClient;
+import com.polytech.transactions_service.config.PipelineObservations;
+import com.polytech.transactions_service.dto.CheckoutResult;
+import com.polytech.transactions_service.dto.CursorPage;
 import com.polytech.transactions_service.dto.TicketDto;
+import com.polytech.transactions_service.dto.TransactionSummaryDto;
 import com.polytech.transactions_service.event.PaymentValidatedEvent;
 import com.polytech.transactions_service.event.TicketSoldEvent;
 import com.polytech.transactions_service.event.TransactionRefundedEvent;
+import com.polytech.transactions_service.exception.DependencyUnavailableException;
+import com.polytech.transactions_service.model.Money;
 import com.polytech.transactions_service.model.Transaction;
 import com.polytech.transactions_service.model.enums.PaymentStatus;
 import com.polytech.transactions_service.model.enums.TransactionStatus;
 import com.polytech.transactions_service.repository.TransactionRepository;
-import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
-import com.stripe.model.PaymentIntent;
-import com.stripe.model.Refund;
-import com.stripe.param.PaymentIntentCreateParams;
-import com.stripe.param.RefundCreateParams;
 import feign.FeignException;
+import feign.RetryableException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -35,27 +46,40 @@ public class TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final TicketClient ticketClient;
+    private final TicketCache ticketCache;
     private final UserClient userClient;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
-
-    @Value("${stripe.api-key}")
-    private String stripeApiKey;
-
-    private static final double PLATFORM_FEE_PERCENTAGE = 0.05;
+    private final OutboxService outboxService;
+    private final ClientSecretCache clientSecretCache;
+    private final SalesRollupService salesRollupService;
+    private final LedgerService ledgerService;
+    private final FeeScheduleService feeScheduleService;
+    private final PipelineObservations observations;
+    private final PaymentGateway paymentGateway;
+    private final TransactionOperations transactionOperations;
+
+    // Noms des pipelines observés (tag "pipeline" des timers transactions.pipeline / transactions.stage)
+    private static final String CHECKOUT = "checkout";
+    private static final String CONFIRM = "confirm";
+    private static final String REFUND = "refund";
+
+    // Durée pendant laquelle un checkout PENDING peut être repris
+    @Value("${checkout.expiry:15m}")
+    private Duration checkoutExpiry = Duration.ofMinutes(15);
 
     /**
      * Étape 1: Initialiser la transaction et créer un PaymentIntent Stripe.
-     * Retourne la transaction enrichie avec le clientSecret de Stripe.
+     * Volontairement sans @Transactional : aucune connexion JDBC n'est retenue pendant les appels
+     * distants (tickets-service, Stripe). Chaque écriture en base est une transaction courte.
      */
-    @Transactional
-    public Transaction createTransaction(String buyerId, UUID ticketId) {
-        // Initialisation de Stripe avec la clé secrète
-        Stripe.apiKey = stripeApiKey;
+    public CheckoutResult createTransaction(String buyerId, UUID ticketId) {
+        return observations.pipeline(CHECKOUT, null, () -> checkout(buyerId, ticketId));
+    }
 
-        // 1. Vérification du Ticket
+    private CheckoutResult checkout(String buyerId, UUID ticketId) {
+        // 1. Vérification du Ticket (appel distant, hors transaction)
         TicketDto ticket;
         try {
-            ticket = ticketClient.getTicketById(ticketId);
+            ticket = observations.stage(CHECKOUT, "ticket-lookup", () -> ticketCache.getTicket(ticketId));
         } catch (FeignException.NotFound e) {
             throw new IllegalArgumentException("Ticket not found: " + ticketId);
         }
@@ -65,86 +89,182 @@ public class TransactionService {
         // Si le ticket est déjà vendu ou réservé, TicketService renverra une erreur (409 ou 400),
         // ce qui fera échouer cette méthode et empêchera la création du paiement.
         try {
-            ticketClient.reserveTicket(ticketId);
+            observations.runStage(CHECKOUT, "reserve-ticket", () -> ticketClient.reserveTicket(ticketId));
+        } catch (RetryableException | FeignException.FeignServerException e) {
+            // Pas de réponse exploitable (timeout, 5xx) : la réservation a pu aboutir côté tickets-service
+            releaseTicketQuietly(ticketId);
+            throw new DependencyUnavailableException(DependencyGuard.TICKETS, "no-response", e);
         } catch (FeignException e) {
             throw new IllegalStateException("Le ticket n'est plus disponible.");
+        } finally {
+            ticketCache.invalidate(ticketId);
         }
-        /*
-        if (!"AVAILABLE".equalsIgnoreCase(ticket.getStatus())) {
-            throw new IllegalStateException("Ticket is not available for sale (Status: " + ticket.getStatus() + ")");
-        }
-        */
-        // 2. Calculs Financiers
-        double totalAmount = ticket.getSalePrice();
-        double fees = Math.round(totalAmount * PLATFORM_FEE_PERCENTAGE * 100.0) / 100.0;
-        double vendorNet = totalAmount - fees;
-        // 3. Création de l'objet Transaction (PENDING)
-        Transaction transaction = Transaction.builder()
-                .buyerId(UUID.fromString(buyerId))
-                .ticketId(ticketId)
-                .vendorId(ticket.getVendorId())
-                .totalAmount(totalAmount)
-                .platformFee(fees)
-                .vendorAmount(vendorNet)
-                .status(TransactionStatus.PENDING)
-                .paymentStatus(PaymentStatus.UNPAID)
-                .transactionDate(LocalDateTime.now())
-                .build();
 
+        // À partir d'ici le ticket est réservé : tout échec doit le libérer (compensation)
+        Transaction transaction;
         try {
-            // 4. Appel à Stripe pour créer le PaymentIntent
-            PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
-                    .setAmount((long) (totalAmount * 100)) // Stripe utilise les centimes (long)
-                    .setCurrency("eur")
-                    .setAutomaticPaymentMethods(
-                            PaymentIntentCreateParams.AutomaticPaymentMethods.builder().setEnabled(true).build()
-                    )
-                    // Metadonnées utiles pour retrouver la transaction plus tard (webhook)
-                    .putMetadata("transactionId", transaction.getId() != null ? transaction.getId().toString() : "new")
-                    .putMetadata("ticketId", ticketId.toString())
-                    .putMetadata("buyerId", buyerId)
+            // 3. Calculs Financiers (centimes ; barème en mémoire, aucune requête)
+            long totalAmount = Money.ofDecimal(ticket.getSalePrice());
+            long fees = feeScheduleService.platformFee(ticket.getVendorId(), ticket.getEventId(), totalAmount);
+            long vendorNet = totalAmount - fees;
+
+            // 4. Persistance de la transaction PENDING (transaction courte, via le repository)
+            Transaction pending = Transaction.builder()
+                    .buyerId(UUID.fromString(buyerId))
+                    .ticketId(ticketId)
+                    // Snapshot du ticket : confirmation et remboursement n'auront plus à le relire
+                    .vendorId(ticket.getVendorId())
+                    .eventId(ticket.getEventId())
+                    .ticketPriceCents(totalAmount)
+                    .totalAmountCents(totalAmount)
+                    .platformFeeCents(fees)
+                    .vendorAmountCents(vendorNet)
+                    .status(TransactionStatus.PENDING)
+                    .paymentStatus(PaymentStatus.UNPAID)
+                    .transactionDate(LocalDateTime.now())
                     .build();
+            transaction = observations.stage(CHECKOUT, "save", () -> transactionRepository.save(pending));
+        } catch (RuntimeException e) {
+            releaseTicketQuietly(ticketId);
+            throw e;
+        }
+        observations.tagTransaction(transaction.getId());
+
+        // 5. Appel à Stripe pour créer le PaymentIntent (hors transaction)
+        PaymentGateway.Payment payment;
+        try {
+            // Metadonnées utiles pour retrouver la transaction plus tard (webhook)
+            Map<String, String> metadata = Map.of(
+                    "transactionId", transaction.getId().toString(),
+                    "ticketId", ticketId.toString(),
+                    "buyerId", buyerId);
+            payment = observations.stage(CHECKOUT, "stripe-payment-intent",
+                    () -> paymentGateway.createPayment(transaction.getTotalAmountCents(), metadata));
+        } catch (StripeException e) {
+            log.error("Erreur Stripe lors de l'initialisation du paiement", e);
+            abandonCheckout(transaction);
+            throw new RuntimeException("Erreur de paiement: " + e.getMessage());
+        } catch (DependencyUnavailableException e) {
+            // Breaker Stripe ouvert ou bulkhead plein : même compensation, réponse 503
+            abandonCheckout(transaction);
+            throw e;
+        }
+
+        // 6. On stocke l'ID du PaymentIntent pour pouvoir vérifier le statut plus tard (transaction courte).
+        // Le clientSecret n'est pas stocké en BDD pour des raisons de sécu, mais renvoyé au front.
+        try {
+            observations.stage(CHECKOUT, "save-payment-token",
+                    () -> transactionRepository.updatePaymentToken(transaction.getId(), payment.id()));
+        } catch (RuntimeException e) {
+            // Sans token en base, le PaymentIntent ne serait plus jamais annulé : on le fait tout de suite
+            cancelPaymentQuietly(payment.id());
+            abandonCheckout(transaction);
+            throw e;
+        }
+        transaction.setPaymentToken(payment.id());
+
+        // Le clientSecret vient directement du PaymentIntent créé : pas de second appel à Stripe
+        clientSecretCache.put(transaction.getId(), payment.clientSecret());
+        return toCheckoutResult(transaction, payment.clientSecret());
+    }
+
+    /**
+     * Reprise d'un checkout en cours (ex: l'app a été fermée avant la confirmation).
+     * Le clientSecret est servi depuis le cache local ; Stripe n'est interrogé qu'en cas d'absence
+     * (redémarrage, requête arrivée sur une autre instance).
+     */
+    public CheckoutResult resumeCheckout(UUID transactionId, String buyerId) {
+        Transaction transaction = findOwned(transactionId, buyerId);
+        if (transaction.getStatus() != TransactionStatus.PENDING || transaction.getPaymentToken() == null
+                || checkoutExpiresAt(transaction).isBefore(LocalDateTime.now())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Checkout non reprenable (statut " + transaction.getStatus() + ")");
+        }
+        return toCheckoutResult(transaction, clientSecret(transaction));
+    }
+
+    /**
+     * Rejeu d'une création avec Idempotency-Key : état courant de la transaction, avec son clientSecret
+     * tant qu'elle attend son paiement. Le secret vient du cache local ou de Stripe, jamais de la base.
+     */
+    public CheckoutResult replayCheckout(UUID transactionId, String buyerId) {
+        Transaction transaction = findOwned(transactionId, buyerId);
+        boolean payable = transaction.getStatus() == TransactionStatus.PENDING && transaction.getPaymentToken() != null;
+        return toCheckoutResult(transaction, payable ? clientSecret(transaction) : null);
+    }
 
-            PaymentIntent paymentIntent = PaymentIntent.create(params);
+    private Transaction findOwned(UUID transactionId, String buyerId) {
+        Transaction transaction = transactionRepository.findById(transactionId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Transaction introuvable"));
+        if (!transaction.getBuyerId().toString().equals(buyerId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Transaction d'un autre utilisateur");
+        }
+        return transaction;
+    }
 
-            // 5. Sauvegarde du token Stripe et du clientSecret (temporairement dans un champ ou renvoyé)
-            // Note: Le clientSecret n'est pas stocké en BDD pour des raisons de sécu, mais renvoyé au front.
-            // On stocke l'ID du PaymentIntent pour pouvoir vérifier le statut plus tard.
-            transaction.setPaymentToken(paymentIntent.getId());
+    private String clientSecret(Transaction transaction) {
+        String clientSecret = clientSecretCache.get(transaction.getId());
+        if (clientSecret == null) {
+            clientSecret = getStripeClientSecret(transaction.getPaymentToken());
+            clientSecretCache.put(transaction.getId(), clientSecret);
+        }
+        return clientSecret;
+    }
 
-            // Astuce : On peut stocker le clientSecret dans un champ transient ou l'envoyer via un DTO dédié.
-            // Ici, pour simplifier, on suppose que l'entité Transaction a un champ @Transient ou qu'on le retourne autrement.
-            // Si votre modèle Transaction n'a pas de champ pour le clientSecret, vous devriez retourner un DTO composite.
-            // Pour l'instant, on va supposer que le contrôleur gère l'envoi du secret, ou on l'ajoute au modèle.
+    private CheckoutResult toCheckoutResult(Transaction transaction, String clientSecret) {
+        return CheckoutResult.builder()
+                .transaction(transaction)
+                .transactionId(transaction.getId())
+                .clientSecret(clientSecret)
+                .expiresAt(checkoutExpiresAt(transaction))
+                .build();
+    }
 
-            // Sauvegarde en base
-            transaction = transactionRepository.save(transaction);
+    private LocalDateTime checkoutExpiresAt(Transaction transaction) {
+        return transaction.getTransactionDate().plus(checkoutExpiry);
+    }
 
-            // On "hacke" l'objet retourné pour inclure le clientSecret (nécessaire pour le front)
-            // Idéalement, utilisez un TransactionResponseDto.
-            // Ici, on va utiliser une méthode utilitaire ou un champ transient si vous l'ajoutez au modèle.
-            // Pour l'exemple, je vais supposer que vous l'ajoutez au DTO de réponse dans le contrôleur
-            // ou que vous l'ajoutez comme propriété temporaire.
+    // Compensation d'un checkout sans PaymentIntent enregistré : la ligne passe FAILED, puis le ticket est libéré.
+    // Si la ligne n'a pas pu quitter PENDING (base indisponible), le ticket est laissé au sweeper,
+    // qui l'expirera et le libérera une seule fois.
+    private void abandonCheckout(Transaction transaction) {
+        int failed;
+        try {
+            failed = transactionRepository.updatePendingStatus(transaction.getId(), TransactionStatus.FAILED);
+        } catch (RuntimeException dbError) {
+            log.error("Impossible de marquer la transaction {} FAILED, ticket laissé au sweeper", transaction.getId(), dbError);
+            return;
+        }
+        if (failed == 1) {
+            transaction.setStatus(TransactionStatus.FAILED);
+            releaseTicketQuietly(transaction.getTicketId());
+        }
+    }
 
-            // Pour que votre code fonctionne directement, je vais retourner la transaction telle quelle,
-            // mais il faudra récupérer le clientSecret depuis paymentIntent dans le contrôleur.
-            return transaction; // Le contrôleur devra enrichir la réponse avec intent.getClientSecret()
+    private void cancelPaymentQuietly(String paymentId) {
+        try {
+            paymentGateway.cancelPayment(paymentId);
+        } catch (StripeException | DependencyUnavailableException e) {
+            log.warn("Annulation du PaymentIntent {} impossible", paymentId, e);
+        }
+    }
 
-        } catch (StripeException e) {
+    private void releaseTicketQuietly(UUID ticketId) {
+        try {
             ticketClient.releaseTicket(ticketId);
-            log.error("Erreur Stripe lors de l'initialisation du paiement", e);
-            throw new RuntimeException("Erreur de paiement: " + e.getMessage());
+            ticketCache.invalidate(ticketId);
+            log.info("Ticket {} libéré.", ticketId);
+        } catch (Exception e) {
+            log.error("Erreur non-bloquante libération ticket {}", ticketId, e);
         }
     }
 
     /**
-     * Méthode utilitaire pour récupérer le clientSecret d'une transaction en cours (si besoin de le renvoyer)
+     * Méthode utilitaire pour récupérer le clientSecret d'une transaction en cours (si absent du cache)
      */
-    public String getStripeClientSecret(String paymentIntentId) {
-        Stripe.apiKey = stripeApiKey;
+    private String getStripeClientSecret(String paymentIntentId) {
         try {
-            PaymentIntent intent = PaymentIntent.retrieve(paymentIntentId);
-            return intent.getClientSecret();
+            return paymentGateway.retrievePayment(paymentIntentId).clientSecret();
         } catch (StripeException e) {
             throw new RuntimeException("Impossible de récupérer le secret Stripe", e);
         }
@@ -155,7 +275,11 @@ public class TransactionService {
      */
     @Transactional
     public Transaction completeTransaction(UUID transactionId) {
-        Transaction transaction = transactionRepository.findById(transactionId)
+        return observations.pipeline(CONFIRM, transactionId, () -> confirm(transactionId));
+    }
+
+    private Transaction confirm(UUID transactionId) {
+        Transaction transaction = observations.stage(CONFIRM, "load", () -> transactionRepository.findById(transactionId))
                 .orElseThrow(() -> new RuntimeException("Transaction introuvable"));
 
         if (transaction.getStatus() != TransactionStatus.PENDING) {
@@ -166,19 +290,32 @@ public class TransactionService {
 
         // Vérification optionnelle auprès de Stripe pour être sûr que c'est payé
         // verifyStripePayment(transaction.getPaymentToken());
-        TicketDto ticket = null;
-        try {
-            ticket = ticketClient.getTicketById(transaction.getTicketId());
-        } catch (Exception e) {
-            log.error("Impossible de récupérer le ticket {} pour la transaction {}", transaction.getTicketId(), transactionId);
-            // On continue, mais le vendorId sera manquant (ou on throw pour annuler)
+        // Aucun appel à tickets-service : vendeur et prix sont figés sur la transaction à sa création
+        if (transaction.getVendorId() == null) {
+            log.warn("Transaction {} sans vendorId (antérieure au backfill), événement émis sans vendeur", transactionId);
         }
-        // 1. Mise à jour statut
-        transaction.setStatus(TransactionStatus.COMPLETED);
-        transaction.setPaymentStatus(PaymentStatus.PAID);
-        transaction.setValidationDate(LocalDateTime.now());
-
-        Transaction savedTransaction = transactionRepository.save(transaction);
+        // 1. Mise à jour statut, seulement si la ligne est encore PENDING (sweeper, confirmation concurrente).
+        // Même transaction que les rollups et le grand livre
+        LocalDateTime validationDate = LocalDateTime.now();
+        boolean completed = observations.stage(CONFIRM, "persist", () -> {
+            if (transactionRepository.completePending(transactionId, validationDate) == 0) {
+                return false;
+            }
+            transaction.setStatus(TransactionStatus.COMPLETED);
+            transaction.setPaymentStatus(PaymentStatus.PAID);
+            transaction.setValidationDate(validationDate);
+            salesRollupService.recordSale(transaction);
+            ledgerService.recordSale(transaction);
+            return true;
+        });
+        if (!completed) {
+            Transaction current = transactionRepository.findById(transactionId)
+                    .orElseThrow(() -> new RuntimeException("Transaction introuvable"));
+            if (current.getStatus() == TransactionStatus.COMPLETED) return current;
+            throw new IllegalStateException("Statut invalide pour validation: " + current.getStatus());
+        }
+        clientSecretCache.evict(transactionId);
+        ticketCache.invalidate(transaction.getTicketId()); // Le ticket passe SOLD
         /*
         // 2. Changement de statut du ticket (Appel Synchrone)
         try {
@@ -189,69 +326,75 @@ public class TransactionService {
         }
         */
         // 3. Événements Kafka (Asynchrone) pour les autres services
-        TicketSoldEvent soldEvent = new TicketSoldEvent(
-                transaction.getTicketId(),
-                transaction.getId(),
-                transaction.getBuyerId()
-        );
-        kafkaTemplate.send("ticket-sold", soldEvent);
-
-        PaymentValidatedEvent paymentEvent = PaymentValidatedEvent.builder()
-                .transactionId(transaction.getId())
-                .buyerId(transaction.getBuyerId())
-                // Note: vendorId n'est pas stocké dans Transaction actuellement, il faudrait le récupérer du Ticket
-                // ou l'ajouter au modèle Transaction lors de l'initiation.
-                .vendorAmount(transaction.getVendorAmount())
-                .amount(transaction.getTotalAmount())
-                .vendorId(ticket.getVendorId())
-                .build();
-        kafkaTemplate.send("payment-validated", paymentEvent);
+        // Écrits dans l'outbox : publiés par OutboxRelay seulement si cette transaction est validée
+        observations.runStage(CONFIRM, "outbox", () -> {
+            TicketSoldEvent soldEvent = new TicketSoldEvent(
+                    transaction.getTicketId(),
+                    transaction.getId(),
+                    transaction.getBuyerId()
+            );
+            outboxService.enqueue("ticket-sold", transaction.getId(), soldEvent);
+
+            PaymentValidatedEvent paymentEvent = PaymentValidatedEvent.builder()
+                    .transactionId(transaction.getId())
+                    .buyerId(transaction.getBuyerId())
+                    .vendorAmountCents(transaction.getVendorAmountCents())
+                    .amountCents(transaction.getTotalAmountCents())
+                    .vendorId(transaction.getVendorId())
+                    .build();
+            outboxService.enqueue("payment-validated", transaction.getId(), paymentEvent);
+        });
 
-        return savedTransaction;
+        return transaction;
     }
 
 
-    @Transactional
+    // Hors transaction : les appels Stripe ne tiennent pas de connexion ouverte
     public void cancelTransaction(UUID transactionId) {
         Transaction transaction = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new RuntimeException("Transaction introuvable"));
 
-        if (transaction.getStatus() == TransactionStatus.PENDING) {
-            // Par défaut, on considère que c'est une annulation utilisateur
-            TransactionStatus finalStatus = TransactionStatus.CANCELED;
-
-            // Vérification "Intelligente" via Stripe
-            if (transaction.getPaymentToken() != null) {
-                try {
-                    Stripe.apiKey = stripeApiKey;
-                    PaymentIntent intent = PaymentIntent.retrieve(transaction.getPaymentToken());
-
-                    // Si l'objet PaymentIntent contient une erreur, c'est un ECHEC bancaire
-                    if (intent.getLastPaymentError() != null) {
-                        finalStatus = TransactionStatus.FAILED;
-                        log.info("Transaction {} marquée FAILED (Erreur Stripe détectée: {})",
-                                transactionId, intent.getLastPaymentError().getMessage());
-                    }
-                } catch (Exception e) {
-                    log.warn("Impossible de vérifier le statut Stripe pour la transaction {}", transactionId, e);
-                }
-            }
+        if (transaction.getStatus() != TransactionStatus.PENDING) {
+            return;
+        }
 
-            // 1. Mise à jour du statut (CANCELED ou FAILED selon l'analyse)
-            transaction.setStatus(finalStatus);
-            if (finalStatus == TransactionStatus.FAILED) {
-                transaction.setPaymentStatus(PaymentStatus.UNPAID); // ou FAILED si dispo
-            }
-            transactionRepository.save(transaction);
+        // Par défaut, on considère que c'est une annulation utilisateur
+        TransactionStatus finalStatus = TransactionStatus.CANCELED;
 
-            // 2. Libération du ticket
+        // 1. Annulation du PaymentIntent avant de toucher à la ligne : un paiement qui aboutit
+        // pendant l'annulation ne doit pas laisser un ticket libéré alors que l'acheteur est débité
+        if (transaction.getPaymentToken() != null) {
             try {
-                ticketClient.releaseTicket(transaction.getTicketId());
-                log.info("Ticket {} libéré.", transaction.getTicketId());
-            } catch (Exception e) {
-                log.error("Erreur non-bloquante libération ticket {}", transaction.getTicketId(), e);
+                PaymentGateway.Payment payment = paymentGateway.retrievePayment(transaction.getPaymentToken());
+                switch (payment.status()) {
+                    case "succeeded", "processing", "requires_capture" -> throw new ResponseStatusException(
+                            HttpStatus.CONFLICT, "Paiement déjà engagé, annulation impossible");
+                    case "canceled" -> { } // Déjà annulé côté Stripe (sweeper, autre requête)
+                    default -> paymentGateway.cancelPayment(transaction.getPaymentToken());
+                }
+
+                // Si le PaymentIntent porte une erreur de paiement, c'est un ECHEC bancaire
+                if (payment.failureMessage() != null) {
+                    finalStatus = TransactionStatus.FAILED;
+                    log.info("Transaction {} marquée FAILED (Erreur Stripe détectée: {})",
+                            transactionId, payment.failureMessage());
+                }
+            } catch (StripeException e) {
+                // Ex: paiement abouti entre la lecture et l'annulation ; la ligne reste PENDING
+                log.warn("Annulation du PaymentIntent {} impossible", transaction.getPaymentToken(), e);
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Annulation du paiement impossible");
             }
         }
+
+        // 2. Statut CANCELED ou FAILED, seulement si la ligne est encore PENDING :
+        // une confirmation concurrente garde la main et son ticket vendu n'est pas libéré
+        if (transactionRepository.updatePendingStatus(transactionId, finalStatus) == 0) {
+            return;
+        }
+        clientSecretCache.evict(transactionId);
+
+        // 3. Libération du ticket
+        releaseTicketQuietly(transaction.getTicketId());
     }
 
     @Transactional
@@ -260,14 +403,16 @@ public class TransactionService {
                 .orElseThrow(() -> new RuntimeException("Transaction introuvable"));
 
         if (transaction.getStatus() == TransactionStatus.PENDING) {
-            // 1. Statut FAILED
-            transaction.setStatus(TransactionStatus.FAILED);
-            transaction.setPaymentStatus(PaymentStatus.UNPAID); // Ou FAILED si vous l'avez dans l'enum
-            transactionRepository.save(transaction);
+            // 1. Statut FAILED, seulement si la ligne est encore PENDING (confirmation ou expiration concurrente)
+            if (transactionRepository.updatePendingStatus(transactionId, TransactionStatus.FAILED) == 0) {
+                return;
+            }
+            clientSecretCache.evict(transactionId);
 
             // 2. Libération du ticket (Même logique que l'annulation)
             try {
                 ticketClient.releaseTicket(transaction.getTicketId());
+                ticketCache.invalidate(transaction.getTicketId());
                 log.info("Ticket {} libéré suite à l'échec de paiement {}", transaction.getTicketId(), transactionId);
             } catch (Exception e) {
                 log.error("Erreur non-bloquante libération ticket {}", transaction.getTicketId(), e);
@@ -275,10 +420,18 @@ public class TransactionService {
         }
     }
 
-    @Transactional
+    /**
+     * Sans @Transactional : la réservation COMPLETED -> REFUNDING est validée avant l'appel Stripe
+     * (aucune connexion retenue pendant l'appel), puis statut, rollups, grand livre et outbox
+     * sont écrits dans une même transaction courte.
+     */
     public void refundTransaction(UUID transactionId) {
+        observations.runPipeline(REFUND, transactionId, () -> refund(transactionId));
+    }
+
+    private void refund(UUID transactionId) {
         // 1. Récupérer la transaction
-        Transaction transaction = transactionRepository.findById(transactionId)
+        Transaction transaction = observations.stage(REFUND, "load", () -> transactionRepository.findById(transactionId))
                 .orElseThrow(() -> new RuntimeException("Transaction introuvable"));
 
         // Vérifier qu'elle est bien complétée
@@ -286,53 +439,98 @@ public class TransactionService {
             throw new IllegalStateException("Seules les transactions complétées peuvent être remboursées.");
         }
 
-        // 2. Récupérer les infos du ticket (pour avoir le vendorId qui n'est pas dans Transaction)
-        TicketDto ticket;
-        try {
-            ticket = ticketClient.getTicketById(transaction.getTicketId());
-        } catch (Exception e) {
-            throw new RuntimeException("Impossible de récupérer les infos du ticket pour le remboursement.");
+        // 2. Réservation : deux demandes concurrentes ne remboursent pas deux fois l'acheteur
+        if (observations.stage(REFUND, "claim", () -> transactionRepository.claimRefund(transactionId)) == 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Remboursement déjà en cours ou effectué");
         }
 
-        // 3. Appel STRIPE (Remboursement réel de l'acheteur)
+        // 3. Le vendorId est figé sur la transaction : pas d'appel à tickets-service
+        // 4. Appel STRIPE (Remboursement réel de l'acheteur), clé d'idempotence stable par transaction
         try {
-            Stripe.apiKey = stripeApiKey;
-            RefundCreateParams params = RefundCreateParams.builder()
-                    .setPaymentIntent(transaction.getPaymentToken()) // ID du paiement Stripe
-                    .build();
-            Refund refund = Refund.create(params);
+            // Ligne d'une commande panier : le PaymentIntent couvre toute la commande, remboursement partiel
+            Long amountCents = transaction.getOrderId() != null ? transaction.getTotalAmountCents() : null;
+            String refundStatus = observations.stage(REFUND, "stripe-refund",
+                    () -> paymentGateway.refund(transaction.getPaymentToken(), amountCents, "refund-" + transactionId));
 
-            if (!"succeeded".equals(refund.getStatus())) {
-                throw new RuntimeException("Le remboursement Stripe a échoué : " + refund.getStatus());
+            if (!"succeeded".equals(refundStatus)) {
+                throw new RuntimeException("Le remboursement Stripe a échoué : " + refundStatus);
             }
         } catch (StripeException e) {
             log.error("Erreur Stripe Refund", e);
+            transactionRepository.releaseRefundClaim(List.of(transactionId));
             throw new RuntimeException("Erreur Stripe : " + e.getMessage());
+        } catch (RuntimeException e) {
+            transactionRepository.releaseRefundClaim(List.of(transactionId));
+            throw e;
         }
 
-        // 4. Mise à jour locale
+        // 5. Mise à jour locale et événement Kafka (pour débiter le vendeur et annuler le ticket), atomiques
         transaction.setStatus(TransactionStatus.REFUNDED);
         transaction.setPaymentStatus(PaymentStatus.REFUNDED);
-        transactionRepository.save(transaction);
-
-        // 5. Événement Kafka (Pour débiter le vendeur et annuler le ticket)
+        transaction.setRefundDate(LocalDateTime.now());
         TransactionRefundedEvent event = TransactionRefundedEvent.builder()
                 .transactionId(transaction.getId())
                 .ticketId(transaction.getTicketId())
-                .vendorId(ticket.getVendorId())
-                .vendorAmount(transaction.getVendorAmount())
+                .vendorId(transaction.getVendorId())
+                .vendorAmountCents(transaction.getVendorAmountCents())
                 .build();
+        try {
+            transactionOperations.executeWithoutResult(status -> {
+                observations.runStage(REFUND, "persist", () -> {
+                    transactionRepository.save(transaction);
+                    salesRollupService.recordRefund(transaction);
+                    ledgerService.recordRefund(transaction);
+                });
+                observations.runStage(REFUND, "outbox", () -> outboxService.enqueue("transaction-refunded", transaction.getId(), event));
+            });
+        } catch (RuntimeException e) {
+            // Remboursé chez Stripe : la ligne reste REFUNDING, à solder manuellement
+            log.error("Transaction {} remboursée chez Stripe mais non enregistrée, laissée REFUNDING", transactionId, e);
+            throw e;
+        }
+        log.info("Transaction {} remboursée, événement Kafka mis en file (outbox).", transactionId);
+    }
 
-        kafkaTemplate.send("transaction-refunded", event);
-        log.info("Transaction {} remboursée et événement Kafka envoyé.", transactionId);
+    /**
+     * Historique des achats, paginé par curseur sur (transaction_date, transaction_id).
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TransactionSummaryDto> getUserHistory(UUID userId, String cursor, int size) {
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<TransactionSummaryDto> rows;
+        if (cursor == null) {
+            rows = transactionRepository.findBuyerPage(userId, limit);
+        } else {
+            TransactionCursor after = TransactionCursor.decode(cursor);
+            rows = transactionRepository.findBuyerPageAfter(userId, after.transactionDate(), after.id(), limit);
+        }
+        return toPage(rows, size);
     }
 
-    public List<Transaction> getUserHistory(UUID userId) {
-        return transactionRepository.findByBuyerId(userId);
+    /**
+     * Historique des ventes d'un vendeur, même pagination que l'historique d'achat.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TransactionSummaryDto> getUserSales(UUID userId, String cursor, int size) {
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<TransactionSummaryDto> rows;
+        if (cursor == null) {
+            rows = transactionRepository.findVendorPage(userId, limit);
+        } else {
+            TransactionCursor after = TransactionCursor.decode(cursor);
+            rows = transactionRepository.findVendorPageAfter(userId, after.transactionDate(), after.id(), limit);
+        }
+        return toPage(rows, size);
     }
 
-    public List<Transaction> getUserSales(UUID userId) {
-        return transactionRepository.findByVendorId(userId);
+    // On lit size + 1 lignes : la ligne en trop indique seulement qu'une page suivante existe
+    private CursorPage<TransactionSummaryDto> toPage(List<TransactionSummaryDto> rows, int size) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<TransactionSummaryDto> items = rows.subList(0, size);
+        TransactionSummaryDto last = items.get(size - 1);
+        return new CursorPage<>(items, new TransactionCursor(last.getTransactionDate(), last.getId()).encode());
     }
 
     public Transaction getTransaction(UUID id) {
@@ -342,23 +540,4 @@ public class TransactionService {
     public List<Transaction> getAllTransactions() {
         return transactionRepository.findAll();
     }
-
-    @Transactional
-    public void backfillVendorIds() {
-        List<Transaction> transactions = transactionRepository.findAll();
-        for (Transaction tx : transactions) {
-            if (tx.getVendorId() == null) {
-                try {
-                    TicketDto ticket = ticketClient.getTicketById(tx.getTicketId());
-                    if (ticket != null && ticket.getVendorId() != null) {
-                        tx.setVendorId(ticket.getVendorId());
-                        transactionRepository.save(tx);
-                        log.info("Backfilled vendorId for transaction {}", tx.getId());
-                    }
-                } catch (Exception e) {
-                    log.error("Failed to backfill vendorId for transaction {}", tx.getId(), e);
-                }
-            }
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,183 @@
+package com.polytech.transactions_service.service;
+
+import com.polytech.transactions_service.client.TicketClient;
+import com.polytech.transactions_service.config.IoThreadFactory;
+import com.polytech.transactions_service.dto.BackfillStatus;
+import com.polytech.transactions_service.dto.TicketDto;
+import com.polytech.transactions_service.dto.TransactionTicketRef;
+import com.polytech.transactions_service.repository.TransactionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backfill des vendorId manquants, exécuté en arrière-plan.
+ * Parcourt les lignes "vendor_id IS NULL" par paquets (keyset sur l'id), résout les tickets
+ * en parallèle (concurrence bornée) puis écrit chaque paquet en un seul batch JDBC.
+ * Reprise naturelle : une ligne déjà complétée n'est plus sélectionnée au lancement suivant.
+ * Les appels à tickets-service partent avec le jeton du compte de service (FeignClientInterceptor),
+ * pas avec celui de l'admin qui a lancé le job : il expirerait pendant un long backfill.
+ */
+@Component
+@Slf4j
+public class VendorBackfillJob {
+
+    private static final String UPDATE_VENDOR_SQL =
+            "UPDATE transactions SET vendor_id = ? WHERE transaction_id = ? AND vendor_id IS NULL";
+
+    private final TransactionRepository transactionRepository;
+    private final TicketClient ticketClient;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int concurrency;
+    private final IoThreadFactory ioThreadFactory;
+    private final ExecutorService runner;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong updated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile BackfillStatus.State state = BackfillStatus.State.IDLE;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String lastError;
+
+    public VendorBackfillJob(TransactionRepository transactionRepository,
+                             TicketClient ticketClient,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             IoThreadFactory ioThreadFactory,
+                             @Value("${backfill.chunk-size:500}") int chunkSize,
+                             @Value("${backfill.concurrency:8}") int concurrency) {
+        this.transactionRepository = transactionRepository;
+        this.ticketClient = ticketClient;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.concurrency = concurrency;
+        this.ioThreadFactory = ioThreadFactory;
+        this.runner = Executors.newSingleThreadExecutor(ioThreadFactory.named("vendor-backfill-"));
+    }
+
+    /**
+     * Lance le job s'il n'est pas déjà en cours.
+     * @return false si un backfill tourne déjà
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        processed.set(0);
+        updated.set(0);
+        failed.set(0);
+        lastError = null;
+        finishedAt = null;
+        startedAt = LocalDateTime.now();
+        state = BackfillStatus.State.RUNNING;
+
+        runner.submit(this::run);
+        return true;
+    }
+
+    public BackfillStatus getStatus() {
+        return BackfillStatus.builder()
+                .state(state)
+                .processed(processed.get())
+                .updated(updated.get())
+                .failed(failed.get())
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .lastError(lastError)
+                .build();
+    }
+
+    private void run() {
+        ExecutorService lookups = Executors.newFixedThreadPool(concurrency, ioThreadFactory.named("vendor-backfill-lookup-"));
+        try {
+            Pageable limit = PageRequest.of(0, chunkSize);
+            List<TransactionTicketRef> chunk = transactionRepository.findByVendorIdIsNullOrderByIdAsc(limit);
+            while (!chunk.isEmpty()) {
+                processChunk(chunk, lookups);
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+                UUID afterId = chunk.get(chunk.size() - 1).getId();
+                chunk = transactionRepository.findByVendorIdIsNullAndIdGreaterThanOrderByIdAsc(afterId, limit);
+            }
+            state = BackfillStatus.State.COMPLETED;
+            log.info("Backfill vendorId terminé : {} lignes, {} mises à jour, {} échecs",
+                    processed.get(), updated.get(), failed.get());
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            state = BackfillStatus.State.FAILED;
+            log.error("Backfill vendorId interrompu après {} lignes", processed.get(), e);
+        } finally {
+            lookups.shutdown();
+            finishedAt = LocalDateTime.now();
+            running.set(false);
+        }
+    }
+
+    private void processChunk(List<TransactionTicketRef> chunk, ExecutorService lookups) {
+        // Un seul appel par ticket distinct du paquet
+        Set<UUID> ticketIds = new LinkedHashSet<>();
+        for (TransactionTicketRef ref : chunk) {
+            ticketIds.add(ref.getTicketId());
+        }
+        Map<UUID, CompletableFuture<UUID>> vendorByTicket = new HashMap<>();
+        for (UUID ticketId : ticketIds) {
+            vendorByTicket.put(ticketId, CompletableFuture.supplyAsync(() -> resolveVendor(ticketId), lookups));
+        }
+
+        List<Object[]> batch = new ArrayList<>(chunk.size());
+        for (TransactionTicketRef ref : chunk) {
+            UUID vendorId = vendorByTicket.get(ref.getTicketId()).join();
+            if (vendorId != null) {
+                batch.add(new Object[]{vendorId, ref.getId()});
+            } else {
+                failed.incrementAndGet();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_VENDOR_SQL, batch));
+        }
+        processed.addAndGet(chunk.size());
+        updated.addAndGet(batch.size());
+    }
+
+    private UUID resolveVendor(UUID ticketId) {
+        try {
+            TicketDto ticket = ticketClient.getTicketById(ticketId);
+            return ticket != null ? ticket.getVendorId() : null;
+        } catch (Exception e) {
+            log.warn("Ticket {} introuvable pour le backfill vendorId", ticketId, e);
+            return null;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        runner.shutdownNow();
+    }
+}
@@ -0,0 +1,26 @@
+-- Date du remboursement : les rollups l'imputent à ce jour-là
+ALTER TABLE transactions ADD COLUMN refund_date TIMESTAMP;
+
+-- Agrégats journaliers tenus à jour dans la même transaction que les changements de statut.
+-- Montants en centimes (BIGINT) : des sommes exactes, quel que soit le nombre de ventes
+CREATE TABLE vendor_daily_sales (
+    vendor_id UUID NOT NULL,
+    sale_date DATE NOT NULL,
+    sales_count BIGINT NOT NULL DEFAULT 0,
+    refund_count BIGINT NOT NULL DEFAULT 0,
+    gross_cents BIGINT NOT NULL DEFAULT 0,
+    vendor_cents BIGINT NOT NULL DEFAULT 0,
+    fee_cents BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (vendor_id, sale_date)
+);
+
+CREATE TABLE event_daily_sales (
+    event_id UUID NOT NULL,
+    sale_date DATE NOT NULL,
+    sales_count BIGINT NOT NULL DEFAULT 0,
+    refund_count BIGINT NOT NULL DEFAULT 0,
+    gross_cents BIGINT NOT NULL DEFAULT 0,
+    vendor_cents BIGINT NOT NULL DEFAULT 0,
+    fee_cents BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (event_id, sale_date)
+);
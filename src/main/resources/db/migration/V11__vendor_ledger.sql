@@ -0,0 +1,38 @@
+-- Grand livre en partie double : chaque écriture (vente, remboursement, versement) produit
+-- des lignes dont la somme est nulle. Table en ajout seul, jamais modifiée.
+-- Convention : montant > 0 au crédit du compte, < 0 au débit, en centimes
+CREATE TABLE ledger_entries (
+    entry_id BIGSERIAL PRIMARY KEY,
+    journal_id UUID NOT NULL,
+    entry_type VARCHAR(16) NOT NULL,
+    account VARCHAR(32) NOT NULL,
+    vendor_id UUID,
+    transaction_id UUID,
+    payout_id UUID,
+    amount_cents BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+-- Historique d'un vendeur, du plus récent au plus ancien (pagination par entry_id)
+CREATE INDEX idx_ledger_vendor_entry ON ledger_entries(vendor_id, entry_id) WHERE vendor_id IS NOT NULL;
+
+-- Une transaction n'est passée qu'une fois par type d'écriture
+CREATE UNIQUE INDEX uq_ledger_transaction_leg ON ledger_entries(transaction_id, entry_type, account)
+    WHERE transaction_id IS NOT NULL;
+
+-- Solde dû à chaque vendeur, tenu à jour dans la même transaction que les écritures.
+-- Une ligne par vendeur : le run de versement parcourt la clé primaire, pas le grand livre
+CREATE TABLE vendor_balances (
+    vendor_id UUID PRIMARY KEY,
+    balance_cents BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL
+);
+
+CREATE TABLE payouts (
+    payout_id UUID PRIMARY KEY,
+    vendor_id UUID NOT NULL,
+    amount_cents BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_payouts_vendor ON payouts(vendor_id, created_at);
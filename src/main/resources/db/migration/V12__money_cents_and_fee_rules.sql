@@ -0,0 +1,25 @@
+-- Montants en centimes (BIGINT) : plus d'arrondi binaire sur les sommes et les commissions.
+-- Réécrit la table transactions (verrou exclusif le temps de la migration)
+ALTER TABLE transactions ALTER COLUMN ticket_price TYPE BIGINT USING ROUND(ticket_price * 100);
+ALTER TABLE transactions ALTER COLUMN total_amount TYPE BIGINT USING ROUND(total_amount * 100);
+ALTER TABLE transactions ALTER COLUMN platform_fee TYPE BIGINT USING ROUND(platform_fee * 100);
+ALTER TABLE transactions ALTER COLUMN vendor_amount TYPE BIGINT USING ROUND(vendor_amount * 100);
+
+ALTER TABLE transactions RENAME COLUMN ticket_price TO ticket_price_cents;
+ALTER TABLE transactions RENAME COLUMN total_amount TO total_amount_cents;
+ALTER TABLE transactions RENAME COLUMN platform_fee TO platform_fee_cents;
+ALTER TABLE transactions RENAME COLUMN vendor_amount TO vendor_amount_cents;
+
+-- Règles de commission : une règle par événement ou par vendeur, sinon le taux par défaut (fees.*)
+CREATE TABLE fee_rules (
+    rule_id BIGSERIAL PRIMARY KEY,
+    vendor_id UUID,
+    event_id UUID,
+    rate_bps INT NOT NULL CHECK (rate_bps BETWEEN 0 AND 10000),
+    fixed_cents BIGINT NOT NULL DEFAULT 0 CHECK (fixed_cents >= 0),
+    updated_at TIMESTAMP NOT NULL,
+    CHECK ((vendor_id IS NULL) <> (event_id IS NULL))
+);
+
+CREATE UNIQUE INDEX uq_fee_rules_vendor ON fee_rules(vendor_id) WHERE vendor_id IS NOT NULL;
+CREATE UNIQUE INDEX uq_fee_rules_event ON fee_rules(event_id) WHERE event_id IS NOT NULL;
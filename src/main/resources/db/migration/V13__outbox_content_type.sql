@@ -0,0 +1,2 @@
+-- Format du message (JSON ou binaire), publié dans l'en-tête content-type
+ALTER TABLE outbox_events ADD COLUMN content_type VARCHAR(64);
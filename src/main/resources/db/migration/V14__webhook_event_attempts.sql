@@ -0,0 +1,3 @@
+-- Tentatives de traitement d'un webhook : au-delà du maximum, l'événement n'est plus repris (dead-letter)
+ALTER TABLE stripe_webhook_events ADD COLUMN attempts INT NOT NULL DEFAULT 0;
+ALTER TABLE stripe_webhook_events ADD COLUMN last_error VARCHAR(1000);
@@ -0,0 +1,3 @@
+-- Bail des clés IN_PROGRESS : une requête interrompue (crash, timeout) peut être reprise après expiration
+-- Les lignes déjà bloquées reçoivent un bail échu et redeviennent disponibles
+ALTER TABLE idempotency_keys ADD COLUMN locked_until TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
@@ -0,0 +1,13 @@
+-- Les réponses rejouées ne sont plus stockées (elles contenaient le clientSecret Stripe) :
+-- seul l'ID de la transaction ou de la commande créée est conservé, la réponse est reconstruite au rejeu
+ALTER TABLE idempotency_keys ADD COLUMN resource_id UUID;
+
+UPDATE idempotency_keys
+SET resource_id = COALESCE(convert_from(response_body, 'UTF8')::jsonb ->> 'transactionId',
+                           convert_from(response_body, 'UTF8')::jsonb ->> 'orderId')::uuid
+WHERE status = 'COMPLETED' AND response_body IS NOT NULL;
+
+-- Réponse terminée sans ID exploitable : la clé est oubliée plutôt que rejouée sans contenu
+DELETE FROM idempotency_keys WHERE status = 'COMPLETED' AND resource_id IS NULL;
+
+ALTER TABLE idempotency_keys DROP COLUMN response_body;
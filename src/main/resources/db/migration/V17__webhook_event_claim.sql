@@ -0,0 +1,4 @@
+-- Reprise des webhooks : une instance réserve l'événement jusqu'à claimed_until avant de le traiter.
+-- Renseigné dès la réception (file locale) et à chaque reprise (SELECT ... FOR UPDATE SKIP LOCKED) :
+-- les autres instances ne le reprennent qu'une fois la réservation échue.
+ALTER TABLE stripe_webhook_events ADD COLUMN claimed_until TIMESTAMP;
@@ -0,0 +1,5 @@
+-- Dead-letter de l'outbox : au-delà de outbox.relay.max-attempts, la ligne n'est plus relayée
+-- (dead_lettered_at renseigné, last_error conservé) ; remise en file manuelle en vidant la colonne
+ALTER TABLE outbox_events ADD COLUMN dead_lettered_at TIMESTAMP;
+
+CREATE INDEX idx_outbox_events_dead_letters ON outbox_events(dead_lettered_at) WHERE dead_lettered_at IS NOT NULL;
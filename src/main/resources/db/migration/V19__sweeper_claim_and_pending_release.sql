@@ -0,0 +1,9 @@
+-- Sweeper des checkouts expirés : une instance réserve la ligne jusqu'à claimed_until avant
+-- d'interroger Stripe (SELECT ... FOR UPDATE SKIP LOCKED), les autres ne la reprennent qu'une fois la réservation échue.
+ALTER TABLE transactions ADD COLUMN claimed_until TIMESTAMP;
+
+-- Ticket encore à libérer : posé avec le passage EXPIRED, effacé après un releaseTicket réussi.
+-- Un échec de libération est ainsi rejoué aux passages suivants.
+ALTER TABLE transactions ADD COLUMN release_pending BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE INDEX idx_transactions_release_pending ON transactions(transaction_id) WHERE release_pending;
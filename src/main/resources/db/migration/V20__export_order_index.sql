@@ -0,0 +1,3 @@
+-- Export admin : ORDER BY transaction_date, transaction_id (filtres optionnels sur la période)
+-- => lecture dans l'ordre de l'index, sans tri de toute la table avant la première ligne envoyée
+CREATE INDEX idx_transactions_date_id ON transactions(transaction_date, transaction_id);
@@ -0,0 +1,8 @@
+-- Index composites pour la pagination keyset de l'historique (achats / ventes)
+-- ORDER BY transaction_date DESC, transaction_id DESC => simple parcours d'index, sans tri
+CREATE INDEX idx_transactions_buyer_date ON transactions(buyer_id, transaction_date DESC, transaction_id DESC);
+CREATE INDEX idx_transactions_vendor_date ON transactions(vendor_id, transaction_date DESC, transaction_id DESC);
+
+-- Les index simples sont couverts par le préfixe des index composites
+DROP INDEX idx_transactions_buyer;
+DROP INDEX idx_transactions_vendor;
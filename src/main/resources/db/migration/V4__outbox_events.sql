@@ -0,0 +1,11 @@
+-- Outbox : événements Kafka écrits dans la même transaction que le changement de statut,
+-- puis publiés par OutboxRelay (au moins une fois)
+CREATE TABLE outbox_events (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    topic VARCHAR(255) NOT NULL,
+    message_key VARCHAR(255),
+    payload BYTEA NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    last_error VARCHAR(1000)
+);
@@ -0,0 +1,4 @@
+-- Snapshot du ticket sur la transaction : confirmation et remboursement
+-- n'ont plus besoin d'appeler tickets-service
+ALTER TABLE transactions ADD COLUMN event_id UUID;
+ALTER TABLE transactions ADD COLUMN ticket_price DOUBLE PRECISION;
@@ -0,0 +1,13 @@
+-- Webhooks Stripe déjà reçus : un rejeu du même événement est un no-op
+CREATE TABLE stripe_webhook_events (
+    event_id VARCHAR(255) PRIMARY KEY,
+    type VARCHAR(100) NOT NULL,
+    payment_intent_id VARCHAR(255),
+    received_at TIMESTAMP NOT NULL,
+    processed_at TIMESTAMP
+);
+
+CREATE INDEX idx_stripe_webhook_events_unprocessed ON stripe_webhook_events(received_at) WHERE processed_at IS NULL;
+
+-- Le webhook retrouve la transaction par l'ID du PaymentIntent
+CREATE INDEX idx_transactions_payment_token ON transactions(payment_token);
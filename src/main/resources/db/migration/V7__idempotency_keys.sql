@@ -0,0 +1,12 @@
+-- Clés d'idempotence de POST /transactions (une par acheteur + clé fournie par le client)
+CREATE TABLE idempotency_keys (
+    scoped_key VARCHAR(320) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    response_status INTEGER,
+    response_body BYTEA,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys(expires_at);
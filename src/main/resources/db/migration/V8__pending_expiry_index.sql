@@ -0,0 +1,3 @@
+-- Sweeper des checkouts abandonnés : seules les lignes PENDING sont indexées,
+-- le balayage ne parcourt jamais l'historique complet
+CREATE INDEX idx_transactions_pending_date ON transactions(transaction_date) WHERE status = 'PENDING';
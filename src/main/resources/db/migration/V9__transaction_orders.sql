@@ -0,0 +1,4 @@
+-- Checkout panier : une commande regroupe plusieurs lignes payées par un seul PaymentIntent
+ALTER TABLE transactions ADD COLUMN order_id UUID;
+
+CREATE INDEX idx_transactions_order ON transactions(order_id) WHERE order_id IS NOT NULL;
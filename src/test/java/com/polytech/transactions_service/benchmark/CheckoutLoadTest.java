@@ -0,0 +1,381 @@
+package com.polytech.transactions_service.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polytech.transactions_service.repository.OutboxEventRepository;
+import com.polytech.transactions_service.service.LedgerService;
+import com.polytech.transactions_service.service.SalesRollupService;
+import com.polytech.transactions_service.support.FakeStripeServer;
+import com.polytech.transactions_service.support.FakeTicketsServer;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.convention.TestBean;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Test de charge de bout en bout du checkout : le service complet (HTTP, sécurité, JPA, outbox, Kafka)
+ * démarré contre des doublures locales — faux tickets-service (latence et refus de réservation injectés),
+ * faux Stripe, Kafka embarqué et base H2 embarquée.
+ *
+ * Chaque checkout (create) est lancé à cadence fixe (boucle ouverte : la latence de create est mesurée
+ * depuis l'instant prévu, un service lent n'abaisse pas la charge), puis suivi selon le mix d'un
+ * confirm, d'un cancel ou d'un confirm + refund. Rapport par endpoint (débit, p50 à p99.9, erreurs),
+ * histogrammes HdrHistogram (.hgrm), synthèse JSON et métriques du service (prometheus.txt, temps par
+ * étape des pipelines) dans target/load-test ; le test échoue si un p99
+ * ou le taux d'erreur dépasse son seuil, ou si l'outbox n'est pas vidée vers Kafka.
+ *
+ * Lancement : mvn test -Pbenchmark -Dtest=CheckoutLoadTest
+ * (options : -Dloadtest.rate, -Dloadtest.duration-s, -Dloadtest.warmup-s, -Dloadtest.ticket-latency-ms,
+ * -Dloadtest.ticket-failure-rate, -Dloadtest.stripe-latency-ms, -Dloadtest.mix=confirm:60,cancel:25,refund:15,
+ * -Dloadtest.p99-ms, -Dloadtest.max-error-rate).
+ *
+ * H2 ne connaît pas INSERT ... ON CONFLICT DO UPDATE : les rollups de ventes et le grand livre
+ * (upserts PostgreSQL, couverts par UpsertRepositoryPostgresTest) sont remplacés par des doublures.
+ */
+@Tag("benchmark")
+@AutoConfigureObservability // Export Prometheus et tracing, désactivés par défaut dans les tests Spring Boot
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.hikari.maximum-pool-size=20",
+        "eureka.client.enabled=false",
+        "spring.kafka.listener.auto-startup=true",
+        "outbox.relay.enabled=true",
+        "outbox.relay.interval-ms=50",
+        "logging.level.com.polytech.transactions_service=WARN"
+})
+@EmbeddedKafka(partitions = 1, bootstrapServersProperty = "spring.kafka.bootstrap-servers",
+        topics = {"ticket-sold", "payment-validated", "transaction-refunded", "ticket-status-changed"})
+class CheckoutLoadTest {
+
+    private static final int RATE = Integer.getInteger("loadtest.rate", 50); // checkouts/s
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("loadtest.duration-s", 30));
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("loadtest.warmup-s", 10));
+    private static final Duration TICKET_LATENCY = Duration.ofMillis(Long.getLong("loadtest.ticket-latency-ms", 20));
+    private static final double TICKET_FAILURE_RATE = Double.parseDouble(System.getProperty("loadtest.ticket-failure-rate", "0"));
+    private static final Duration STRIPE_LATENCY = Duration.ofMillis(Long.getLong("loadtest.stripe-latency-ms", 50));
+    private static final String MIX = System.getProperty("loadtest.mix", "confirm:60,cancel:25,refund:15");
+    private static final long P99_THRESHOLD_MS = Long.getLong("loadtest.p99-ms", 1000);
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+    private static final Duration OUTBOX_DRAIN_TIMEOUT = Duration.ofSeconds(30);
+    private static final Path REPORT_DIR = Path.of("target", "load-test");
+    private static final String ADMIN_PREFIX = "admin.";
+
+    private enum Endpoint { CREATE, CONFIRM, CANCEL, REFUND }
+
+    private enum Outcome { CONFIRM, CANCEL, REFUND }
+
+    private static FakeTicketsServer tickets;
+    private static FakeStripeServer stripe;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    // Jeton = sub de l'utilisateur ; "admin.<sub>" porte le rôle ADMIN (pas de Keycloak)
+    @TestBean
+    private JwtDecoder jwtDecoder;
+
+    @TestBean
+    private SalesRollupService salesRollupService;
+
+    @TestBean
+    private LedgerService ledgerService;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+    private final Map<Outcome, Integer> mix = parseMix(MIX);
+
+    @DynamicPropertySource
+    static void stubs(DynamicPropertyRegistry registry) throws IOException {
+        tickets = new FakeTicketsServer(TICKET_LATENCY, TICKET_FAILURE_RATE);
+        stripe = new FakeStripeServer(STRIPE_LATENCY);
+        registry.add("spring.cloud.openfeign.client.config.tickets-service.url", tickets::url);
+        registry.add("stripe.api-base", stripe::url);
+    }
+
+    static JwtDecoder jwtDecoder() {
+        return token -> {
+            boolean admin = token.startsWith(ADMIN_PREFIX);
+            Instant now = Instant.now();
+            return Jwt.withTokenValue(token)
+                    .header("alg", "none")
+                    .subject(admin ? token.substring(ADMIN_PREFIX.length()) : token)
+                    .issuedAt(now)
+                    .expiresAt(now.plusSeconds(300))
+                    .claim("realm_access", Map.of("roles", List.of(admin ? "admin" : "user")))
+                    .build();
+        };
+    }
+
+    // stubOnly : Mockito n'enregistre pas les appels (pas de contention ni de fuite mémoire sous charge)
+    static SalesRollupService salesRollupService() {
+        return mock(SalesRollupService.class, withSettings().stubOnly());
+    }
+
+    static LedgerService ledgerService() {
+        return mock(LedgerService.class, withSettings().stubOnly());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        stripe.close();
+        tickets.close();
+    }
+
+    @Test
+    void checkoutMixShouldStayWithinThresholds() throws Exception {
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+        drive(WARMUP); // Préchauffage JIT, pools de connexions, caches
+        stats.values().forEach(EndpointStats::reset);
+        long injectedBefore = tickets.injectedFailureCount();
+
+        long elapsedNanos = drive(DURATION);
+        long injectedFailures = tickets.injectedFailureCount() - injectedBefore;
+        Duration drain = awaitOutboxDrained();
+
+        report(elapsedNanos, injectedFailures, drain);
+
+        SoftAssertions softly = new SoftAssertions();
+        for (Endpoint endpoint : Endpoint.values()) {
+            EndpointStats endpointStats = stats.get(endpoint);
+            long requests = endpointStats.requests.sum();
+            if (requests == 0) {
+                continue;
+            }
+            // Les refus de réservation injectés sont des erreurs attendues du create
+            long errors = endpointStats.errors.sum() - (endpoint == Endpoint.CREATE ? injectedFailures : 0);
+            softly.assertThat((double) errors / requests)
+                    .as("taux d'erreur %s", endpoint).isLessThanOrEqualTo(MAX_ERROR_RATE);
+            softly.assertThat(endpointStats.histogram.getValueAtPercentile(99) / 1000.0)
+                    .as("p99 %s (ms)", endpoint).isLessThanOrEqualTo(P99_THRESHOLD_MS);
+        }
+        softly.assertThat(drain).as("vidage de l'outbox vers Kafka").isLessThan(OUTBOX_DRAIN_TIMEOUT);
+        softly.assertAll();
+    }
+
+    /**
+     * Lance RATE checkouts par seconde pendant la durée donnée, un thread virtuel par checkout,
+     * et attend la fin des derniers. Renvoie la durée totale en nanosecondes.
+     */
+    private long drive(Duration duration) {
+        long intervalNanos = 1_000_000_000L / RATE;
+        long checkouts = duration.toSeconds() * RATE;
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < checkouts; i++) {
+                long intended = start + i * intervalNanos;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                executor.submit(() -> checkout(intended));
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void checkout(long intendedStart) {
+        String buyer = UUID.randomUUID().toString();
+        HttpResponse<String> created = call(Endpoint.CREATE, intendedStart, buyer, "/transactions",
+                "{\"ticketId\":\"" + UUID.randomUUID() + "\"}");
+        if (created == null || created.statusCode() != 201) {
+            return;
+        }
+        String transactionId;
+        try {
+            transactionId = objectMapper.readTree(created.body()).path("transactionId").asText();
+        } catch (IOException e) {
+            stats.get(Endpoint.CREATE).errors.increment();
+            return;
+        }
+        switch (pickOutcome()) {
+            case CANCEL -> call(Endpoint.CANCEL, System.nanoTime(), buyer, "/transactions/" + transactionId + "/cancel", "");
+            case CONFIRM -> call(Endpoint.CONFIRM, System.nanoTime(), buyer, "/transactions/" + transactionId + "/confirm", "");
+            case REFUND -> {
+                HttpResponse<String> confirmed = call(Endpoint.CONFIRM, System.nanoTime(), buyer,
+                        "/transactions/" + transactionId + "/confirm", "");
+                if (confirmed != null && confirmed.statusCode() == 200) {
+                    call(Endpoint.REFUND, System.nanoTime(), ADMIN_PREFIX + UUID.randomUUID(),
+                            "/transactions/admin/" + transactionId + "/refund", "");
+                }
+            }
+        }
+    }
+
+    // POST authentifié ; latence enregistrée en microsecondes, erreur = exception ou statut hors 2xx
+    private HttpResponse<String> call(Endpoint endpoint, long startNanos, String token, String path, String body) {
+        EndpointStats endpointStats = stats.get(endpoint);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = null;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            // Compté en erreur ci-dessous
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        endpointStats.requests.increment();
+        endpointStats.histogram.recordValue(Math.max(0, (System.nanoTime() - startNanos) / 1000));
+        if (response == null || response.statusCode() / 100 != 2) {
+            endpointStats.errors.increment();
+        }
+        return response;
+    }
+
+    private Outcome pickOutcome() {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int draw = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<Outcome, Integer> entry : mix.entrySet()) {
+            draw -= entry.getValue();
+            if (draw < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Mix vide : " + MIX);
+    }
+
+    private static Map<Outcome, Integer> parseMix(String spec) {
+        Map<Outcome, Integer> weights = new EnumMap<>(Outcome.class);
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":");
+            weights.put(Outcome.valueOf(kv[0].trim().toUpperCase()), Integer.parseInt(kv[1].trim()));
+        }
+        return weights;
+    }
+
+    private Duration awaitOutboxDrained() throws InterruptedException {
+        long start = System.nanoTime();
+        while (outboxEventRepository.count() > 0) {
+            if (System.nanoTime() - start > OUTBOX_DRAIN_TIMEOUT.toNanos()) {
+                return OUTBOX_DRAIN_TIMEOUT;
+            }
+            Thread.sleep(100);
+        }
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    private void report(long elapsedNanos, long injectedFailures, Duration drain) throws IOException {
+        double seconds = elapsedNanos / 1e9;
+        Files.createDirectories(REPORT_DIR);
+        System.out.printf("Checkout load test : %d checkouts/s pendant %d s, mix %s%n", RATE, DURATION.toSeconds(), MIX);
+        System.out.printf("  tickets-service %d ms (refus réservation %.1f %%, %d injectés), Stripe %d ms%n",
+                TICKET_LATENCY.toMillis(), TICKET_FAILURE_RATE * 100, injectedFailures, STRIPE_LATENCY.toMillis());
+        System.out.printf("  %-8s %9s %8s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requêtes", "erreurs", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("rate", RATE);
+        summary.put("durationSeconds", seconds);
+        summary.put("mix", MIX);
+        summary.put("ticketLatencyMs", TICKET_LATENCY.toMillis());
+        summary.put("ticketFailureRate", TICKET_FAILURE_RATE);
+        summary.put("injectedFailures", injectedFailures);
+        summary.put("stripeLatencyMs", STRIPE_LATENCY.toMillis());
+        summary.put("outboxDrainMs", drain.toMillis());
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (Endpoint endpoint : Endpoint.values()) {
+            EndpointStats endpointStats = stats.get(endpoint);
+            Histogram histogram = endpointStats.histogram;
+            long requests = endpointStats.requests.sum();
+            System.out.printf("  %-8s %9d %8d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n", endpoint, requests,
+                    endpointStats.errors.sum(), requests / seconds, ms(histogram, 50), ms(histogram, 90),
+                    ms(histogram, 99), ms(histogram, 99.9), histogram.getMaxValue() / 1000.0);
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("requests", requests);
+            row.put("errors", endpointStats.errors.sum());
+            row.put("throughput", requests / seconds);
+            row.put("p50Ms", ms(histogram, 50));
+            row.put("p90Ms", ms(histogram, 90));
+            row.put("p99Ms", ms(histogram, 99));
+            row.put("p999Ms", ms(histogram, 99.9));
+            row.put("maxMs", histogram.getMaxValue() / 1000.0);
+            endpoints.put(endpoint.name().toLowerCase(), row);
+
+            // Distribution complète, lisible par les outils HdrHistogram (valeurs en ms)
+            try (PrintStream out = new PrintStream(REPORT_DIR.resolve(endpoint.name().toLowerCase() + ".hgrm").toFile())) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        summary.put("endpoints", endpoints);
+        System.out.printf("  outbox vidée vers Kafka en %d ms ; rapport : %s%n", drain.toMillis(), REPORT_DIR.toAbsolutePath());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(REPORT_DIR.resolve("summary.json").toFile(), summary);
+
+        // Métriques du service en fin de run : temps par étape des pipelines, Feign, Kafka, Hikari...
+        try {
+            httpClient.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/actuator/prometheus"))
+                            .header("Authorization", "Bearer " + ADMIN_PREFIX + "loadtest")
+                            .build(),
+                    HttpResponse.BodyHandlers.ofFile(REPORT_DIR.resolve("prometheus.txt")));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static double ms(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static final class EndpointStats {
+        // HdrHistogram vient de micrometer-core ; redimensionnement automatique, 3 chiffres significatifs
+        private final ConcurrentHistogram histogram = new ConcurrentHistogram(3);
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        void reset() {
+            histogram.reset();
+            requests.reset();
+            errors.reset();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.polytech.transactions_service.benchmark;
+
+import com.polytech.transactions_service.client.DependencyGuard;
+import com.polytech.transactions_service.client.PaymentGateway;
+import com.polytech.transactions_service.client.PooledStripeHttpClient;
+import com.polytech.transactions_service.client.StripePaymentGateway;
+import com.polytech.transactions_service.client.TicketCache;
+import com.polytech.transactions_service.client.TicketClient;
+import com.polytech.transactions_service.client.UserClient;
+import com.polytech.transactions_service.config.PipelineObservations;
+import com.polytech.transactions_service.config.StripeConfig;
+import com.polytech.transactions_service.dto.TicketDto;
+import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.repository.FeeRuleRepository;
+import com.polytech.transactions_service.repository.TransactionRepository;
+import com.polytech.transactions_service.service.ClientSecretCache;
+import com.polytech.transactions_service.service.FeeScheduleService;
+import com.polytech.transactions_service.service.LedgerService;
+import com.polytech.transactions_service.service.OutboxService;
+import com.polytech.transactions_service.service.SalesRollupService;
+import com.polytech.transactions_service.service.TransactionService;
+import com.polytech.transactions_service.support.FakePaymentGateway;
+import com.polytech.transactions_service.support.FakeStripeServer;
+import com.stripe.StripeClient;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Débit du checkout (createTransaction) : pool de threads plateforme (modèle Tomcat actuel, 200 threads)
+ * contre un thread virtuel par requête. tickets-service (Feign) et Stripe sont simulés avec une latence fixe.
+ * Lancement : mvn test -Pbenchmark -Dtest=CheckoutThroughputBenchmark
+ * (options : -Dbenchmark.checkouts, -Dbenchmark.ticket-latency-ms, -Dbenchmark.stripe-latency-ms,
+ * -Dbenchmark.payment=stripe|fake).
+ * Sur une machine à peu de cœurs, le coût CPU du SDK Stripe plafonne les deux modèles : comparer avec
+ * des latences à 0 pour connaître ce plafond.
+ */
+@Tag("benchmark")
+class CheckoutThroughputBenchmark {
+
+    private static final int CHECKOUTS = Integer.getInteger("benchmark.checkouts", 5000);
+    private static final int PLATFORM_THREADS = 200; // server.tomcat.threads.max par défaut
+    private static final Duration TICKET_LATENCY = Duration.ofMillis(Long.getLong("benchmark.ticket-latency-ms", 20));
+    private static final Duration STRIPE_LATENCY = Duration.ofMillis(Long.getLong("benchmark.stripe-latency-ms", 50));
+    private static final String PAYMENT = System.getProperty("benchmark.payment", "stripe");
+
+    private static FakeStripeServer stripe;
+    private static PooledStripeHttpClient stripeHttpClient;
+    private static TransactionService transactionService;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        stripe = new FakeStripeServer(STRIPE_LATENCY);
+
+        // stubOnly : Mockito n'enregistre pas les appels (pas de contention ni de fuite mémoire)
+        TransactionRepository transactionRepository = mock(TransactionRepository.class, withSettings().stubOnly());
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> {
+            Transaction t = i.getArgument(0);
+            t.setId(UUID.randomUUID());
+            t.setTransactionDate(LocalDateTime.now());
+            return t;
+        });
+        TicketClient ticketClient = new StubTicketClient();
+        TicketCache ticketCache = new TicketCache(ticketClient, new SimpleMeterRegistry(), 100_000, Duration.ofMinutes(1));
+
+        transactionService = new TransactionService(transactionRepository, ticketClient, ticketCache,
+                mock(UserClient.class, withSettings().stubOnly()), mock(OutboxService.class, withSettings().stubOnly()), new ClientSecretCache(Duration.ofMinutes(15), 100_000),
+                mock(SalesRollupService.class, withSettings().stubOnly()), mock(LedgerService.class, withSettings().stubOnly()),
+                new FeeScheduleService(mock(FeeRuleRepository.class, withSettings().stubOnly()), 500, 0),
+                new PipelineObservations(ObservationRegistry.NOOP),
+                paymentGateway(), TransactionOperations.withoutTransaction());
+
+        run(Executors.newFixedThreadPool(PLATFORM_THREADS), 500); // Préchauffage JIT / connexions
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        if (stripeHttpClient != null) {
+            stripeHttpClient.close();
+        }
+        stripe.close();
+    }
+
+    // SDK Stripe + pool HTTP vers le faux serveur ; -Dbenchmark.payment=fake : en mémoire, sans HTTP ni SDK
+    private static PaymentGateway paymentGateway() {
+        if ("fake".equals(PAYMENT)) {
+            return new FakePaymentGateway();
+        }
+        stripeHttpClient = new PooledStripeHttpClient(1000, Duration.ofSeconds(2), Duration.ofMinutes(5));
+        StripeClient stripeClient = new StripeConfig().stripeClient(stripeHttpClient, "sk_test_benchmark", stripe.url(),
+                Duration.ofSeconds(2), Duration.ofSeconds(10), 0);
+        // Bulkhead assez large pour ne jamais rejeter : on mesure le chemin du checkout, pas la protection
+        DependencyGuard guard = new DependencyGuard(CircuitBreakerRegistry.ofDefaults(),
+                BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(100_000).build()),
+                RetryRegistry.ofDefaults(), new SimpleMeterRegistry());
+        return new StripePaymentGateway(stripeClient, guard, "eur");
+    }
+
+    @Test
+    void compareCheckoutThroughput() throws Exception {
+        double platform = run(Executors.newFixedThreadPool(PLATFORM_THREADS), CHECKOUTS);
+        double virtual = run(Executors.newVirtualThreadPerTaskExecutor(), CHECKOUTS);
+
+        System.out.printf("Checkout throughput (%d checkouts, ticket %d ms, Stripe %d ms)%n",
+                CHECKOUTS, TICKET_LATENCY.toMillis(), STRIPE_LATENCY.toMillis());
+        System.out.printf("  platform pool (%d threads) : %8.1f checkouts/s%n", PLATFORM_THREADS, platform);
+        System.out.printf("  virtual threads            : %8.1f checkouts/s (x%.2f)%n", virtual, virtual / platform);
+        assertThat(virtual).isPositive();
+    }
+
+    // tickets-service simulé : lecture immédiate, réservation avec latence réseau
+    private static class StubTicketClient implements TicketClient {
+        @Override
+        public TicketDto getTicketById(UUID ticketId) {
+            TicketDto ticket = new TicketDto();
+            ticket.setId(ticketId);
+            ticket.setSalePrice(50.0);
+            ticket.setStatus("AVAILABLE");
+            return ticket;
+        }
+
+        @Override
+        public void markTicketAsSold(UUID ticketId) {
+        }
+
+        @Override
+        public void reserveTicket(UUID ticketId) {
+            try {
+                Thread.sleep(TICKET_LATENCY.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void releaseTicket(UUID ticketId) {
+        }
+    }
+
+    private static double run(ExecutorService executor, int checkouts) throws Exception {
+        try (executor) {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>(checkouts);
+            for (int i = 0; i < checkouts; i++) {
+                futures.add(executor.submit(() ->
+                        transactionService.createTransaction(UUID.randomUUID().toString(), UUID.randomUUID())));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return checkouts / ((System.nanoTime() - start) / 1e9);
+        }
+    }
+}
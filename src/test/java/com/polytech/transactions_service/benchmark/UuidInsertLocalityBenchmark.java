@@ -0,0 +1,122 @@
+package com.polytech.transactions_service.benchmark;
+
+import com.polytech.transactions_service.model.TimeOrderedUuid;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Insertions dans une table calquée sur transactions (clé primaire UUID + un index secondaire) :
+ * UUID v4 aléatoires (avant) contre UUID ordonnés dans le temps (TimeOrderedUuid, après).
+ * Mesure le débit d'insertion et, sur PostgreSQL, la taille de l'index de clé primaire et de la table.
+ * Lancement : mvn test -Pbenchmark -Dtest=UuidInsertLocalityBenchmark
+ * -Dbenchmark.jdbc-url=jdbc:postgresql://localhost:5432/eventy -Dbenchmark.jdbc-user=... -Dbenchmark.jdbc-password=...
+ * (options : -Dbenchmark.rows, -Dbenchmark.batch-size). Sans URL : H2 en mémoire, débit seul.
+ * L'effet sur l'index n'apparaît qu'une fois celui-ci plus grand que shared_buffers : viser plusieurs millions de lignes.
+ */
+@Tag("benchmark")
+class UuidInsertLocalityBenchmark {
+
+    private static final String JDBC_URL = System.getProperty("benchmark.jdbc-url", "jdbc:h2:mem:uuid-bench;MODE=PostgreSQL");
+    private static final String JDBC_USER = System.getProperty("benchmark.jdbc-user", "sa");
+    private static final String JDBC_PASSWORD = System.getProperty("benchmark.jdbc-password", "");
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 500_000);
+    private static final int BATCH_SIZE = Integer.getInteger("benchmark.batch-size", 50); // hibernate.jdbc.batch_size
+
+    @Test
+    void randomVersusTimeOrderedKeys() throws Exception {
+        try (Connection connection = DriverManager.getConnection(JDBC_URL, JDBC_USER, JDBC_PASSWORD)) {
+            connection.setAutoCommit(false);
+            Result random = run(connection, "bench_uuid_v4", UUID::randomUUID);
+            Result timeOrdered = run(connection, "bench_uuid_v7", TimeOrderedUuid::next);
+
+            System.out.printf("%n=== Insertion de %d lignes (batch %d) ===%n", ROWS, BATCH_SIZE);
+            random.print("UUID v4 (aléatoire)");
+            timeOrdered.print("UUID v7 (ordonné)");
+
+            assertThat(random.rows()).isEqualTo(ROWS);
+            assertThat(timeOrdered.rows()).isEqualTo(ROWS);
+        }
+    }
+
+    private static Result run(Connection connection, String table, Supplier<UUID> ids) throws Exception {
+        boolean postgres = connection.getMetaData().getDatabaseProductName().equals("PostgreSQL");
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP TABLE IF EXISTS " + table);
+            ddl.execute("CREATE TABLE " + table + " (transaction_id UUID PRIMARY KEY, buyer_id UUID NOT NULL, "
+                    + "ticket_id UUID NOT NULL, status VARCHAR(20) NOT NULL, total_amount_cents BIGINT NOT NULL, "
+                    + "transaction_date TIMESTAMP NOT NULL)");
+            ddl.execute("CREATE INDEX " + table + "_buyer ON " + table + " (buyer_id, transaction_date)");
+            connection.commit();
+        }
+
+        String insert = "INSERT INTO " + table + " (transaction_id, buyer_id, ticket_id, status, total_amount_cents, "
+                + "transaction_date) VALUES (?, ?, ?, ?, ?, ?)";
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        try (PreparedStatement statement = connection.prepareStatement(insert)) {
+            for (int i = 1; i <= ROWS; i++) {
+                statement.setObject(1, ids.get());
+                statement.setObject(2, new UUID(random.nextLong(), random.nextLong()));
+                statement.setObject(3, new UUID(random.nextLong(), random.nextLong()));
+                statement.setString(4, "PENDING");
+                statement.setLong(5, random.nextLong(500, 50_000));
+                statement.setTimestamp(6, new Timestamp(System.currentTimeMillis()));
+                statement.addBatch();
+                if (i % BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                    connection.commit();
+                }
+            }
+            statement.executeBatch();
+            connection.commit();
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        long rows;
+        long primaryKeyBytes = -1;
+        long tableBytes = -1;
+        try (Statement query = connection.createStatement()) {
+            try (ResultSet rs = query.executeQuery("SELECT count(*) FROM " + table)) {
+                rs.next();
+                rows = rs.getLong(1);
+            }
+            if (postgres) {
+                try (ResultSet rs = query.executeQuery("SELECT pg_relation_size('" + table + "_pkey'), "
+                        + "pg_relation_size('" + table + "')")) {
+                    rs.next();
+                    primaryKeyBytes = rs.getLong(1);
+                    tableBytes = rs.getLong(2);
+                }
+            }
+            query.execute("DROP TABLE " + table);
+            connection.commit();
+        }
+        return new Result(rows, elapsed, primaryKeyBytes, tableBytes);
+    }
+
+    private record Result(long rows, Duration elapsed, long primaryKeyBytes, long tableBytes) {
+
+        void print(String label) {
+            double seconds = elapsed.toNanos() / 1e9;
+            System.out.printf("%-22s %8.0f lignes/s  (%5.1f s)  index PK : %s  table : %s%n",
+                    label, rows / seconds, seconds, size(primaryKeyBytes), size(tableBytes));
+        }
+
+        private static String size(long bytes) {
+            return bytes < 0 ? "n/a" : String.format("%.1f Mo", bytes / 1024.0 / 1024.0);
+        }
+    }
+}
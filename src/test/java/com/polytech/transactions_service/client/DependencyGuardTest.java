@@ -0,0 +1,159 @@
+package com.polytech.transactions_service.client;
+
+import com.polytech.transactions_service.exception.DependencyUnavailableException;
+import feign.FeignException;
+import feign.Request;
+import feign.Response;
+import feign.RetryableException;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DependencyGuardTest {
+
+    @Mock private TicketClient feignClient;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private ResilientTicketClient ticketClient;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Mêmes règles que application.yaml, fenêtre réduite
+        circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .recordExceptions(RetryableException.class, FeignException.FeignServerException.class)
+                .build());
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        RetryRegistry retryRegistry = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(2)
+                .waitDuration(Duration.ofMillis(1))
+                .retryExceptions(RetryableException.class, FeignException.FeignServerException.class)
+                .build());
+        ticketClient = new ResilientTicketClient(feignClient,
+                new DependencyGuard(circuitBreakerRegistry, bulkheadRegistry, retryRegistry, meterRegistry));
+    }
+
+    @Test
+    void call_ShouldFailFast_OnceTheBreakerIsOpen() {
+        // Arrange
+        UUID ticketId = UUID.randomUUID();
+        doThrow(httpError(503)).when(feignClient).reserveTicket(ticketId);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(FeignException.ServiceUnavailable.class, () -> ticketClient.reserveTicket(ticketId));
+        }
+
+        // Act
+        DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class,
+                () -> ticketClient.reserveTicket(ticketId));
+
+        // Assert : plus aucun appel vers tickets-service, rejet compté
+        assertThat(e.getDependency()).isEqualTo(DependencyGuard.TICKETS);
+        verify(feignClient, times(4)).reserveTicket(ticketId);
+        assertThat(circuitBreakerRegistry.circuitBreaker(DependencyGuard.TICKETS).getState())
+                .isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(meterRegistry.get("dependency.calls.rejected")
+                .tag("dependency", DependencyGuard.TICKETS).tag("reason", "circuit-open")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void call_ShouldNotCountBusinessErrors_AsFailures() {
+        // Arrange : ticket déjà réservé (409), réponse normale de tickets-service
+        UUID ticketId = UUID.randomUUID();
+        doThrow(httpError(409)).when(feignClient).reserveTicket(ticketId);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            assertThrows(FeignException.Conflict.class, () -> ticketClient.reserveTicket(ticketId));
+        }
+
+        // Assert
+        assertThat(circuitBreakerRegistry.circuitBreaker(DependencyGuard.TICKETS).getState())
+                .isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void call_ShouldRetryOnlyIdempotentCalls() {
+        // Arrange
+        UUID ticketId = UUID.randomUUID();
+        doThrow(httpError(500)).when(feignClient).releaseTicket(ticketId);
+        doThrow(httpError(500)).when(feignClient).reserveTicket(ticketId);
+
+        // Act
+        assertThrows(FeignException.InternalServerError.class, () -> ticketClient.releaseTicket(ticketId));
+        assertThrows(FeignException.InternalServerError.class, () -> ticketClient.reserveTicket(ticketId));
+
+        // Assert : libération réessayée une fois, réservation jamais
+        verify(feignClient, times(2)).releaseTicket(ticketId);
+        verify(feignClient, times(1)).reserveTicket(ticketId);
+    }
+
+    @Test
+    void call_ShouldRejectImmediately_WhenBulkheadIsFull() throws Exception {
+        // Arrange : un appel lent occupe l'unique place du bulkhead
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(i -> {
+            inFlight.countDown();
+            release.await();
+            return null;
+        }).when(feignClient).getTicketById(any());
+        CompletableFuture<Void> slowCall = CompletableFuture.runAsync(() -> ticketClient.getTicketById(UUID.randomUUID()));
+        inFlight.await();
+
+        // Act
+        DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class,
+                () -> ticketClient.getTicketById(UUID.randomUUID()));
+        release.countDown();
+        slowCall.join();
+
+        // Assert
+        assertThat(e.getMessage()).contains("bulkhead-full");
+        verify(feignClient, times(1)).getTicketById(any());
+        assertThat(meterRegistry.get("dependency.calls.rejected").tag("reason", "bulkhead-full")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    private static FeignException httpError(int status) {
+        Request request = Request.create(Request.HttpMethod.POST, "http://tickets-service/tickets",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        Response response = Response.builder()
+                .status(status)
+                .reason("HTTP " + status)
+                .request(request)
+                .headers(Map.of())
+                .build();
+        return FeignException.errorStatus("TicketClient", response);
+    }
+}
@@ -0,0 +1,64 @@
+package com.polytech.transactions_service.client;
+
+import com.polytech.transactions_service.dto.TicketDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TicketCacheTest {
+
+    @Mock private TicketClient ticketClient;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TicketCache ticketCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ticketCache = new TicketCache(ticketClient, meterRegistry, 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void getTicket_ShouldCallTicketServiceOnlyOnce_ForHotTicket() {
+        // Arrange
+        UUID ticketId = UUID.randomUUID();
+        TicketDto ticketDto = new TicketDto();
+        ticketDto.setId(ticketId);
+        when(ticketClient.getTicketById(ticketId)).thenReturn(ticketDto);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            ticketCache.getTicket(ticketId);
+        }
+
+        // Assert
+        verify(ticketClient, times(1)).getTicketById(ticketId);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "tickets").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(4.0);
+    }
+
+    @Test
+    void invalidate_ShouldForceReload() {
+        // Arrange
+        UUID ticketId = UUID.randomUUID();
+        when(ticketClient.getTicketById(ticketId)).thenReturn(new TicketDto());
+        ticketCache.getTicket(ticketId);
+
+        // Act
+        ticketCache.invalidate(ticketId);
+        ticketCache.getTicket(ticketId);
+
+        // Assert
+        verify(ticketClient, times(2)).getTicketById(ticketId);
+    }
+}
@@ -0,0 +1,83 @@
+package com.polytech.transactions_service.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingJwtDecoderTest {
+
+    @Mock private JwtDecoder delegate;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private CachingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        decoder = new CachingJwtDecoder(delegate, 100, Duration.ofMinutes(5), nanos::get);
+    }
+
+    @Test
+    void decode_ShouldVerifyEachTokenOnce() {
+        // Arrange
+        Jwt jwt = jwt("token-a", Instant.now().plusSeconds(300));
+        when(delegate.decode("token-a")).thenReturn(jwt);
+
+        // Act
+        Jwt first = decoder.decode("token-a");
+        Jwt second = decoder.decode("token-a");
+
+        // Assert
+        assertThat(second).isSameAs(first);
+        verify(delegate, times(1)).decode("token-a");
+    }
+
+    @Test
+    void decode_ShouldVerifyAgain_OnceTheTokenHasExpired() {
+        // Arrange : jeton valable 60 s, en deçà de max-ttl
+        when(delegate.decode("token-a")).thenReturn(jwt("token-a", Instant.now().plusSeconds(60)));
+        decoder.decode("token-a");
+
+        // Act
+        nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+        decoder.decode("token-a");
+
+        // Assert
+        verify(delegate, times(2)).decode("token-a");
+    }
+
+    @Test
+    void decode_ShouldNotCacheRejectedTokens() {
+        // Arrange
+        when(delegate.decode("forged")).thenThrow(new BadJwtException("Signature invalide"));
+
+        // Act
+        assertThrows(BadJwtException.class, () -> decoder.decode("forged"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("forged"));
+
+        // Assert
+        verify(delegate, times(2)).decode("forged");
+    }
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("user")
+                .issuedAt(expiresAt.minusSeconds(300))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
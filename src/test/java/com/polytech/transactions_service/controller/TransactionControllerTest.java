@@ -2,10 +2,18 @@ package com.polytech.transactions_service.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.polytech.transactions_service.config.SecurityConfig;
+import com.polytech.transactions_service.dto.CheckoutResult;
 import com.polytech.transactions_service.dto.CreateTransactionRequest;
 import com.polytech.transactions_service.model.Transaction;
 import com.polytech.transactions_service.model.enums.PaymentMethod;
+import com.polytech.transactions_service.service.FeeScheduleService;
+import com.polytech.transactions_service.service.IdempotencyService;
+import com.polytech.transactions_service.service.LedgerService;
+import com.polytech.transactions_service.service.OrderService;
+import com.polytech.transactions_service.service.SalesRollupService;
+import com.polytech.transactions_service.service.TransactionExportService;
 import com.polytech.transactions_service.service.TransactionService;
+import com.polytech.transactions_service.service.VendorBackfillJob;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +29,7 @@ import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
@@ -42,6 +51,27 @@ class TransactionControllerTest {
     @MockitoBean
     private TransactionService transactionService;
 
+    @MockitoBean
+    private TransactionExportService transactionExportService;
+
+    @MockitoBean
+    private VendorBackfillJob vendorBackfillJob;
+
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
+    @MockitoBean
+    private OrderService orderService;
+
+    @MockitoBean
+    private SalesRollupService salesRollupService;
+
+    @MockitoBean
+    private LedgerService ledgerService;
+
+    @MockitoBean
+    private FeeScheduleService feeScheduleService;
+
     @Test
     @DisplayName("POST /transactions - Should create transaction (Authentication with JWT)")
     void createTransaction_ShouldSucceed() throws Exception {
@@ -59,12 +89,17 @@ class TransactionControllerTest {
 
         Transaction transaction = new Transaction();
         transaction.setId(UUID.randomUUID());
-        transaction.setTotalAmount(50.0);
+        transaction.setTotalAmountCents(5000);
 
         // CORRECTION ICI : On mock 'initiateTransaction' car c'est la méthode appelée par le contrôleur
         // Le contrôleur passe (String buyerId, UUID ticketId)
+        CheckoutResult checkout = CheckoutResult.builder()
+                .transaction(transaction)
+                .transactionId(transaction.getId())
+                .clientSecret("pi_123_secret_456")
+                .build();
         when(transactionService.createTransaction(eq(userId.toString()), eq(ticketId)))
-                .thenReturn(transaction);
+                .thenReturn(checkout);
 
         // Act & Assert
         mockMvc.perform(post("/transactions")
@@ -74,8 +109,9 @@ class TransactionControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isCreated())
-                // Maintenant le corps ne sera plus vide
-                .andExpect(jsonPath("$.totalAmount").value(50.0));
+                // Le clientSecret est renvoyé avec la transaction, sans second appel Stripe
+                .andExpect(jsonPath("$.transaction.totalAmountCents").value(5000))
+                .andExpect(jsonPath("$.clientSecret").value("pi_123_secret_456"));
     }
 
     @Test
@@ -99,4 +135,15 @@ class TransactionControllerTest {
                         .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER"))))
                 .andExpect(status().isForbidden());
     }
+
+    @Test
+    @DisplayName("POST /transactions/maintenance/backfill-vendors - Should reject User role")
+    void backfillVendors_AsUser_ShouldForbidden() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/transactions/maintenance/backfill-vendors")
+                        .with(csrf())
+                        .with(jwt().authorities(new SimpleGrantedAuthority("ROLE_USER"))))
+                .andExpect(status().isForbidden());
+        verifyNoInteractions(vendorBackfillJob);
+    }
 }
\ No newline at end of file
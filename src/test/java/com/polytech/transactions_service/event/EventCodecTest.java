@@ -0,0 +1,58 @@
+package com.polytech.transactions_service.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventCodecTest {
+
+    private final EventCodec eventCodec = new EventCodec(new ObjectMapper(), "payment-validated, transaction-refunded");
+
+    @Test
+    void encode_ShouldUseBinaryOnConfiguredTopics_AndRoundTrip() {
+        // Arrange
+        PaymentValidatedEvent event = PaymentValidatedEvent.builder()
+                .transactionId(UUID.randomUUID())
+                .buyerId(UUID.randomUUID())
+                .vendorId(null) // Transaction antérieure au backfill
+                .amountCents(12_345)
+                .vendorAmountCents(11_728)
+                .build();
+
+        // Act
+        EventCodec.Encoded binary = eventCodec.encode("payment-validated", event);
+        EventCodec.Encoded json = new EventCodec(new ObjectMapper(), "").encode("payment-validated", event);
+
+        // Assert
+        assertThat(binary.contentType()).isEqualTo(EventCodec.BINARY);
+        assertThat(EventCodec.decodeBinary(binary.payload())).isEqualTo(event);
+        assertThat(json.contentType()).isEqualTo(EventCodec.JSON);
+        assertThat(binary.payload().length).isLessThan(json.payload().length / 2);
+    }
+
+    @Test
+    void encode_ShouldKeepNegativeAmountsExact() {
+        TransactionRefundedEvent event = TransactionRefundedEvent.builder()
+                .transactionId(UUID.randomUUID())
+                .ticketId(UUID.randomUUID())
+                .vendorAmountCents(-1)
+                .build();
+
+        EventCodec.Encoded encoded = eventCodec.encode("transaction-refunded", event);
+
+        assertThat(EventCodec.decodeBinary(encoded.payload())).isEqualTo(event);
+    }
+
+    @Test
+    void encode_ShouldFallBackToJson_ForOtherTopics() {
+        TicketSoldEvent event = new TicketSoldEvent(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+
+        EventCodec.Encoded encoded = eventCodec.encode("ticket-sold", event);
+
+        assertThat(encoded.contentType()).isEqualTo(EventCodec.JSON);
+        assertThat(new String(encoded.payload())).contains(event.getTicketId().toString());
+    }
+}
@@ -0,0 +1,44 @@
+package com.polytech.transactions_service.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedUuidTest {
+
+    @Test
+    void next_ShouldProduceVersion7Uuids_CarryingTheCurrentTime() {
+        // Act
+        long before = System.currentTimeMillis();
+        UUID uuid = TimeOrderedUuid.next();
+        long after = System.currentTimeMillis();
+
+        // Assert
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+        assertThat(uuid.getMostSignificantBits() >>> 16).isBetween(before, after);
+    }
+
+    @Test
+    void next_ShouldSortByCreationTime_AndStayUnique() throws InterruptedException {
+        // Arrange
+        Set<UUID> seen = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            seen.add(TimeOrderedUuid.next());
+        }
+        UUID earlier = TimeOrderedUuid.next();
+        Thread.sleep(2);
+
+        // Act
+        UUID later = TimeOrderedUuid.next();
+
+        // Assert : ordre d'octets identique à l'ordre de tri de PostgreSQL sur le type uuid
+        assertThat(seen).hasSize(10_000);
+        assertThat(Long.compareUnsigned(later.getMostSignificantBits(), earlier.getMostSignificantBits()))
+                .isPositive();
+    }
+}
@@ -0,0 +1,64 @@
+package com.polytech.transactions_service.repository;
+
+import com.polytech.transactions_service.dto.LedgerEntryDto;
+import com.polytech.transactions_service.model.LedgerEntry;
+import com.polytech.transactions_service.model.enums.LedgerAccount;
+import com.polytech.transactions_service.model.enums.LedgerEntryType;
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@DisplayName("Ledger Entry Repository Tests")
+class LedgerEntryRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Test
+    void streamVendorEntries_ShouldReturnProjectionsInWriteOrder_WithoutManagingEntities() {
+        // Given
+        UUID vendorId = UUID.randomUUID();
+        LedgerEntry sale = entityManager.persist(entry(vendorId, 3000));
+        LedgerEntry refund = entityManager.persist(entry(vendorId, -3000));
+        entityManager.persist(entry(UUID.randomUUID(), 1000)); // Autre vendeur
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<LedgerEntryDto> rows;
+        try (Stream<LedgerEntryDto> stream = ledgerEntryRepository.streamVendorEntries(vendorId)) {
+            rows = stream.toList();
+        }
+
+        // Then : rien n'est attaché au contexte de persistance pendant le parcours
+        assertThat(rows).extracting(LedgerEntryDto::getId).containsExactly(sale.getId(), refund.getId());
+        assertThat(rows).extracting(LedgerEntryDto::getAmountCents).containsExactly(3000L, -3000L);
+        assertThat(entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    private static LedgerEntry entry(UUID vendorId, long amountCents) {
+        return LedgerEntry.builder()
+                .journalId(UUID.randomUUID())
+                .type(LedgerEntryType.SALE)
+                .account(LedgerAccount.VENDOR_PAYABLE)
+                .vendorId(vendorId)
+                .transactionId(UUID.randomUUID())
+                .amountCents(amountCents)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
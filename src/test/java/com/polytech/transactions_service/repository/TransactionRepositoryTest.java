@@ -1,5 +1,6 @@
 package com.polytech.transactions_service.repository;
 
+import com.polytech.transactions_service.dto.TransactionSummaryDto;
 import com.polytech.transactions_service.model.Transaction;
 import com.polytech.transactions_service.model.enums.PaymentMethod;
 import com.polytech.transactions_service.model.enums.PaymentStatus;
@@ -9,10 +10,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -58,13 +62,144 @@ class TransactionRepositoryTest {
         assertThat(results.get(0).getTicketId()).isEqualTo(ticketId);
     }
 
+    @Test
+    void findBuyerPage_ShouldWalkHistoryWithKeysetCursor() {
+        // Given : dates fixes, deux achats à la même date de part et d'autre de la limite de page
+        UUID buyerId = UUID.randomUUID();
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 12, 0);
+        int[] minutesAgo = {0, 1, 2, 2, 3};
+        for (int minutes : minutesAgo) {
+            Transaction t = createTransaction(buyerId);
+            setTransactionDate(t, base.minusMinutes(minutes));
+        }
+        createTransaction(UUID.randomUUID()); // Autre buyer
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<TransactionSummaryDto> first = transactionRepository.findBuyerPage(buyerId, PageRequest.of(0, 3));
+        TransactionSummaryDto last = first.get(2);
+        List<TransactionSummaryDto> next = transactionRepository.findBuyerPageAfter(
+                buyerId, last.getTransactionDate(), last.getId(), PageRequest.of(0, 3));
+
+        // Then : l'ex aequo est départagé par l'id, sans doublon ni trou entre les pages
+        assertThat(first).hasSize(3);
+        assertThat(first).isSortedAccordingTo(Comparator.comparing(TransactionSummaryDto::getTransactionDate).reversed());
+        assertThat(last.getTransactionDate()).isEqualTo(base.minusMinutes(2));
+        assertThat(next).hasSize(2);
+        assertThat(next.get(0).getTransactionDate()).isEqualTo(last.getTransactionDate());
+        assertThat(next.get(1).getTransactionDate()).isEqualTo(base.minusMinutes(3));
+        assertThat(Stream.concat(first.stream(), next.stream()).map(TransactionSummaryDto::getId).distinct())
+                .hasSize(5);
+    }
+
+    @Test
+    void streamForExport_ShouldApplyFiltersInDatabase() {
+        // Given
+        Transaction pending = createTransaction(UUID.randomUUID());
+        pending.setStatus(TransactionStatus.PENDING);
+        createTransaction(UUID.randomUUID());
+        createTransaction(UUID.randomUUID());
+        entityManager.flush();
+
+        // When
+        List<TransactionSummaryDto> completed;
+        try (Stream<TransactionSummaryDto> rows = transactionRepository.streamForExport(
+                null, LocalDateTime.now().plusMinutes(1), TransactionStatus.COMPLETED)) {
+            completed = rows.toList();
+        }
+        long future;
+        try (Stream<TransactionSummaryDto> rows = transactionRepository.streamForExport(
+                LocalDateTime.now().plusMinutes(1), null, null)) {
+            future = rows.count();
+        }
+
+        // Then
+        assertThat(completed).hasSize(2).allMatch(t -> t.getStatus() == TransactionStatus.COMPLETED);
+        assertThat(future).isZero();
+    }
+
+    @Test
+    void lockExpiredPending_ShouldReturnOnlyUnclaimedPendingRows_ThenExpireThemOnce() {
+        // Given
+        Transaction pending = createTransaction(UUID.randomUUID());
+        pending.setStatus(TransactionStatus.PENDING);
+        pending.setPaymentToken("pi_123");
+        createTransaction(UUID.randomUUID()); // COMPLETED : jamais expirée
+        entityManager.flush();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+        // When
+        List<Transaction> candidates = transactionRepository.lockExpiredPending(now.plusMinutes(1),
+                start, new UUID(0, 0), now, 10);
+        Transaction candidate = candidates.get(0);
+        transactionRepository.claim(List.of(candidate.getId()), now.plusMinutes(2));
+        List<Transaction> claimedElsewhere = transactionRepository.lockExpiredPending(now.plusMinutes(1),
+                start, new UUID(0, 0), now, 10);
+        int expired = transactionRepository.expirePending(candidate.getId());
+        int expiredAgain = transactionRepository.expirePending(candidate.getId());
+        List<Transaction> nextPage = transactionRepository.lockExpiredPending(now.plusMinutes(1),
+                candidate.getTransactionDate(), candidate.getId(), now.plusMinutes(3), 10);
+        entityManager.clear();
+
+        // Then : réservée, la ligne n'est pas relue ; une seule transition l'emporte
+        assertThat(candidates).hasSize(1);
+        assertThat(candidate.getTicketId()).isEqualTo(pending.getTicketId());
+        assertThat(candidate.getPaymentToken()).isEqualTo("pi_123");
+        assertThat(claimedElsewhere).isEmpty();
+        assertThat(expired).isEqualTo(1);
+        assertThat(expiredAgain).isZero();
+        assertThat(nextPage).isEmpty();
+        Transaction stored = transactionRepository.findById(pending.getId()).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(TransactionStatus.EXPIRED);
+        assertThat(stored.isReleasePending()).isTrue();
+        assertThat(transactionRepository.findOldestPendingDate()).isNull();
+    }
+
+    @Test
+    void lockPendingReleases_ShouldReturnExpiredRowsUntilMarkedReleased() {
+        // Given : ligne expirée dont la libération a échoué
+        Transaction pending = createTransaction(UUID.randomUUID());
+        pending.setStatus(TransactionStatus.PENDING);
+        entityManager.flush();
+        transactionRepository.expirePending(pending.getId());
+        LocalDateTime now = LocalDateTime.now();
+
+        // When
+        List<Transaction> toRelease = transactionRepository.lockPendingReleases(now, 10);
+        transactionRepository.markReleased(pending.getId());
+        List<Transaction> afterRelease = transactionRepository.lockPendingReleases(now, 10);
+
+        // Then
+        assertThat(toRelease).extracting(Transaction::getId).containsExactly(pending.getId());
+        assertThat(afterRelease).isEmpty();
+    }
+
+    @Test
+    void completePending_ShouldNotOverwriteAnExpiredRow() {
+        // Given
+        Transaction expired = createTransaction(UUID.randomUUID());
+        expired.setStatus(TransactionStatus.EXPIRED);
+        expired.setPaymentStatus(PaymentStatus.UNPAID);
+        entityManager.flush();
+
+        // When
+        int completed = transactionRepository.completePending(expired.getId(), LocalDateTime.now());
+
+        // Then
+        assertThat(completed).isZero();
+        assertThat(transactionRepository.findById(expired.getId()).orElseThrow().getStatus())
+                .isEqualTo(TransactionStatus.EXPIRED);
+    }
+
     private Transaction createTransaction(UUID buyerId) {
         Transaction t = Transaction.builder()
                 .buyerId(buyerId)
                 .ticketId(UUID.randomUUID())
-                .totalAmount(50.0)
-                .platformFee(5.0)
-                .vendorAmount(45.0)
+                .totalAmountCents(5000)
+                .platformFeeCents(500)
+                .vendorAmountCents(4500)
                 .paymentMethod(PaymentMethod.CREDIT_CARD)
                 .paymentStatus(PaymentStatus.PAID)
                 .status(TransactionStatus.COMPLETED)
@@ -72,4 +207,14 @@ class TransactionRepositoryTest {
                 .build();
         return entityManager.persist(t);
     }
+
+    // transaction_date est posée par @CreationTimestamp et non modifiable via l'entité
+    private void setTransactionDate(Transaction t, LocalDateTime date) {
+        entityManager.flush();
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE transactions SET transaction_date = ?1 WHERE transaction_id = ?2")
+                .setParameter(1, date)
+                .setParameter(2, t.getId())
+                .executeUpdate();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.polytech.transactions_service.repository;
+
+import com.polytech.transactions_service.model.EventDailySales;
+import com.polytech.transactions_service.model.VendorBalance;
+import com.polytech.transactions_service.model.VendorDailySales;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Upserts INSERT ... ON CONFLICT DO UPDATE, que H2 ne sait pas exécuter :
+ * lancés sur un vrai PostgreSQL (schéma créé par les migrations Flyway).
+ * Sans Docker : ignorés en local, en échec avec -Dtestcontainers.required=true (profil Maven ci).
+ */
+@DataJpaTest
+@Testcontainers
+@DisabledIf("dockerOptionalAndUnavailable")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.driver-class-name=org.postgresql.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.flyway.enabled=true"
+})
+@DisplayName("Upsert Repository Tests (PostgreSQL)")
+class UpsertRepositoryPostgresTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static boolean dockerOptionalAndUnavailable() {
+        return !Boolean.getBoolean("testcontainers.required") && !DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private VendorBalanceRepository vendorBalanceRepository;
+
+    @Autowired
+    private VendorDailySalesRepository vendorDailySalesRepository;
+
+    @Autowired
+    private EventDailySalesRepository eventDailySalesRepository;
+
+    @Test
+    void addToBalance_ShouldCreateThenAccumulateBalance() {
+        // Given
+        UUID vendorId = UUID.randomUUID();
+        LocalDateTime later = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+        // When : première vente (INSERT), puis vente et remboursement (UPDATE)
+        vendorBalanceRepository.addToBalance(vendorId, 3800, LocalDateTime.of(2025, 3, 1, 11, 0));
+        vendorBalanceRepository.addToBalance(vendorId, 1900, LocalDateTime.of(2025, 3, 1, 11, 30));
+        vendorBalanceRepository.addToBalance(vendorId, -3800, later);
+        entityManager.clear();
+
+        // Then
+        VendorBalance balance = vendorBalanceRepository.findById(vendorId).orElseThrow();
+        assertThat(balance.getBalanceCents()).isEqualTo(1900);
+        assertThat(balance.getUpdatedAt()).isEqualTo(later);
+    }
+
+    @Test
+    void vendorAddDeltas_ShouldAccumulatePerVendorAndDay() {
+        // Given
+        UUID vendorId = UUID.randomUUID();
+        LocalDate day = LocalDate.of(2025, 3, 1);
+
+        // When : deux ventes et un remboursement le même jour, une vente le lendemain
+        vendorDailySalesRepository.addDeltas(vendorId, day, 1, 0, 4000, 3800, 200);
+        vendorDailySalesRepository.addDeltas(vendorId, day, 1, 0, 2000, 1900, 100);
+        vendorDailySalesRepository.addDeltas(vendorId, day, 0, 1, -2000, -1900, -100);
+        vendorDailySalesRepository.addDeltas(vendorId, day.plusDays(1), 1, 0, 4000, 3800, 200);
+        entityManager.clear();
+
+        // Then
+        List<VendorDailySales> days = vendorDailySalesRepository
+                .findByVendorIdAndSaleDateBetweenOrderBySaleDateAsc(vendorId, day, day.plusDays(1));
+        assertThat(days).hasSize(2);
+        VendorDailySales first = days.get(0);
+        assertThat(first.getSalesCount()).isEqualTo(2);
+        assertThat(first.getRefundCount()).isEqualTo(1);
+        assertThat(first.getGrossCents()).isEqualTo(4000);
+        assertThat(first.getVendorCents()).isEqualTo(3800);
+        assertThat(first.getFeeCents()).isEqualTo(200);
+        assertThat(days.get(1).getSalesCount()).isEqualTo(1);
+    }
+
+    @Test
+    void eventAddDeltas_ShouldAccumulatePerEventAndDay() {
+        // Given
+        UUID eventId = UUID.randomUUID();
+        LocalDate day = LocalDate.of(2025, 3, 1);
+
+        // When
+        eventDailySalesRepository.addDeltas(eventId, day, 1, 0, 4000, 3800, 200);
+        eventDailySalesRepository.addDeltas(eventId, day, 1, 0, 4000, 3800, 200);
+        entityManager.clear();
+
+        // Then
+        List<EventDailySales> days = eventDailySalesRepository
+                .findByEventIdAndSaleDateBetweenOrderBySaleDateAsc(eventId, day, day);
+        assertThat(days).singleElement().satisfies(sales -> {
+            assertThat(sales.getSalesCount()).isEqualTo(2);
+            assertThat(sales.getGrossCents()).isEqualTo(8000);
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package com.polytech.transactions_service.repository;
+
+import com.polytech.transactions_service.model.VendorBalance;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@DisplayName("Vendor Balance Repository Tests")
+class VendorBalanceRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private VendorBalanceRepository vendorBalanceRepository;
+
+    @Test
+    void debitIfCovered_ShouldNeverOverdrawBalance() {
+        // Given
+        UUID vendorId = UUID.randomUUID();
+        entityManager.persist(new VendorBalance(vendorId, 1000, LocalDateTime.now()));
+        entityManager.flush();
+
+        // When
+        int overdraw = vendorBalanceRepository.debitIfCovered(vendorId, 1001, LocalDateTime.now());
+        int covered = vendorBalanceRepository.debitIfCovered(vendorId, 1000, LocalDateTime.now());
+        entityManager.clear();
+
+        // Then
+        assertThat(overdraw).isZero();
+        assertThat(covered).isEqualTo(1);
+        assertThat(vendorBalanceRepository.findById(vendorId).orElseThrow().getBalanceCents()).isZero();
+    }
+
+    @Test
+    void findPayableAfter_ShouldWalkPayableVendorsWithKeysetCursor() {
+        // Given
+        for (int i = 1; i <= 5; i++) {
+            entityManager.persist(new VendorBalance(new UUID(0, i), i * 1000L, LocalDateTime.now()));
+        }
+        entityManager.persist(new VendorBalance(new UUID(0, 6), 500, LocalDateTime.now())); // Sous le minimum
+        entityManager.flush();
+
+        // When
+        List<VendorBalance> first = vendorBalanceRepository.findPayableAfter(2000, new UUID(0, 0), PageRequest.of(0, 2));
+        List<VendorBalance> next = vendorBalanceRepository.findPayableAfter(
+                2000, first.get(1).getVendorId(), PageRequest.of(0, 2));
+
+        // Then
+        assertThat(first).extracting(VendorBalance::getVendorId).containsExactly(new UUID(0, 2), new UUID(0, 3));
+        assertThat(next).extracting(VendorBalance::getVendorId).containsExactly(new UUID(0, 4), new UUID(0, 5));
+    }
+}
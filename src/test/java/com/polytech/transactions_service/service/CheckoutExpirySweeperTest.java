@@ -0,0 +1,196 @@
+package com.polytech.transactions_service.service;
+
+import com.polytech.transactions_service.client.TicketCache;
+import com.polytech.transactions_service.client.TicketClient;
+import com.polytech.transactions_service.config.IoThreadFactory;
+import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.enums.TransactionStatus;
+import com.polytech.transactions_service.repository.TransactionRepository;
+import com.polytech.transactions_service.support.FakePaymentGateway;
+import com.stripe.exception.ApiConnectionException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutExpirySweeperTest {
+
+    @Mock private TransactionRepository transactionRepository;
+    @Mock private TransactionService transactionService;
+    @Mock private TicketClient ticketClient;
+    @Mock private TicketCache ticketCache;
+    @Mock private ClientSecretCache clientSecretCache;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Spy private FakePaymentGateway paymentGateway = new FakePaymentGateway();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CheckoutExpirySweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        sweeper = new CheckoutExpirySweeper(transactionRepository, transactionService, ticketClient, ticketCache,
+                clientSecretCache, paymentGateway, meterRegistry, transactionManager, new IoThreadFactory(false),
+                Duration.ofMinutes(15), Duration.ofMinutes(2), 200, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sweeper.shutdown();
+    }
+
+    @Test
+    void sweep_ShouldCompletePaidCheckouts_WithoutReleasingTheirTicket() {
+        // Arrange : paiement abouti après l'expiration (webhook perdu ou en retard)
+        Transaction paid = pending(payment("succeeded"));
+        candidates(paid);
+
+        // Act
+        sweeper.sweep();
+
+        // Assert
+        verify(transactionService).completeTransaction(paid.getId());
+        verify(paymentGateway, never()).cancelPayment(any());
+        verify(transactionRepository, never()).expirePending(any());
+        verifyNoInteractions(ticketClient);
+    }
+
+    @Test
+    void sweep_ShouldLeaveProcessingPaymentsPending() {
+        // Arrange
+        Transaction processing = pending(payment("processing"));
+        candidates(processing);
+
+        // Act
+        sweeper.sweep();
+
+        // Assert
+        verify(paymentGateway, never()).cancelPayment(any());
+        verify(transactionRepository, never()).expirePending(any());
+        verifyNoInteractions(transactionService, ticketClient);
+        assertThat(meterRegistry.get("checkout.sweeper.deferred").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void sweep_ShouldReleaseTicket_OnlyAfterCancelAndConditionalExpiry() {
+        // Arrange
+        String paymentId = payment("requires_payment_method");
+        Transaction abandoned = pending(paymentId);
+        candidates(abandoned);
+        when(transactionRepository.expirePending(abandoned.getId())).thenReturn(1);
+
+        // Act
+        sweeper.sweep();
+
+        // Assert
+        var inOrder = inOrder(paymentGateway, transactionRepository, ticketClient);
+        inOrder.verify(transactionRepository).claim(eq(List.of(abandoned.getId())), any());
+        inOrder.verify(paymentGateway).cancelPayment(paymentId);
+        inOrder.verify(transactionRepository).expirePending(abandoned.getId());
+        inOrder.verify(ticketClient).releaseTicket(abandoned.getTicketId());
+        inOrder.verify(transactionRepository).markReleased(abandoned.getId());
+        assertThat(paymentGateway.retrievePayment(paymentId).status()).isEqualTo("canceled");
+    }
+
+    @Test
+    void sweep_ShouldKeepTicket_WhenCancelFails() throws Exception {
+        // Arrange
+        String paymentId = payment("requires_payment_method");
+        Transaction abandoned = pending(paymentId);
+        candidates(abandoned);
+        doThrow(new ApiConnectionException("Stripe injoignable")).when(paymentGateway).cancelPayment(paymentId);
+
+        // Act
+        sweeper.sweep();
+
+        // Assert : ligne laissée PENDING, relue au prochain passage
+        verify(transactionRepository, never()).expirePending(any());
+        verifyNoInteractions(ticketClient);
+    }
+
+    @Test
+    void sweep_ShouldNotRelease_WhenAConfirmationWonTheRace() {
+        // Arrange : checkout sans PaymentIntent, confirmé entre la lecture et l'expiration
+        Transaction raced = pending(null);
+        candidates(raced);
+        when(transactionRepository.expirePending(raced.getId())).thenReturn(0);
+
+        // Act
+        sweeper.sweep();
+
+        // Assert
+        verifyNoInteractions(ticketClient);
+        assertThat(meterRegistry.get("checkout.sweeper.expired").counter().count()).isZero();
+    }
+
+    @Test
+    void sweep_ShouldKeepReleasePending_WhenReleaseFails() {
+        // Arrange : ligne expirée, tickets-service indisponible
+        Transaction abandoned = pending(null);
+        candidates(abandoned);
+        when(transactionRepository.expirePending(abandoned.getId())).thenReturn(1);
+        doThrow(new IllegalStateException("tickets-service indisponible")).when(ticketClient).releaseTicket(abandoned.getTicketId());
+
+        // Act
+        sweeper.sweep();
+
+        // Assert : release_pending reste posé, la libération sera rejouée
+        verify(transactionRepository, never()).markReleased(any());
+        assertThat(meterRegistry.get("checkout.sweeper.release.failures").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void sweep_ShouldRetryPendingReleases_WithoutCallingStripe() {
+        // Arrange : checkout déjà EXPIRED dont la libération avait échoué
+        Transaction expired = pending("pi_expired");
+        expired.setStatus(TransactionStatus.EXPIRED);
+        when(transactionRepository.lockPendingReleases(any(), anyInt())).thenReturn(List.of(expired));
+
+        // Act
+        sweeper.sweep();
+
+        // Assert
+        verify(transactionRepository).claim(eq(List.of(expired.getId())), any());
+        verify(ticketClient).releaseTicket(expired.getTicketId());
+        verify(transactionRepository).markReleased(expired.getId());
+        verifyNoInteractions(paymentGateway);
+    }
+
+    private String payment(String status) {
+        String paymentId = paymentGateway.createPayment(1000, Map.of()).id();
+        paymentGateway.setStatus(paymentId, status);
+        clearInvocations(paymentGateway);
+        return paymentId;
+    }
+
+    private void candidates(Transaction... transactions) {
+        when(transactionRepository.lockExpiredPending(any(), any(), any(), any(), anyInt())).thenReturn(List.of(transactions));
+    }
+
+    private static Transaction pending(String paymentId) {
+        return Transaction.builder()
+                .id(UUID.randomUUID())
+                .ticketId(UUID.randomUUID())
+                .paymentToken(paymentId)
+                .status(TransactionStatus.PENDING)
+                .transactionDate(LocalDateTime.now().minusHours(1))
+                .build();
+    }
+}
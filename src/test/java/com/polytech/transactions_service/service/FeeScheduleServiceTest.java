@@ -0,0 +1,68 @@
+package com.polytech.transactions_service.service;
+
+import com.polytech.transactions_service.model.FeeRule;
+import com.polytech.transactions_service.model.Money;
+import com.polytech.transactions_service.repository.FeeRuleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeeScheduleServiceTest {
+
+    @Mock private FeeRuleRepository feeRuleRepository;
+
+    private FeeScheduleService feeScheduleService;
+
+    @BeforeEach
+    void setUp() {
+        feeScheduleService = new FeeScheduleService(feeRuleRepository, 500, 0);
+    }
+
+    @Test
+    void platformFee_ShouldPreferEventRule_ThenVendorRule_ThenDefault() {
+        // Arrange
+        UUID vendorId = UUID.randomUUID();
+        UUID eventId = UUID.randomUUID();
+        when(feeRuleRepository.findAll()).thenReturn(List.of(
+                FeeRule.builder().vendorId(vendorId).rateBps(300).build(),
+                FeeRule.builder().eventId(eventId).rateBps(0).fixedCents(150).build()));
+
+        // Act
+        long beforeRefresh = feeScheduleService.platformFee(vendorId, eventId, 1999);
+        feeScheduleService.refresh();
+
+        // Assert : 5 % de 19,99 = 0,9995 arrondi à 1,00
+        assertThat(beforeRefresh).isEqualTo(100);
+        assertThat(feeScheduleService.platformFee(vendorId, eventId, 1999)).isEqualTo(150);
+        assertThat(feeScheduleService.platformFee(vendorId, UUID.randomUUID(), 1999)).isEqualTo(60);
+        assertThat(feeScheduleService.platformFee(UUID.randomUUID(), null, 1999)).isEqualTo(100);
+        assertThat(feeScheduleService.platformFee(vendorId, eventId, 100)).isEqualTo(100); // Plafonnée au montant
+        verify(feeRuleRepository, times(1)).findAll(); // Aucune requête par calcul
+    }
+
+    @Test
+    void saveRule_ShouldRejectRuleWithoutSingleScope() {
+        FeeRule both = FeeRule.builder().vendorId(UUID.randomUUID()).eventId(UUID.randomUUID()).rateBps(100).build();
+
+        assertThrows(IllegalArgumentException.class, () -> feeScheduleService.saveRule(both));
+        verify(feeRuleRepository, never()).save(any());
+    }
+
+    @Test
+    void money_ShouldFormatCentsExactly() {
+        assertThat(Money.format(1230)).isEqualTo("12.30");
+        assertThat(Money.format(-5)).isEqualTo("-0.05");
+        assertThat(Money.ofDecimal(19.99)).isEqualTo(1999);
+    }
+}
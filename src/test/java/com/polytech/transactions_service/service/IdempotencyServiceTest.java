@@ -0,0 +1,254 @@
+package com.polytech.transactions_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polytech.transactions_service.model.IdempotencyRecord;
+import com.polytech.transactions_service.model.enums.IdempotencyStatus;
+import com.polytech.transactions_service.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private IdempotencyService idempotencyService;
+
+    // Ressource créée par l'action : le secret ne doit jamais atteindre le dépôt
+    record Created(UUID id, String clientSecret) {
+    }
+
+    // Rejeu : reconstruit depuis l'ID, comme TransactionService.replayCheckout
+    private final Function<UUID, Created> replay = id -> new Created(id, "secret-relu");
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyRecordRepository, new ObjectMapper(),
+                Duration.ofHours(24), Duration.ofSeconds(5), Duration.ofMinutes(2), 100);
+    }
+
+    @Test
+    void execute_ShouldStoreOnlyResourceId_AndRebuildReplayFromIt() {
+        AtomicInteger calls = new AtomicInteger();
+        Map<String, String> request = Map.of("ticketId", "t-1");
+        UUID transactionId = UUID.randomUUID();
+        Supplier<Created> action = () -> {
+            calls.incrementAndGet();
+            return new Created(transactionId, "pi_secret");
+        };
+
+        ResponseEntity<?> first = idempotencyService.execute("buyer", "key-1", request, action, Created::id, replay);
+        ResponseEntity<?> retry = idempotencyService.execute("buyer", "key-1", request, action, Created::id, replay);
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(first.getBody()).isEqualTo(new Created(transactionId, "pi_secret"));
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getBody()).isEqualTo(new Created(transactionId, "secret-relu"));
+        verify(idempotencyRecordRepository).saveAndFlush(any(IdempotencyRecord.class));
+        verify(idempotencyRecordRepository).complete("buyer:key-1", 201, transactionId);
+    }
+
+    @Test
+    void execute_ShouldMakeConcurrentDuplicatesWaitForFirstResult() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Map<String, String> request = Map.of("ticketId", "t-1");
+        UUID transactionId = UUID.randomUUID();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            CompletableFuture<ResponseEntity<?>> first = CompletableFuture.supplyAsync(() ->
+                    idempotencyService.execute("buyer", "key-1", request, () -> {
+                        calls.incrementAndGet();
+                        started.countDown();
+                        await(release);
+                        return new Created(transactionId, "pi_secret");
+                    }, Created::id, replay), pool);
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            Supplier<Created> duplicateAction = () -> new Created(UUID.randomUUID(), "autre-" + calls.incrementAndGet());
+            List<CompletableFuture<ResponseEntity<?>>> duplicates = List.of(
+                    CompletableFuture.supplyAsync(() -> idempotencyService.execute("buyer", "key-1", request,
+                            duplicateAction, Created::id, replay), pool),
+                    CompletableFuture.supplyAsync(() -> idempotencyService.execute("buyer", "key-1", request,
+                            duplicateAction, Created::id, replay), pool));
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS).getBody()).isEqualTo(new Created(transactionId, "pi_secret"));
+            for (CompletableFuture<ResponseEntity<?>> duplicate : duplicates) {
+                assertThat(duplicate.get(5, TimeUnit.SECONDS).getBody())
+                        .isEqualTo(new Created(transactionId, "secret-relu"));
+            }
+            assertThat(calls.get()).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_ShouldRejectKeyReusedForDifferentRequest() {
+        idempotencyService.execute("buyer", "key-1", Map.of("ticketId", "t-1"),
+                () -> new Created(UUID.randomUUID(), "pi_secret"), Created::id, replay);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () ->
+                idempotencyService.execute("buyer", "key-1", Map.of("ticketId", "t-2"),
+                        () -> new Created(UUID.randomUUID(), "pi_secret"), Created::id, replay));
+        assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    void execute_ShouldReleaseKey_WhenActionFails() {
+        assertThrows(IllegalStateException.class, () ->
+                idempotencyService.execute("buyer", "key-1", Map.of("ticketId", "t-1"), () -> {
+                    throw new IllegalStateException("Ticket indisponible");
+                }, Created::id, replay));
+
+        verify(idempotencyRecordRepository).deleteById("buyer:key-1");
+        verify(idempotencyRecordRepository, never()).complete(any(), anyInt(), any());
+    }
+
+    @Test
+    void execute_ShouldReplayStoredResourceId_FromAnotherInstance() {
+        // Arrange : clé terminée par une autre instance, seul l'ID est en base
+        Map<String, String> request = Map.of("ticketId", "t-1");
+        UUID transactionId = UUID.randomUUID();
+        IdempotencyRecord completed = record(request, LocalDateTime.now());
+        completed.setStatus(IdempotencyStatus.COMPLETED);
+        completed.setResponseStatus(201);
+        completed.setResourceId(transactionId);
+        when(idempotencyRecordRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(idempotencyRecordRepository.findById("buyer:key-1")).thenReturn(Optional.of(completed));
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        ResponseEntity<?> response = idempotencyService.execute("buyer", "key-1", request,
+                () -> new Created(UUID.randomUUID(), "autre-" + calls.incrementAndGet()), Created::id, replay);
+
+        // Assert
+        assertThat(calls.get()).isZero();
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(response.getBody()).isEqualTo(new Created(transactionId, "secret-relu"));
+    }
+
+    @Test
+    void execute_ShouldTakeOverInProgressKey_WhenItsLeaseExpired() {
+        // Arrange : ligne IN_PROGRESS laissée par une instance arrêtée en cours de requête
+        Map<String, String> request = Map.of("ticketId", "t-1");
+        IdempotencyRecord stale = record(request, LocalDateTime.now().minusSeconds(1));
+        when(idempotencyRecordRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(idempotencyRecordRepository.findById("buyer:key-1")).thenReturn(Optional.of(stale));
+        when(idempotencyRecordRepository.takeOver(eq("buyer:key-1"), any(), any())).thenReturn(1);
+        UUID transactionId = UUID.randomUUID();
+
+        // Act
+        ResponseEntity<?> response = idempotencyService.execute("buyer", "key-1", request,
+                () -> new Created(transactionId, "pi_secret"), Created::id, replay);
+
+        // Assert
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        verify(idempotencyRecordRepository).complete("buyer:key-1", 201, transactionId);
+    }
+
+    @Test
+    void execute_ShouldReturnConflict_WhileInProgressLeaseIsHeld() {
+        Map<String, String> request = Map.of("ticketId", "t-1");
+        IdempotencyRecord running = record(request, LocalDateTime.now().plusMinutes(1));
+        when(idempotencyRecordRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(idempotencyRecordRepository.findById("buyer:key-1")).thenReturn(Optional.of(running));
+        AtomicInteger calls = new AtomicInteger();
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () ->
+                idempotencyService.execute("buyer", "key-1", request,
+                        () -> new Created(UUID.randomUUID(), "autre-" + calls.incrementAndGet()), Created::id, replay));
+
+        assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(calls.get()).isZero();
+        verify(idempotencyRecordRepository, never()).takeOver(any(), any(), any());
+    }
+
+    @Test
+    void execute_ShouldReplayFromCache_WhenResponseCannotBeStored() {
+        // Arrange : l'action a réussi mais la base refuse l'enregistrement de la réponse
+        AtomicInteger calls = new AtomicInteger();
+        Map<String, String> request = Map.of("ticketId", "t-1");
+        UUID transactionId = UUID.randomUUID();
+        when(idempotencyRecordRepository.complete(any(), anyInt(), any()))
+                .thenThrow(new DataAccessResourceFailureException("connexion perdue"));
+        Supplier<Created> action = () -> new Created(calls.incrementAndGet() == 1 ? transactionId : UUID.randomUUID(), "pi_secret");
+
+        // Act
+        ResponseEntity<?> first = idempotencyService.execute("buyer", "key-1", request, action, Created::id, replay);
+        ResponseEntity<?> retry = idempotencyService.execute("buyer", "key-1", request, action, Created::id, replay);
+
+        // Assert : le client reçoit sa réponse et le doublon ne relance pas l'action
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getBody()).isEqualTo(new Created(transactionId, "secret-relu"));
+        assertThat(calls.get()).isEqualTo(1);
+        verify(idempotencyRecordRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void execute_ShouldReleaseKey_WhenResourceIdCannotBeRead() {
+        assertThrows(NullPointerException.class, () ->
+                idempotencyService.execute("buyer", "key-1", Map.of("ticketId", "t-1"),
+                        () -> (Created) null, Created::id, replay));
+
+        verify(idempotencyRecordRepository).deleteById("buyer:key-1");
+        verify(idempotencyRecordRepository, never()).complete(any(), anyInt(), any());
+    }
+
+    private IdempotencyRecord record(Object request, LocalDateTime lockedUntil) {
+        // Même empreinte que celle calculée par le service pour cette requête
+        String requestHash = HexFormat.of().formatHex(sha256(request));
+        return new IdempotencyRecord("buyer:key-1", requestHash, LocalDateTime.now().plusHours(1), lockedUntil);
+    }
+
+    private static byte[] sha256(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(new ObjectMapper().writeValueAsBytes(request));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
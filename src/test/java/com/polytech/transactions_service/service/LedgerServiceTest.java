@@ -0,0 +1,104 @@
+package com.polytech.transactions_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polytech.transactions_service.dto.PayoutRunResult;
+import com.polytech.transactions_service.event.PayoutCreatedEvent;
+import com.polytech.transactions_service.model.LedgerEntry;
+import com.polytech.transactions_service.model.Payout;
+import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.VendorBalance;
+import com.polytech.transactions_service.model.enums.LedgerAccount;
+import com.polytech.transactions_service.repository.LedgerEntryRepository;
+import com.polytech.transactions_service.repository.PayoutRepository;
+import com.polytech.transactions_service.repository.VendorBalanceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerServiceTest {
+
+    @Mock private LedgerEntryRepository ledgerEntryRepository;
+    @Mock private VendorBalanceRepository vendorBalanceRepository;
+    @Mock private PayoutRepository payoutRepository;
+    @Mock private OutboxService outboxService;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private LedgerService ledgerService;
+
+    @BeforeEach
+    void setUp() {
+        ledgerService = new LedgerService(ledgerEntryRepository, vendorBalanceRepository, payoutRepository,
+                outboxService, new ObjectMapper(), transactionManager, 1000, 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordSale_ShouldPostBalancedJournal_AndCreditVendorBalance() {
+        // Arrange
+        Transaction transaction = Transaction.builder()
+                .id(UUID.randomUUID())
+                .vendorId(UUID.randomUUID())
+                .totalAmountCents(3333)
+                .vendorAmountCents(3000)
+                .platformFeeCents(333)
+                .build();
+
+        // Act
+        ledgerService.recordSale(transaction);
+
+        // Assert
+        ArgumentCaptor<List<LedgerEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(ledgerEntryRepository).saveAll(entries.capture());
+        assertThat(entries.getValue()).hasSize(3)
+                .allMatch(e -> e.getJournalId().equals(entries.getValue().get(0).getJournalId()));
+        assertThat(entries.getValue().stream().mapToLong(LedgerEntry::getAmountCents).sum()).isZero();
+        assertThat(entries.getValue())
+                .filteredOn(e -> e.getAccount() == LedgerAccount.VENDOR_PAYABLE)
+                .singleElement()
+                .matches(e -> e.getAmountCents() == 3000 && transaction.getVendorId().equals(e.getVendorId()));
+        verify(vendorBalanceRepository).addToBalance(eq(transaction.getVendorId()), eq(3000L), any());
+    }
+
+    @Test
+    void runPayouts_ShouldPageOverBalances_AndSkipVendorsWhoseBalanceDropped() {
+        // Arrange
+        VendorBalance first = new VendorBalance(new UUID(0, 1), 5000, LocalDateTime.now());
+        VendorBalance refunded = new VendorBalance(new UUID(0, 2), 2000, LocalDateTime.now());
+        VendorBalance last = new VendorBalance(new UUID(0, 3), 1500, LocalDateTime.now());
+        when(vendorBalanceRepository.findPayableAfter(eq(1000L), any(), any()))
+                .thenReturn(List.of(first, refunded), List.of(last));
+        when(vendorBalanceRepository.debitIfCovered(any(), anyLong(), any()))
+                .thenAnswer(i -> refunded.getVendorId().equals(i.getArgument(0)) ? 0 : 1);
+        when(payoutRepository.save(any())).thenAnswer(i -> {
+            Payout payout = i.getArgument(0);
+            payout.setId(UUID.randomUUID());
+            return payout;
+        });
+
+        // Act
+        PayoutRunResult result = ledgerService.runPayouts(null);
+
+        // Assert
+        assertThat(result.getVendorsScanned()).isEqualTo(3);
+        assertThat(result.getPayouts()).isEqualTo(2);
+        assertThat(result.getTotalAmount()).isEqualTo(65.0);
+        verify(vendorBalanceRepository).findPayableAfter(eq(1000L), eq(refunded.getVendorId()), any());
+        verify(outboxService, times(2)).enqueue(eq("vendor-payout-created"), any(), any(PayoutCreatedEvent.class));
+        verify(outboxService, never()).enqueue(any(), eq(refunded.getVendorId()), any());
+    }
+}
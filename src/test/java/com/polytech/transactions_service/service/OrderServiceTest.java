@@ -0,0 +1,257 @@
+package com.polytech.transactions_service.service;
+
+import com.polytech.transactions_service.client.TicketCache;
+import com.polytech.transactions_service.client.TicketClient;
+import com.polytech.transactions_service.config.IoThreadFactory;
+import com.polytech.transactions_service.dto.OrderCheckoutResult;
+import com.polytech.transactions_service.dto.TicketDto;
+import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.enums.TransactionStatus;
+import com.polytech.transactions_service.repository.FeeRuleRepository;
+import com.polytech.transactions_service.repository.TransactionRepository;
+import com.polytech.transactions_service.support.FakePaymentGateway;
+import com.stripe.exception.ApiConnectionException;
+import feign.FeignException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderServiceTest {
+
+    @Mock private TransactionRepository transactionRepository;
+    @Mock private TransactionService transactionService;
+    @Mock private TicketClient ticketClient;
+    @Mock private TicketCache ticketCache;
+    @Mock private OutboxService outboxService;
+    @Mock private SalesRollupService salesRollupService;
+    @Mock private LedgerService ledgerService;
+    @Mock private FeeRuleRepository feeRuleRepository;
+
+    private static final UUID BUYER_ID = UUID.randomUUID();
+
+    private final FakePaymentGateway paymentGateway = spy(new FakePaymentGateway());
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderService = new OrderService(transactionRepository, transactionService, ticketClient, ticketCache,
+                outboxService, salesRollupService, ledgerService,
+                new FeeScheduleService(feeRuleRepository, 500, 0),
+                paymentGateway, new ClientSecretCache(Duration.ofMinutes(15), 100),
+                TransactionOperations.withoutTransaction(), new IoThreadFactory(false), 10, 4,
+                Duration.ofMinutes(15));
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderService.shutdown();
+    }
+
+    @Test
+    void createOrder_ShouldReleaseReservedTickets_WhenOneReservationFails() {
+        // Arrange
+        UUID first = UUID.randomUUID();
+        UUID taken = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        when(ticketCache.getTicket(any())).thenAnswer(i -> ticket(i.getArgument(0), 40.0));
+        // lenient : les autres tickets appellent reserveTicket en parallèle avec d'autres arguments
+        lenient().doThrow(mock(FeignException.Conflict.class)).when(ticketClient).reserveTicket(taken);
+
+        // Act
+        assertThrows(IllegalStateException.class,
+                () -> orderService.createOrder(UUID.randomUUID().toString(), List.of(first, taken, third)));
+
+        // Assert : tout ou rien, aucune ligne écrite
+        verify(ticketClient).releaseTicket(first);
+        verify(ticketClient).releaseTicket(third);
+        verify(ticketClient, never()).releaseTicket(taken);
+        verify(transactionRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void createOrder_ShouldBatchRows_AndCreateSinglePaymentIntent() throws Exception {
+        // Arrange
+        List<UUID> ticketIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        when(ticketCache.getTicket(any())).thenAnswer(i -> ticket(i.getArgument(0), 40.0));
+        when(transactionRepository.saveAll(anyList())).thenAnswer(i -> {
+            List<Transaction> rows = i.getArgument(0);
+            rows.forEach(t -> {
+                t.setId(UUID.randomUUID());
+                t.setTransactionDate(LocalDateTime.now());
+            });
+            return rows;
+        });
+
+        // Act
+        OrderCheckoutResult result = orderService.createOrder(UUID.randomUUID().toString(), ticketIds);
+
+        // Assert : un seul paiement pour toute la commande
+        assertThat(paymentGateway.createdCount()).isEqualTo(1);
+        assertThat(result.getTransactions()).hasSize(3)
+                .allMatch(t -> result.getOrderId().equals(t.getOrderId()))
+                .allMatch(t -> t.getPaymentToken() != null);
+        assertThat(result.getTotalAmountCents()).isEqualTo(12000);
+        assertThat(result.getTransactions()).allMatch(t -> t.getPlatformFeeCents() == 200 && t.getVendorAmountCents() == 3800);
+        assertThat(result.getClientSecret()).isNotBlank();
+        verify(transactionRepository).saveAll(anyList());
+        verify(transactionRepository).updateOrderPaymentToken(eq(result.getOrderId()), any());
+    }
+
+    @Test
+    void cancelOrder_ShouldReleaseOnlyLinesItCanceled() {
+        // Arrange : deux lignes lues PENDING, l'une confirmée entre la lecture et l'annulation
+        UUID orderId = UUID.randomUUID();
+        String paymentToken = paymentGateway.createPayment(8000, Map.of()).id();
+        Transaction stillPending = line(orderId, paymentToken);
+        Transaction confirmedMeanwhile = line(orderId, paymentToken);
+        when(transactionRepository.findByOrderId(orderId)).thenReturn(List.of(stillPending, confirmedMeanwhile));
+        when(transactionRepository.updatePendingStatus(stillPending.getId(), TransactionStatus.CANCELED)).thenReturn(1);
+        when(transactionRepository.updatePendingStatus(confirmedMeanwhile.getId(), TransactionStatus.CANCELED)).thenReturn(0);
+
+        // Act
+        orderService.cancelOrder(orderId, BUYER_ID.toString());
+
+        // Assert
+        verify(ticketClient).releaseTicket(stillPending.getTicketId());
+        verify(ticketClient, never()).releaseTicket(confirmedMeanwhile.getTicketId());
+        assertThat(paymentGateway.retrievePayment(paymentToken).status()).isEqualTo("canceled");
+    }
+
+    @Test
+    void createOrder_ShouldCancelIntentAndFailLines_WhenPaymentTokenCannotBeSaved() {
+        // Arrange
+        List<UUID> ticketIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+        when(ticketCache.getTicket(any())).thenAnswer(i -> ticket(i.getArgument(0), 40.0));
+        when(transactionRepository.saveAll(anyList())).thenAnswer(i -> {
+            List<Transaction> rows = i.getArgument(0);
+            rows.forEach(t -> t.setId(UUID.randomUUID()));
+            return rows;
+        });
+        when(transactionRepository.updateOrderPaymentToken(any(), any())).thenThrow(new IllegalStateException("DB down"));
+        when(transactionRepository.updatePendingStatus(any(), eq(TransactionStatus.FAILED))).thenReturn(1);
+
+        // Act
+        assertThrows(IllegalStateException.class,
+                () -> orderService.createOrder(UUID.randomUUID().toString(), ticketIds));
+
+        // Assert : lignes FAILED une par une, tickets libérés une seule fois
+        verify(transactionRepository, times(2)).updatePendingStatus(any(), eq(TransactionStatus.FAILED));
+        ticketIds.forEach(id -> verify(ticketClient).releaseTicket(id));
+    }
+
+    @Test
+    void completeOrder_ShouldConfirmRemainingPendingLines_AndSkipOthers() {
+        // Arrange : une ligne déjà confirmée (rejeu), une PENDING, une expirée entre-temps
+        UUID orderId = UUID.randomUUID();
+        Transaction alreadyCompleted = completedLine(orderId, "pi_123", 4000);
+        Transaction pending = line(orderId, "pi_123");
+        Transaction expired = line(orderId, "pi_123");
+        expired.setStatus(TransactionStatus.EXPIRED);
+        when(transactionRepository.findByOrderId(orderId)).thenReturn(List.of(alreadyCompleted, pending, expired));
+        when(transactionService.completeTransaction(pending.getId())).thenReturn(pending);
+
+        // Act
+        List<Transaction> completed = orderService.completeOrder(orderId, BUYER_ID.toString());
+
+        // Assert : seule la ligne PENDING passe par completeTransaction, l'expirée ne fait pas échouer la commande
+        assertThat(completed).containsExactly(alreadyCompleted, pending);
+        verify(transactionService, times(1)).completeTransaction(any());
+    }
+
+    @Test
+    void completeOrder_ShouldRejectAnotherBuyer() {
+        UUID orderId = UUID.randomUUID();
+        when(transactionRepository.findByOrderId(orderId)).thenReturn(List.of(line(orderId, "pi_123")));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> orderService.completeOrder(orderId, UUID.randomUUID().toString()));
+
+        assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void refundOrder_ShouldRefundOnlyLinesItClaimed_WithAnIdempotencyKey() throws Exception {
+        // Arrange : une ligne est déjà prise par un remboursement concurrent
+        UUID orderId = UUID.randomUUID();
+        String paymentToken = paymentGateway.createPayment(8000, Map.of()).id();
+        Transaction claimedHere = completedLine(orderId, paymentToken, 5000);
+        Transaction claimedElsewhere = completedLine(orderId, paymentToken, 3000);
+        when(transactionRepository.findByOrderId(orderId)).thenReturn(List.of(claimedHere, claimedElsewhere));
+        when(transactionRepository.claimRefund(claimedHere.getId())).thenReturn(1);
+        when(transactionRepository.claimRefund(claimedElsewhere.getId())).thenReturn(0);
+
+        // Act
+        orderService.refundOrder(orderId);
+
+        // Assert : seul le montant de la ligne réservée part chez Stripe
+        verify(paymentGateway).refund(eq(paymentToken), eq(5000L), startsWith("refund-order-" + orderId));
+        verify(transactionRepository).saveAll(List.of(claimedHere));
+        assertThat(claimedHere.getStatus()).isEqualTo(TransactionStatus.REFUNDED);
+        assertThat(claimedElsewhere.getStatus()).isEqualTo(TransactionStatus.COMPLETED);
+        verify(outboxService, times(1)).enqueue(eq("transaction-refunded"), eq(claimedHere.getId()), any());
+    }
+
+    @Test
+    void refundOrder_ShouldReleaseClaim_WhenStripeRefundFails() throws Exception {
+        // Arrange
+        UUID orderId = UUID.randomUUID();
+        Transaction completed = completedLine(orderId, "pi_123", 5000);
+        when(transactionRepository.findByOrderId(orderId)).thenReturn(List.of(completed));
+        when(transactionRepository.claimRefund(completed.getId())).thenReturn(1);
+        doThrow(new ApiConnectionException("Stripe injoignable")).when(paymentGateway).refund(any(), any(), any());
+
+        // Act & Assert : les lignes redeviennent remboursables, rien n'est écrit
+        assertThrows(RuntimeException.class, () -> orderService.refundOrder(orderId));
+        verify(transactionRepository).releaseRefundClaim(List.of(completed.getId()));
+        verify(transactionRepository, never()).saveAll(anyList());
+        verifyNoInteractions(outboxService);
+    }
+
+    private static Transaction completedLine(UUID orderId, String paymentToken, long totalAmountCents) {
+        Transaction transaction = line(orderId, paymentToken);
+        transaction.setStatus(TransactionStatus.COMPLETED);
+        transaction.setTotalAmountCents(totalAmountCents);
+        return transaction;
+    }
+
+    private static Transaction line(UUID orderId, String paymentToken) {
+        return Transaction.builder()
+                .id(UUID.randomUUID())
+                .orderId(orderId)
+                .buyerId(BUYER_ID)
+                .ticketId(UUID.randomUUID())
+                .paymentToken(paymentToken)
+                .status(TransactionStatus.PENDING)
+                .build();
+    }
+
+    private static TicketDto ticket(UUID id, double price) {
+        TicketDto ticket = new TicketDto();
+        ticket.setId(id);
+        ticket.setSalePrice(price);
+        ticket.setStatus("AVAILABLE");
+        return ticket;
+    }
+}
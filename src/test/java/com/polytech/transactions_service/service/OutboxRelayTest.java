@@ -0,0 +1,125 @@
+package com.polytech.transactions_service.service;
+
+import com.polytech.transactions_service.model.OutboxEvent;
+import com.polytech.transactions_service.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock private OutboxEventRepository outboxEventRepository;
+    @Mock private KafkaTemplate<String, byte[]> kafkaTemplate;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new OutboxRelay(outboxEventRepository, kafkaTemplate, transactionManager, meterRegistry, 100, 1000, 3, 1);
+        when(outboxEventRepository.tryLockPartition(anyLong())).thenReturn(true);
+    }
+
+    @Test
+    void relay_ShouldKeepFailedEventForRetry_BelowMaxAttempts() {
+        // Arrange
+        OutboxEvent event = event(1L, 0);
+        when(outboxEventRepository.lockNextBatch(1, 0, 100)).thenReturn(List.of(event));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker indisponible")));
+
+        // Act
+        relay.relay();
+
+        // Assert : tentative comptée, la ligne reste relayable
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getDeadLetteredAt()).isNull();
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of());
+    }
+
+    @Test
+    void relay_ShouldDeadLetterEventAndAlert_AtMaxAttempts() {
+        // Arrange : dernière tentative autorisée
+        OutboxEvent poison = event(1L, 2);
+        when(outboxEventRepository.lockNextBatch(1, 0, 100)).thenReturn(List.of(poison));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("message trop gros")));
+
+        // Act
+        relay.relay();
+
+        // Assert : dead-letter et compteur d'alerte, la ligne n'est pas supprimée
+        assertThat(poison.getAttempts()).isEqualTo(3);
+        assertThat(poison.getDeadLetteredAt()).isNotNull();
+        assertThat(poison.getLastError()).contains("message trop gros");
+        assertThat(meterRegistry.get("outbox.relay.dead_lettered").tag("topic", "ticket-sold").counter().count())
+                .isEqualTo(1);
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of());
+    }
+
+    @Test
+    void relay_ShouldHoldBackLaterEventsOfAKey_UntilTheFailedOneIsPublished() {
+        // Arrange : deux événements de la même clé, le premier échoue ; une autre clé avance
+        OutboxEvent first = event(1L, 0, "key-a");
+        OutboxEvent second = event(2L, 0, "key-a");
+        OutboxEvent other = event(3L, 0, "key-b");
+        when(outboxEventRepository.lockNextBatch(1, 0, 100)).thenReturn(List.of(first, second, other));
+        when(kafkaTemplate.send(argThat((ProducerRecord<String, byte[]> r) -> r != null && "key-a".equals(r.key()))))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker indisponible")));
+        when(kafkaTemplate.send(argThat((ProducerRecord<String, byte[]> r) -> r != null && "key-b".equals(r.key()))))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // Act
+        relay.relay();
+
+        // Assert : le second n'est pas envoyé avant le premier, sans tentative comptée
+        verify(kafkaTemplate, times(2)).send(any(ProducerRecord.class));
+        assertThat(first.getAttempts()).isEqualTo(1);
+        assertThat(second.getAttempts()).isZero();
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(3L));
+    }
+
+    @Test
+    void relay_ShouldSkipPartition_WhenAnotherInstanceHoldsIt() {
+        when(outboxEventRepository.tryLockPartition(anyLong())).thenReturn(false);
+
+        relay.relay();
+
+        verify(outboxEventRepository, never()).lockNextBatch(anyInt(), anyInt(), anyInt());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    private static OutboxEvent event(long id, int attempts) {
+        return event(id, attempts, "key-" + id);
+    }
+
+    private static OutboxEvent event(long id, int attempts, String key) {
+        return OutboxEvent.builder()
+                .id(id)
+                .topic("ticket-sold")
+                .messageKey(key)
+                .payload("{}".getBytes(StandardCharsets.UTF_8))
+                .attempts(attempts)
+                .build();
+    }
+}
@@ -0,0 +1,98 @@
+package com.polytech.transactions_service.service;
+
+import com.polytech.transactions_service.dto.SalesSummaryDto;
+import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.VendorDailySales;
+import com.polytech.transactions_service.repository.EventDailySalesRepository;
+import com.polytech.transactions_service.repository.VendorDailySalesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SalesRollupServiceTest {
+
+    @Mock private VendorDailySalesRepository vendorDailySalesRepository;
+    @Mock private EventDailySalesRepository eventDailySalesRepository;
+    @Mock private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    private SalesRollupService salesRollupService;
+
+    @BeforeEach
+    void setUp() {
+        when(namedJdbcTemplate.getJdbcTemplate()).thenReturn(new JdbcTemplate(mock(DataSource.class)));
+        salesRollupService = new SalesRollupService(vendorDailySalesRepository, eventDailySalesRepository,
+                namedJdbcTemplate, 500);
+    }
+
+    @Test
+    void recordSaleAndRefund_ShouldUpsertCentDeltas_OnTheirOwnDay() {
+        // Arrange
+        Transaction transaction = Transaction.builder()
+                .vendorId(UUID.randomUUID())
+                .eventId(UUID.randomUUID())
+                .totalAmountCents(1999)
+                .vendorAmountCents(1899)
+                .platformFeeCents(100)
+                .validationDate(LocalDateTime.of(2025, 3, 1, 23, 50))
+                .refundDate(LocalDateTime.of(2025, 3, 4, 9, 0))
+                .build();
+
+        // Act
+        salesRollupService.recordSale(transaction);
+        salesRollupService.recordRefund(transaction);
+
+        // Assert : vente le jour de validation, remboursement déduit le jour du remboursement
+        verify(vendorDailySalesRepository).addDeltas(transaction.getVendorId(), LocalDate.of(2025, 3, 1),
+                1, 0, 1999, 1899, 100);
+        verify(vendorDailySalesRepository).addDeltas(transaction.getVendorId(), LocalDate.of(2025, 3, 4),
+                0, 1, -1999, -1899, -100);
+        verify(eventDailySalesRepository).addDeltas(transaction.getEventId(), LocalDate.of(2025, 3, 1),
+                1, 0, 1999, 1899, 100);
+        verify(eventDailySalesRepository).addDeltas(transaction.getEventId(), LocalDate.of(2025, 3, 4),
+                0, 1, -1999, -1899, -100);
+    }
+
+    @Test
+    void getVendorSummary_ShouldSumDailyRows() {
+        // Arrange
+        UUID vendorId = UUID.randomUUID();
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        LocalDate to = LocalDate.of(2025, 3, 31);
+        when(vendorDailySalesRepository.findByVendorIdAndSaleDateBetweenOrderBySaleDateAsc(vendorId, from, to))
+                .thenReturn(List.of(day(vendorId, from, 3, 0, 6000), day(vendorId, from.plusDays(2), 1, 1, 0)));
+
+        // Act
+        SalesSummaryDto summary = salesRollupService.getVendorSummary(vendorId, from, to);
+
+        // Assert
+        assertThat(summary.getSalesCount()).isEqualTo(4);
+        assertThat(summary.getRefundCount()).isEqualTo(1);
+        assertThat(summary.getGrossAmount()).isEqualTo(60.0);
+        assertThat(summary.getDays()).hasSize(2);
+        assertThat(summary.getDays().get(0).getDate()).isEqualTo(from);
+    }
+
+    private static VendorDailySales day(UUID vendorId, LocalDate date, long sales, long refunds, long grossCents) {
+        VendorDailySales row = new VendorDailySales();
+        row.setVendorId(vendorId);
+        row.setSaleDate(date);
+        row.setSalesCount(sales);
+        row.setRefundCount(refunds);
+        row.setGrossCents(grossCents);
+        return row;
+    }
+}
@@ -0,0 +1,254 @@
+package com.polytech.transactions_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polytech.transactions_service.config.IoThreadFactory;
+import com.polytech.transactions_service.model.StripeWebhookEvent;
+import com.polytech.transactions_service.model.Transaction;
+import com.polytech.transactions_service.model.enums.TransactionStatus;
+import com.polytech.transactions_service.repository.StripeWebhookEventRepository;
+import com.polytech.transactions_service.repository.TransactionRepository;
+import com.polytech.transactions_service.support.FakePaymentGateway;
+import com.polytech.transactions_service.support.FakeStripeWebhookSender;
+import com.stripe.exception.ApiConnectionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StripeWebhookServiceTest {
+
+    private static final String SECRET = "whsec_test";
+
+    @Mock private StripeWebhookEventRepository webhookEventRepository;
+    @Mock private TransactionRepository transactionRepository;
+    @Mock private TransactionService transactionService;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final FakePaymentGateway paymentGateway = spy(new FakePaymentGateway());
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FakeStripeWebhookSender stripe = new FakeStripeWebhookSender(SECRET);
+    private StripeWebhookService webhookService;
+
+    @BeforeEach
+    void setUp() {
+        webhookService = new StripeWebhookService(webhookEventRepository, transactionRepository,
+                transactionService, paymentGateway, new ObjectMapper(), meterRegistry, transactionManager, new IoThreadFactory(false),
+                SECRET, 300, 2, 10, 3, Duration.ofMinutes(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        webhookService.shutdown();
+    }
+
+    @Test
+    void receive_ShouldCompleteTransactionInBackground() {
+        UUID transactionId = UUID.randomUUID();
+        Transaction transaction = new Transaction();
+        transaction.setId(transactionId);
+        when(transactionRepository.findByPaymentToken("pi_123")).thenReturn(List.of(transaction));
+
+        String payload = FakeStripeWebhookSender.paymentIntentEvent("evt_1", "payment_intent.succeeded", "pi_123");
+        StripeWebhookService.Outcome outcome = webhookService.receive(payload, stripe.sign(payload));
+
+        assertThat(outcome).isEqualTo(StripeWebhookService.Outcome.ACCEPTED);
+        verify(transactionService, timeout(2000)).completeTransaction(transactionId);
+        verify(webhookEventRepository, timeout(2000)).markProcessed(eq("evt_1"), any());
+    }
+
+    @Test
+    void receive_ShouldKeepCheckoutPending_WhenAPaymentAttemptFails() {
+        // Arrange : carte refusée, l'acheteur peut réessayer sur le même PaymentIntent
+        Transaction transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        when(transactionRepository.findByPaymentToken("pi_123")).thenReturn(List.of(transaction));
+
+        // Act
+        String payload = FakeStripeWebhookSender.paymentIntentEvent("evt_1", "payment_intent.payment_failed", "pi_123");
+        webhookService.receive(payload, stripe.sign(payload));
+
+        // Assert : événement traité, ni échec ni libération du ticket
+        verify(webhookEventRepository, timeout(2000)).markProcessed(eq("evt_1"), any());
+        verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void receive_ShouldFailTransaction_WhenThePaymentIntentIsCanceled() {
+        UUID transactionId = UUID.randomUUID();
+        Transaction transaction = new Transaction();
+        transaction.setId(transactionId);
+        when(transactionRepository.findByPaymentToken("pi_123")).thenReturn(List.of(transaction));
+
+        String payload = FakeStripeWebhookSender.paymentIntentEvent("evt_1", "payment_intent.canceled", "pi_123");
+        webhookService.receive(payload, stripe.sign(payload));
+
+        verify(transactionService, timeout(2000)).failTransaction(transactionId);
+        verify(webhookEventRepository, timeout(2000)).markProcessed(eq("evt_1"), any());
+    }
+
+    @Test
+    void process_ShouldCountFailedAttempts_AndRedriveOnlyBelowTheLimit() {
+        // Arrange
+        Transaction transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        when(transactionRepository.findByPaymentToken("pi_123")).thenReturn(List.of(transaction));
+        when(transactionService.completeTransaction(transaction.getId()))
+                .thenThrow(new IllegalStateException("Statut invalide pour validation: FAILED"));
+
+        // Act
+        webhookService.process("evt_1", "payment_intent.succeeded", "pi_123");
+        webhookService.redriveUnprocessed();
+
+        // Assert : tentative comptée, l'événement n'est pas marqué traité ; la reprise exclut la dead-letter
+        verify(webhookEventRepository).recordFailure("evt_1", "Statut invalide pour validation: FAILED");
+        verify(webhookEventRepository, never()).markProcessed(any(), any());
+        verify(webhookEventRepository).lockRedrivable(eq(3), any(), eq(100));
+    }
+
+    @Test
+    void receive_ShouldClaimEventWhileItWaitsInTheLocalQueue() {
+        String payload = FakeStripeWebhookSender.paymentIntentEvent("evt_1", "payment_intent.payment_failed", "pi_123");
+        webhookService.receive(payload, stripe.sign(payload));
+
+        verify(webhookEventRepository).saveAndFlush(argThat(event -> event.getClaimedUntil() != null
+                && event.getClaimedUntil().isAfter(LocalDateTime.now().plusMinutes(1))));
+    }
+
+    @Test
+    void redriveUnprocessed_ShouldClaimEvents_AndSkipThoseStillQueuedLocally() throws Exception {
+        // Arrange : evt_1 est encore en cours de traitement sur cette instance
+        CountDownLatch release = new CountDownLatch(1);
+        Transaction transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        when(transactionRepository.findByPaymentToken("pi_1")).thenReturn(List.of(transaction));
+        when(transactionService.completeTransaction(transaction.getId())).thenAnswer(i -> {
+            release.await(5, TimeUnit.SECONDS);
+            return transaction;
+        });
+        String payload = FakeStripeWebhookSender.paymentIntentEvent("evt_1", "payment_intent.succeeded", "pi_1");
+        webhookService.receive(payload, stripe.sign(payload));
+        verify(transactionService, timeout(2000)).completeTransaction(transaction.getId());
+
+        StripeWebhookEvent queuedEvent = new StripeWebhookEvent("evt_1", "payment_intent.succeeded", "pi_1");
+        StripeWebhookEvent staleEvent = new StripeWebhookEvent("evt_2", "payment_intent.canceled", "pi_2");
+        when(webhookEventRepository.lockRedrivable(eq(3), any(), eq(100))).thenReturn(List.of(queuedEvent, staleEvent));
+
+        // Act
+        webhookService.redriveUnprocessed();
+        release.countDown();
+
+        // Assert : les deux sont réservés, seul evt_2 repart en traitement
+        verify(webhookEventRepository).claim(eq(List.of("evt_1", "evt_2")), any());
+        verify(transactionRepository, timeout(2000)).findByPaymentToken("pi_2");
+        verify(webhookEventRepository, timeout(2000)).markProcessed(eq("evt_1"), any());
+        verify(transactionService, times(1)).completeTransaction(transaction.getId());
+    }
+
+    @Test
+    void constructor_ShouldFailFast_WhenWebhookSecretIsMissing() {
+        assertThrows(IllegalStateException.class, () -> new StripeWebhookService(webhookEventRepository,
+                transactionRepository, transactionService, paymentGateway, new ObjectMapper(), meterRegistry,
+                transactionManager, new IoThreadFactory(false), "", 300, 2, 10, 3, Duration.ofMinutes(2)));
+    }
+
+    @Test
+    void process_ShouldRefundPayment_WhenItSucceedsAfterTheCheckoutWasReleased() throws Exception {
+        // Arrange : checkout expiré (ticket libéré) puis paiement abouti
+        Transaction transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        transaction.setStatus(TransactionStatus.EXPIRED);
+        when(transactionRepository.findByPaymentToken("pi_123")).thenReturn(List.of(transaction));
+
+        // Act
+        webhookService.process("evt_1", "payment_intent.succeeded", "pi_123");
+
+        // Assert : remboursement total, pas de complétion, événement traité
+        verify(paymentGateway).refund("pi_123", null, "late-payment-evt_1");
+        verify(transactionService, never()).completeTransaction(any());
+        verify(webhookEventRepository).markProcessed(eq("evt_1"), any());
+        assertThat(meterRegistry.get("stripe.webhook.late_payments").tag("outcome", "refunded").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void process_ShouldRefundOnlyReleasedLines_AndCompleteTheOthers() throws Exception {
+        // Arrange : commande dont une ligne a été annulée avant le paiement
+        Transaction pending = new Transaction();
+        pending.setId(UUID.randomUUID());
+        pending.setStatus(TransactionStatus.PENDING);
+        pending.setTotalAmountCents(5000);
+        Transaction canceled = new Transaction();
+        canceled.setId(UUID.randomUUID());
+        canceled.setStatus(TransactionStatus.CANCELED);
+        canceled.setTotalAmountCents(3000);
+        when(transactionRepository.findByPaymentToken("pi_123")).thenReturn(List.of(pending, canceled));
+
+        // Act
+        webhookService.process("evt_1", "payment_intent.succeeded", "pi_123");
+
+        // Assert
+        verify(transactionService).completeTransaction(pending.getId());
+        verify(paymentGateway).refund("pi_123", 3000L, "late-payment-evt_1");
+        verify(webhookEventRepository).markProcessed(eq("evt_1"), any());
+    }
+
+    @Test
+    void process_ShouldKeepEventForRedrive_WhenLateRefundFails() throws Exception {
+        // Arrange
+        Transaction transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        transaction.setStatus(TransactionStatus.CANCELED);
+        when(transactionRepository.findByPaymentToken("pi_123")).thenReturn(List.of(transaction));
+        doThrow(new ApiConnectionException("Stripe injoignable")).when(paymentGateway).refund(any(), any(), any());
+
+        // Act
+        webhookService.process("evt_1", "payment_intent.succeeded", "pi_123");
+
+        // Assert : échec compté et tracé, l'événement reste à reprendre (puis en dead-letter)
+        verify(webhookEventRepository).recordFailure("evt_1", "Stripe injoignable");
+        verify(webhookEventRepository, never()).markProcessed(any(), any());
+        assertThat(meterRegistry.get("stripe.webhook.late_payments").tag("outcome", "refund_failed").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void receive_ShouldIgnoreReplayedEvent() {
+        when(webhookEventRepository.saveAndFlush(any(StripeWebhookEvent.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        String payload = FakeStripeWebhookSender.paymentIntentEvent("evt_1", "payment_intent.payment_failed", "pi_123");
+        StripeWebhookService.Outcome outcome = webhookService.receive(payload, stripe.sign(payload));
+
+        assertThat(outcome).isEqualTo(StripeWebhookService.Outcome.DUPLICATE);
+        verifyNoInteractions(transactionRepository, transactionService);
+    }
+
+    @Test
+    void receive_ShouldRejectInvalidSignature() {
+        String payload = FakeStripeWebhookSender.paymentIntentEvent("evt_1", "payment_intent.succeeded", "pi_123");
+        String forged = new FakeStripeWebhookSender("whsec_other").sign(payload);
+
+        assertThrows(IllegalArgumentException.class, () -> webhookService.receive(payload, forged));
+        verifyNoInteractions(webhookEventRepository, transactionService);
+    }
+}
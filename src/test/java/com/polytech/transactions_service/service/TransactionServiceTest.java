@@ -1,28 +1,48 @@
 package com.polytech.transactions_service.service;
 
+import com.polytech.transactions_service.client.TicketCache;
 import com.polytech.transactions_service.client.TicketClient;
 import com.polytech.transactions_service.client.UserClient;
+import com.polytech.transactions_service.config.PipelineObservations;
+import com.polytech.transactions_service.dto.CheckoutResult;
 import com.polytech.transactions_service.dto.CreateTransactionRequest;
 import com.polytech.transactions_service.dto.TicketDto;
-import com.polytech.transactions_service.dto.UserDto;
+import com.polytech.transactions_service.event.PaymentValidatedEvent;
+import com.polytech.transactions_service.exception.DependencyUnavailableException;
+import com.polytech.transactions_service.event.TicketSoldEvent;
 import com.polytech.transactions_service.model.Transaction;
 import com.polytech.transactions_service.model.enums.PaymentMethod;
 import com.polytech.transactions_service.model.enums.TransactionStatus;
 import com.polytech.transactions_service.repository.TransactionRepository;
+import com.polytech.transactions_service.support.FakePaymentGateway;
+import feign.Request;
+import feign.RetryableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,8 +50,18 @@ class TransactionServiceTest {
 
     @Mock private TransactionRepository transactionRepository;
     @Mock private TicketClient ticketClient;
+    @Mock private TicketCache ticketCache;
     @Mock private UserClient userClient;
-    @Mock private KafkaTemplate<String, Object> kafkaTemplate;
+    @Mock private OutboxService outboxService;
+    @Mock private ClientSecretCache clientSecretCache;
+    @Mock private SalesRollupService salesRollupService;
+    @Mock private LedgerService ledgerService;
+    @Mock private FeeScheduleService feeScheduleService;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Spy private PipelineObservations observations = new PipelineObservations(observationRegistry(meterRegistry));
+    @Spy private FakePaymentGateway paymentGateway = new FakePaymentGateway();
+    @Spy private TransactionOperations transactionOperations = TransactionOperations.withoutTransaction();
 
     @InjectMocks
     private TransactionService transactionService;
@@ -53,29 +83,27 @@ class TransactionServiceTest {
         ticketDto.setId(ticketId);
         ticketDto.setSalePrice(100.0);
         ticketDto.setStatus("AVAILABLE");
-        when(ticketClient.getTicketById(ticketId)).thenReturn(ticketDto);
-
-        // Mock User Service Response
-        UserDto userDto = new UserDto();
-        userDto.setId(buyerId);
-        when(userClient.getUserById(buyerId)).thenReturn(userDto);
+        when(ticketCache.getTicket(ticketId)).thenReturn(ticketDto);
 
         // Mock Repository
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> {
             Transaction t = i.getArgument(0);
             t.setId(UUID.randomUUID());
-            t.setStatus(TransactionStatus.COMPLETED);
             return t;
         });
 
         // Act
-        Transaction result = transactionService.createTransaction(String.valueOf(buyerId), ticketId);
+        CheckoutResult result = transactionService.createTransaction(String.valueOf(buyerId), ticketId);
 
-        // Assert
+        // Assert : checkout PENDING avec son paiement ; les événements ne partent qu'à la confirmation
         assertThat(result).isNotNull();
-        assertThat(result.getStatus()).isEqualTo(TransactionStatus.COMPLETED);
-        // Vérifie que l'événement Kafka a été envoyé
-        verify(kafkaTemplate).send(eq("ticket-sold"), any());
+        assertThat(result.getTransaction().getStatus()).isEqualTo(TransactionStatus.PENDING);
+        assertThat(result.getTransaction().getTotalAmountCents()).isEqualTo(10000);
+        assertThat(result.getClientSecret()).isEqualTo(result.getTransaction().getPaymentToken() + "_secret");
+        verify(ticketClient).reserveTicket(ticketId);
+        verify(transactionRepository).updatePaymentToken(result.getTransactionId(), result.getTransaction().getPaymentToken());
+        verify(clientSecretCache).put(result.getTransactionId(), result.getClientSecret());
+        verify(outboxService, never()).enqueue(anyString(), any(), any());
     }
 
     @Test
@@ -88,13 +116,342 @@ class TransactionServiceTest {
 
         TicketDto ticketDto = new TicketDto();
         ticketDto.setStatus("SOLD"); // Ticket déjà vendu
-        when(ticketClient.getTicketById(ticketId)).thenReturn(ticketDto);
+        when(ticketCache.getTicket(ticketId)).thenReturn(ticketDto);
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> transactionService.createTransaction(String.valueOf(request.getBuyerId()), request.getTicketId()));
         verify(transactionRepository, never()).save(any());
     }
 
+    @Test
+    void createTransaction_ShouldReleaseTicket_WhenPersistenceFails() {
+        // Arrange
+        UUID ticketId = UUID.randomUUID();
+        TicketDto ticketDto = new TicketDto();
+        ticketDto.setId(ticketId);
+        ticketDto.setSalePrice(100.0);
+        when(ticketCache.getTicket(ticketId)).thenReturn(ticketDto);
+        when(transactionRepository.save(any(Transaction.class))).thenThrow(new IllegalStateException("DB down"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class,
+                () -> transactionService.createTransaction(UUID.randomUUID().toString(), ticketId));
+        verify(ticketClient).reserveTicket(ticketId);
+        verify(ticketClient).releaseTicket(ticketId);
+    }
+
+    @Test
+    void createTransaction_ShouldReleaseTicketAndAnswer503_WhenReservationTimesOut() {
+        // Arrange : timeout de lecture, la réservation a pu aboutir côté tickets-service
+        UUID ticketId = UUID.randomUUID();
+        TicketDto ticketDto = new TicketDto();
+        ticketDto.setId(ticketId);
+        ticketDto.setSalePrice(100.0);
+        when(ticketCache.getTicket(ticketId)).thenReturn(ticketDto);
+        Request request = Request.create(Request.HttpMethod.POST, "http://tickets-service/tickets/" + ticketId + "/reserve",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        doThrow(new RetryableException(-1, "Read timed out", Request.HttpMethod.POST, (Long) null, request))
+                .when(ticketClient).reserveTicket(ticketId);
+
+        // Act & Assert
+        assertThrows(DependencyUnavailableException.class,
+                () -> transactionService.createTransaction(UUID.randomUUID().toString(), ticketId));
+        verify(ticketClient).releaseTicket(ticketId);
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void createTransaction_ShouldFailRowOnce_WhenPaymentTokenCannotBeSaved() {
+        // Arrange
+        UUID ticketId = UUID.randomUUID();
+        TicketDto ticketDto = new TicketDto();
+        ticketDto.setId(ticketId);
+        ticketDto.setSalePrice(100.0);
+        when(ticketCache.getTicket(ticketId)).thenReturn(ticketDto);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> {
+            Transaction t = i.getArgument(0);
+            t.setId(UUID.randomUUID());
+            return t;
+        });
+        when(transactionRepository.updatePaymentToken(any(), anyString())).thenThrow(new IllegalStateException("DB down"));
+        when(transactionRepository.updatePendingStatus(any(), eq(TransactionStatus.FAILED))).thenReturn(1);
+
+        // Act
+        assertThrows(IllegalStateException.class,
+                () -> transactionService.createTransaction(UUID.randomUUID().toString(), ticketId));
+
+        // Assert : PaymentIntent annulé, ligne FAILED (le sweeper ne la reprendra pas), ticket libéré une fois
+        verify(paymentGateway).cancelPayment(anyString());
+        verify(transactionRepository).updatePendingStatus(any(), eq(TransactionStatus.FAILED));
+        verify(ticketClient, times(1)).releaseTicket(ticketId);
+    }
+
+    @Test
+    void createTransaction_ShouldLeaveReleaseToSweeper_WhenRowCannotLeavePending() {
+        // Arrange : base indisponible après la création du PaymentIntent
+        UUID ticketId = UUID.randomUUID();
+        TicketDto ticketDto = new TicketDto();
+        ticketDto.setId(ticketId);
+        ticketDto.setSalePrice(100.0);
+        when(ticketCache.getTicket(ticketId)).thenReturn(ticketDto);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> {
+            Transaction t = i.getArgument(0);
+            t.setId(UUID.randomUUID());
+            return t;
+        });
+        when(transactionRepository.updatePaymentToken(any(), anyString())).thenThrow(new IllegalStateException("DB down"));
+        when(transactionRepository.updatePendingStatus(any(), any())).thenThrow(new IllegalStateException("DB down"));
+
+        // Act
+        assertThrows(IllegalStateException.class,
+                () -> transactionService.createTransaction(UUID.randomUUID().toString(), ticketId));
+
+        // Assert : la ligne reste PENDING, c'est le sweeper qui libérera le ticket
+        verify(ticketClient, never()).releaseTicket(any());
+    }
+
+    @Test
+    void resumeCheckout_ShouldServeClientSecretFromCache() {
+        // Arrange
+        UUID transactionId = UUID.randomUUID();
+        UUID buyerId = UUID.randomUUID();
+        Transaction transaction = Transaction.builder()
+                .id(transactionId)
+                .buyerId(buyerId)
+                .paymentToken("pi_123")
+                .status(TransactionStatus.PENDING)
+                .transactionDate(LocalDateTime.now())
+                .build();
+        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
+        when(clientSecretCache.get(transactionId)).thenReturn("pi_123_secret_456");
+
+        // Act
+        CheckoutResult result = transactionService.resumeCheckout(transactionId, buyerId.toString());
+
+        // Assert : aucun appel Stripe, le secret vient du cache
+        assertThat(result.getClientSecret()).isEqualTo("pi_123_secret_456");
+        assertThat(result.getExpiresAt()).isAfter(LocalDateTime.now());
+        verify(clientSecretCache, never()).put(any(), any());
+        verifyNoInteractions(paymentGateway);
+    }
+
+    @Test
+    void replayCheckout_ShouldOmitClientSecret_OncePaymentIsNoLongerPending() {
+        // Arrange : rejeu idempotent d'un achat déjà payé
+        UUID transactionId = UUID.randomUUID();
+        UUID buyerId = UUID.randomUUID();
+        Transaction transaction = Transaction.builder()
+                .id(transactionId)
+                .buyerId(buyerId)
+                .paymentToken("pi_123")
+                .status(TransactionStatus.COMPLETED)
+                .transactionDate(LocalDateTime.now())
+                .build();
+        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
+
+        // Act
+        CheckoutResult result = transactionService.replayCheckout(transactionId, buyerId.toString());
+
+        // Assert : état courant renvoyé, sans secret ni appel Stripe
+        assertThat(result.getTransactionId()).isEqualTo(transactionId);
+        assertThat(result.getClientSecret()).isNull();
+        verifyNoInteractions(clientSecretCache, paymentGateway);
+    }
+
+    @Test
+    void cancelTransaction_ShouldMarkFailed_WhenPaymentWasDeclined() {
+        // Arrange
+        UUID transactionId = UUID.randomUUID();
+        String paymentId = paymentGateway.createPayment(10000, Map.of()).id();
+        paymentGateway.decline(paymentId, "Your card was declined.");
+        Transaction transaction = Transaction.builder()
+                .id(transactionId)
+                .ticketId(UUID.randomUUID())
+                .paymentToken(paymentId)
+                .status(TransactionStatus.PENDING)
+                .build();
+        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
+        when(transactionRepository.updatePendingStatus(transactionId, TransactionStatus.FAILED)).thenReturn(1);
+
+        // Act
+        transactionService.cancelTransaction(transactionId);
+
+        // Assert : échec bancaire, pas une annulation utilisateur ; PaymentIntent annulé, ticket libéré
+        assertThat(paymentGateway.retrievePayment(paymentId).status()).isEqualTo("canceled");
+        verify(transactionRepository).updatePendingStatus(transactionId, TransactionStatus.FAILED);
+        verify(transactionRepository, never()).save(any());
+        verify(ticketClient).releaseTicket(transaction.getTicketId());
+    }
+
+    @Test
+    void cancelTransaction_ShouldNotReleaseTicket_WhenConfirmedConcurrently() {
+        // Arrange : la confirmation passe entre la lecture et la mise à jour conditionnelle
+        UUID transactionId = UUID.randomUUID();
+        String paymentId = paymentGateway.createPayment(10000, Map.of()).id();
+        Transaction transaction = Transaction.builder()
+                .id(transactionId)
+                .ticketId(UUID.randomUUID())
+                .paymentToken(paymentId)
+                .status(TransactionStatus.PENDING)
+                .build();
+        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
+        when(transactionRepository.updatePendingStatus(transactionId, TransactionStatus.CANCELED)).thenReturn(0);
+
+        // Act
+        transactionService.cancelTransaction(transactionId);
+
+        // Assert : le ticket vendu reste réservé
+        verify(paymentGateway).cancelPayment(paymentId);
+        verifyNoInteractions(ticketClient);
+    }
+
+    @Test
+    void cancelTransaction_ShouldRefuse_WhenPaymentAlreadySucceeded() {
+        // Arrange : acheteur débité, le webhook n'est pas encore arrivé
+        UUID transactionId = UUID.randomUUID();
+        String paymentId = paymentGateway.createPayment(10000, Map.of()).id();
+        paymentGateway.setStatus(paymentId, "succeeded");
+        Transaction transaction = Transaction.builder()
+                .id(transactionId)
+                .ticketId(UUID.randomUUID())
+                .paymentToken(paymentId)
+                .status(TransactionStatus.PENDING)
+                .build();
+        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
+
+        // Act & Assert
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> transactionService.cancelTransaction(transactionId));
+        assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        verify(paymentGateway, never()).cancelPayment(any());
+        verify(transactionRepository, never()).updatePendingStatus(any(), any());
+        verifyNoInteractions(ticketClient);
+    }
+
+    @Test
+    void refundTransaction_ShouldNotCallStripe_WhenAnotherRequestHoldsTheRefund() throws Exception {
+        // Arrange : deux demandes lisent la ligne COMPLETED, l'autre a déjà pris la réservation
+        UUID transactionId = UUID.randomUUID();
+        Transaction transaction = Transaction.builder()
+                .id(transactionId)
+                .paymentToken("pi_123")
+                .status(TransactionStatus.COMPLETED)
+                .build();
+        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
+        when(transactionRepository.claimRefund(transactionId)).thenReturn(0);
+
+        // Act & Assert
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> transactionService.refundTransaction(transactionId));
+        assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        verify(paymentGateway, never()).refund(any(), any(), any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void refundTransaction_ShouldRefundWithIdempotencyKey_AndRecordItAtomically() throws Exception {
+        // Arrange
+        UUID transactionId = UUID.randomUUID();
+        Transaction transaction = Transaction.builder()
+                .id(transactionId)
+                .ticketId(UUID.randomUUID())
+                .paymentToken("pi_123")
+                .status(TransactionStatus.COMPLETED)
+                .build();
+        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
+        when(transactionRepository.claimRefund(transactionId)).thenReturn(1);
+
+        // Act
+        transactionService.refundTransaction(transactionId);
+
+        // Assert : clé stable par transaction, écritures locales dans une même transaction
+        verify(paymentGateway).refund("pi_123", null, "refund-" + transactionId);
+        verify(transactionOperations).executeWithoutResult(any());
+        verify(transactionRepository).save(transaction);
+        assertThat(transaction.getStatus()).isEqualTo(TransactionStatus.REFUNDED);
+        verify(outboxService).enqueue(eq("transaction-refunded"), eq(transactionId), any());
+    }
+
+    @Test
+    void completeTransaction_ShouldEnqueueEventsInOutbox_WithoutCallingTicketService() {
+        // Arrange
+        UUID transactionId = UUID.randomUUID();
+        UUID vendorId = UUID.randomUUID();
+        Transaction transaction = Transaction.builder()
+                .id(transactionId)
+                .buyerId(UUID.randomUUID())
+                .ticketId(UUID.randomUUID())
+                .vendorId(vendorId)
+                .totalAmountCents(10000)
+                .platformFeeCents(500)
+                .vendorAmountCents(9500)
+                .status(TransactionStatus.PENDING)
+                .build();
+        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
+        when(transactionRepository.completePending(eq(transactionId), any())).thenReturn(1);
+
+        // Act
+        Transaction result = transactionService.completeTransaction(transactionId);
+
+        // Assert
+        assertThat(result.getStatus()).isEqualTo(TransactionStatus.COMPLETED);
+        verify(outboxService).enqueue(eq("ticket-sold"), eq(transactionId), any(TicketSoldEvent.class));
+        verify(outboxService).enqueue(eq("payment-validated"), eq(transactionId),
+                argThat((PaymentValidatedEvent e) -> vendorId.equals(e.getVendorId()) && e.getVendorAmountCents() == 9500));
+        verifyNoInteractions(ticketClient);
+        verify(ticketCache, never()).getTicket(any());
+    }
+
+    @Test
+    void completeTransaction_ShouldTimeEachStage() {
+        // Arrange
+        UUID transactionId = UUID.randomUUID();
+        Transaction transaction = Transaction.builder()
+                .id(transactionId)
+                .buyerId(UUID.randomUUID())
+                .ticketId(UUID.randomUUID())
+                .totalAmountCents(10000)
+                .status(TransactionStatus.PENDING)
+                .build();
+        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
+        when(transactionRepository.completePending(eq(transactionId), any())).thenReturn(1);
+
+        // Act
+        transactionService.completeTransaction(transactionId);
+
+        // Assert : un timer par étape, l'ID de transaction n'apparaît pas dans les tags des métriques
+        assertThat(meterRegistry.get(PipelineObservations.PIPELINE).tag("pipeline", "confirm").timer().count())
+                .isEqualTo(1);
+        for (String stage : List.of("load", "persist", "outbox")) {
+            assertThat(meterRegistry.get(PipelineObservations.STAGE)
+                    .tags("pipeline", "confirm", "stage", stage).timer().count()).isEqualTo(1);
+        }
+        assertThat(meterRegistry.getMeters())
+                .allSatisfy(meter -> assertThat(meter.getId().getTag("transaction.id")).isNull());
+    }
+
+    @Test
+    void completeTransaction_ShouldNotEmitEvents_WhenTheRowLeftPendingConcurrently() {
+        // Arrange : le sweeper a expiré la ligne entre la lecture et la mise à jour
+        UUID transactionId = UUID.randomUUID();
+        Transaction pending = Transaction.builder()
+                .id(transactionId)
+                .ticketId(UUID.randomUUID())
+                .status(TransactionStatus.PENDING)
+                .build();
+        Transaction expired = Transaction.builder()
+                .id(transactionId)
+                .ticketId(pending.getTicketId())
+                .status(TransactionStatus.EXPIRED)
+                .build();
+        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(pending), Optional.of(expired));
+        when(transactionRepository.completePending(eq(transactionId), any())).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> transactionService.completeTransaction(transactionId));
+        verifyNoInteractions(outboxService, salesRollupService, ledgerService);
+    }
+
     @Test
     void getAllTransactions_ShouldReturnList() {
         when(transactionRepository.findAll()).thenReturn(List.of(new Transaction(), new Transaction()));
@@ -103,4 +460,10 @@ class TransactionServiceTest {
 
         assertThat(result).hasSize(2);
     }
-}
\ No newline at end of file
+
+    private static ObservationRegistry observationRegistry(MeterRegistry meterRegistry) {
+        ObservationRegistry registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        return registry;
+    }
+}
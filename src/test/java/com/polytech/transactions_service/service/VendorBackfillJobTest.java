@@ -0,0 +1,187 @@
+package com.polytech.transactions_service.service;
+
+import com.polytech.transactions_service.client.TicketClient;
+import com.polytech.transactions_service.config.IoThreadFactory;
+import com.polytech.transactions_service.dto.BackfillStatus;
+import com.polytech.transactions_service.dto.TicketDto;
+import com.polytech.transactions_service.dto.TransactionTicketRef;
+import com.polytech.transactions_service.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VendorBackfillJobTest {
+
+    @Mock private TransactionRepository transactionRepository;
+    @Mock private TicketClient ticketClient;
+    @Mock private JdbcTemplate jdbcTemplate;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private VendorBackfillJob backfillJob;
+
+    @BeforeEach
+    void setUp() {
+        // Paquets de 2 lignes pour parcourir plusieurs pages avec peu de données
+        backfillJob = new VendorBackfillJob(transactionRepository, ticketClient, jdbcTemplate,
+                transactionManager, new IoThreadFactory(false), 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        backfillJob.shutdown();
+    }
+
+    @Test
+    void start_ShouldWalkChunksWithKeysetCursor_UntilAShortChunk() {
+        // Arrange : 3 lignes, paquet plein puis paquet partiel
+        TransactionTicketRef first = ref(1);
+        TransactionTicketRef second = ref(2);
+        TransactionTicketRef third = ref(3);
+        when(transactionRepository.findByVendorIdIsNullOrderByIdAsc(any(Pageable.class))).thenReturn(List.of(first, second));
+        when(transactionRepository.findByVendorIdIsNullAndIdGreaterThanOrderByIdAsc(eq(second.getId()), any(Pageable.class)))
+                .thenReturn(List.of(third));
+        when(ticketClient.getTicketById(any())).thenAnswer(i -> ticket(i.getArgument(0)));
+
+        // Act
+        assertThat(backfillJob.start()).isTrue();
+        BackfillStatus status = awaitFinished();
+
+        // Assert : un batch JDBC par paquet, pas de troisième lecture après le paquet partiel
+        assertThat(status.getState()).isEqualTo(BackfillStatus.State.COMPLETED);
+        assertThat(status.getProcessed()).isEqualTo(3);
+        assertThat(status.getUpdated()).isEqualTo(3);
+        assertThat(status.getFailed()).isZero();
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+        verify(transactionRepository).findByVendorIdIsNullAndIdGreaterThanOrderByIdAsc(any(), any(Pageable.class));
+    }
+
+    @Test
+    void start_ShouldSkipRowsWhoseTicketCannotBeResolved_AndLookUpSharedTicketsOnce() {
+        // Arrange : deux lignes sur le même ticket introuvable
+        UUID missingTicket = UUID.randomUUID();
+        TransactionTicketRef orphan = ref(1, missingTicket);
+        TransactionTicketRef sameTicket = ref(2, missingTicket);
+        when(transactionRepository.findByVendorIdIsNullOrderByIdAsc(any(Pageable.class))).thenReturn(List.of(orphan, sameTicket));
+        when(transactionRepository.findByVendorIdIsNullAndIdGreaterThanOrderByIdAsc(any(), any(Pageable.class)))
+                .thenReturn(List.of());
+        when(ticketClient.getTicketById(missingTicket)).thenThrow(new IllegalStateException("404"));
+
+        // Act
+        backfillJob.start();
+        BackfillStatus status = awaitFinished();
+
+        // Assert : lignes comptées en échec, rien à écrire, le job se termine normalement
+        assertThat(status.getState()).isEqualTo(BackfillStatus.State.COMPLETED);
+        assertThat(status.getProcessed()).isEqualTo(2);
+        assertThat(status.getUpdated()).isZero();
+        assertThat(status.getFailed()).isEqualTo(2);
+        verify(ticketClient, times(1)).getTicketById(missingTicket);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void start_ShouldStopOnWriteFailure_ThenResumeFromRowsStillMissingVendor() {
+        // Arrange : le premier paquet est écrit, l'écriture du second échoue
+        TransactionTicketRef first = ref(1);
+        TransactionTicketRef second = ref(2);
+        TransactionTicketRef third = ref(3);
+        when(transactionRepository.findByVendorIdIsNullOrderByIdAsc(any(Pageable.class)))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of(third)); // Relance : seules les lignes non complétées sont relues
+        when(transactionRepository.findByVendorIdIsNullAndIdGreaterThanOrderByIdAsc(eq(second.getId()), any(Pageable.class)))
+                .thenReturn(List.of(third));
+        when(ticketClient.getTicketById(any())).thenAnswer(i -> ticket(i.getArgument(0)));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenReturn(new int[]{1, 1})
+                .thenThrow(new DataAccessResourceFailureException("connexion perdue"))
+                .thenReturn(new int[]{1});
+
+        // Act
+        backfillJob.start();
+        BackfillStatus interrupted = awaitFinished();
+
+        // Assert : seul le paquet écrit est compté
+        assertThat(interrupted.getState()).isEqualTo(BackfillStatus.State.FAILED);
+        assertThat(interrupted.getProcessed()).isEqualTo(2);
+        assertThat(interrupted.getLastError()).isEqualTo("connexion perdue");
+
+        // Act : relance après l'incident
+        restart();
+        BackfillStatus resumed = awaitFinished();
+
+        // Assert : la relance repart des lignes encore sans vendorId
+        assertThat(resumed.getState()).isEqualTo(BackfillStatus.State.COMPLETED);
+        assertThat(resumed.getProcessed()).isEqualTo(1);
+        assertThat(resumed.getUpdated()).isEqualTo(1);
+        assertThat(resumed.getLastError()).isNull();
+    }
+
+    private BackfillStatus awaitFinished() {
+        long deadline = System.currentTimeMillis() + 5000;
+        BackfillStatus status = backfillJob.getStatus();
+        while (status.getState() == BackfillStatus.State.RUNNING || status.getFinishedAt() == null) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Backfill non terminé : " + status);
+            }
+            LockSupport.parkNanos(1_000_000);
+            status = backfillJob.getStatus();
+        }
+        return status;
+    }
+
+    // Le verrou "running" est rendu juste après finishedAt : on réessaie brièvement
+    private void restart() {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!backfillJob.start()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Backfill non relançable");
+            }
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+
+    private static TransactionTicketRef ref(long id) {
+        return ref(id, UUID.randomUUID());
+    }
+
+    private static TransactionTicketRef ref(long id, UUID ticketId) {
+        UUID transactionId = new UUID(0, id);
+        return new TransactionTicketRef() {
+            @Override
+            public UUID getId() {
+                return transactionId;
+            }
+
+            @Override
+            public UUID getTicketId() {
+                return ticketId;
+            }
+        };
+    }
+
+    private static TicketDto ticket(UUID id) {
+        TicketDto ticket = new TicketDto();
+        ticket.setId(id);
+        ticket.setVendorId(UUID.randomUUID());
+        return ticket;
+    }
+}
@@ -0,0 +1,60 @@
+package com.polytech.transactions_service.support;
+
+import com.polytech.transactions_service.client.PaymentGateway;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fausse passerelle de paiement en mémoire (sans HTTP ni SDK Stripe) pour les tests et benchmarks.
+ * Les paiements créés sont conservés : retrieve, cancel et refund fonctionnent sur leurs IDs.
+ */
+public class FakePaymentGateway implements PaymentGateway {
+
+    private final Map<String, Payment> payments = new ConcurrentHashMap<>();
+    private final AtomicLong created = new AtomicLong();
+
+    @Override
+    public Payment createPayment(long amountCents, Map<String, String> metadata) {
+        String id = "pi_" + UUID.randomUUID().toString().replace("-", "");
+        Payment payment = new Payment(id, id + "_secret", "requires_payment_method", null);
+        payments.put(id, payment);
+        created.incrementAndGet();
+        return payment;
+    }
+
+    @Override
+    public Payment retrievePayment(String paymentId) {
+        Payment payment = payments.get(paymentId);
+        return payment != null ? payment : new Payment(paymentId, paymentId + "_secret", "requires_payment_method", null);
+    }
+
+    @Override
+    public void cancelPayment(String paymentId) {
+        Payment payment = retrievePayment(paymentId);
+        payments.put(paymentId, new Payment(paymentId, payment.clientSecret(), "canceled", payment.failureMessage()));
+    }
+
+    @Override
+    public String refund(String paymentId, Long amountCents, String idempotencyKey) {
+        return "succeeded";
+    }
+
+    // Simule une carte refusée sur un paiement existant
+    public void decline(String paymentId, String message) {
+        Payment payment = retrievePayment(paymentId);
+        payments.put(paymentId, new Payment(paymentId, payment.clientSecret(), "requires_payment_method", message));
+    }
+
+    // Simule l'avancement d'un paiement côté prestataire (succeeded, processing...)
+    public void setStatus(String paymentId, String status) {
+        Payment payment = retrievePayment(paymentId);
+        payments.put(paymentId, new Payment(paymentId, payment.clientSecret(), status, payment.failureMessage()));
+    }
+
+    public long createdCount() {
+        return created.get();
+    }
+}
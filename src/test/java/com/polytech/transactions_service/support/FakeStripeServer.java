@@ -0,0 +1,73 @@
+package com.polytech.transactions_service.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Faux serveur Stripe (HTTP local) pour les tests de charge et benchmarks.
+ * Répond aux appels PaymentIntent / Refund du SDK après une latence simulée.
+ * Le StripeClient y est dirigé par stripe.api-base = url().
+ */
+public class FakeStripeServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Duration latency;
+    private final AtomicLong requests = new AtomicLong();
+
+    public FakeStripeServer(Duration latency) throws IOException {
+        this.latency = latency;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/v1/payment_intents", exchange -> respond(exchange, paymentIntent(exchange)));
+        this.server.createContext("/v1/refunds", exchange -> respond(exchange,
+                "{\"id\":\"re_" + UUID.randomUUID() + "\",\"object\":\"refund\",\"status\":\"succeeded\"}"));
+        this.server.start();
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    private static String paymentIntent(HttpExchange exchange) {
+        // /v1/payment_intents/{id}[/cancel] : on renvoie le même id ; création : nouvel id
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        String id = parts.length > 3 ? parts[3] : "pi_" + UUID.randomUUID().toString().replace("-", "");
+        String status = exchange.getRequestURI().getPath().endsWith("/cancel") ? "canceled" : "requires_payment_method";
+        return "{\"id\":\"" + id + "\",\"object\":\"payment_intent\",\"status\":\"" + status + "\","
+                + "\"client_secret\":\"" + id + "_secret\",\"currency\":\"eur\"}";
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        requests.incrementAndGet();
+        try {
+            Thread.sleep(latency.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,33 @@
+package com.polytech.transactions_service.support;
+
+import com.stripe.net.Webhook;
+
+import java.time.Instant;
+
+/**
+ * Faux émetteur Stripe : construit des événements et les signe comme Stripe
+ * (en-tête "t=<timestamp>,v1=<HMAC-SHA256 hex de timestamp.payload>").
+ */
+public class FakeStripeWebhookSender {
+
+    private final String secret;
+
+    public FakeStripeWebhookSender(String secret) {
+        this.secret = secret;
+    }
+
+    public static String paymentIntentEvent(String eventId, String type, String paymentIntentId) {
+        return "{\"id\":\"" + eventId + "\",\"object\":\"event\",\"type\":\"" + type + "\","
+                + "\"data\":{\"object\":{\"id\":\"" + paymentIntentId + "\",\"object\":\"payment_intent\"}}}";
+    }
+
+    public String sign(String payload) {
+        long timestamp = Instant.now().getEpochSecond();
+        try {
+            String signature = Webhook.Util.computeHmacSha256(secret, timestamp + "." + payload);
+            return "t=" + timestamp + ",v1=" + signature;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.polytech.transactions_service.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Faux tickets-service (HTTP local) pour les tests de charge : répond aux appels de TicketClient
+ * après une latence simulée, avec injection d'échecs sur la réservation.
+ * Tout ticket demandé existe et est AVAILABLE ; vendeur et événement sont tirés dans un petit pool.
+ */
+public class FakeTicketsServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Duration latency;
+    private final double reserveFailureRate;
+    private final List<UUID> vendors = IntStream.range(0, 50).mapToObj(i -> UUID.randomUUID()).toList();
+    private final List<UUID> events = IntStream.range(0, 20).mapToObj(i -> UUID.randomUUID()).toList();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedFailures = new AtomicLong();
+
+    /**
+     * @param reserveFailureRate part des réservations refusées (409, ticket déjà pris), entre 0 et 1
+     */
+    public FakeTicketsServer(Duration latency, double reserveFailureRate) throws IOException {
+        this.latency = latency;
+        this.reserveFailureRate = reserveFailureRate;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/tickets/", this::handle);
+        this.server.start();
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public long injectedFailureCount() {
+        return injectedFailures.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        exchange.getRequestBody().readAllBytes();
+        // /tickets/{id}[/reserve|/release|/buy]
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        UUID ticketId = UUID.fromString(parts[2]);
+        String action = parts.length > 3 ? parts[3] : "";
+        sleep();
+        if ("GET".equals(exchange.getRequestMethod())) {
+            respond(exchange, 200, ticket(ticketId));
+        } else if ("reserve".equals(action) && ThreadLocalRandom.current().nextDouble() < reserveFailureRate) {
+            injectedFailures.incrementAndGet();
+            respond(exchange, 409, "{\"error\":\"Ticket déjà réservé\"}");
+        } else {
+            respond(exchange, 200, null);
+        }
+    }
+
+    // Vendeur et événement dérivés de l'id : stables d'un appel à l'autre pour un même ticket
+    private String ticket(UUID ticketId) {
+        int slot = Math.floorMod(ticketId.hashCode(), vendors.size() * events.size());
+        return "{\"id\":\"" + ticketId + "\",\"salePrice\":" + (10 + slot % 90) + ".50,"
+                + "\"status\":\"AVAILABLE\",\"vendorId\":\"" + vendors.get(slot % vendors.size()) + "\","
+                + "\"eventId\":\"" + events.get(slot % events.size()) + "\"}";
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(latency.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}